@@ -0,0 +1,132 @@
+// derives the accounts m/44'/118'/0'/0/index of the mnemonic in parallel
+// usage:
+//    AccountDeriver deriver = new AccountDeriver(mnemonicString);
+//    deriver.derive(fromIndex, count, account -> handle(account.index, account.address, account.publicKey));
+//    deriver.derive(fromIndex, count, forkJoinPool, accountConsumer);
+//    AccountDeriver.Account account = deriver.derive(index);
+// the parent node m/44'/118'/0'/0 is derived once, the chunks of chunkSize accounts are derived
+// by the threads of the pool, public keys of the chunk are converted to the affine coordinates with one inversion,
+// consumer can be called concurrently from the different threads, accounts of the chunk are in order of the index
+package com.bluzelle;
+
+import com.bluzelle.crypto.HdKeyPair;
+import com.bluzelle.crypto.Mnemonic;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+@SuppressWarnings("WeakerAccess")
+public class AccountDeriver {
+    static final int chunkSize = 64;
+    private final HdKeyPair parent;
+
+    /**
+     * @param mnemonic mnemonic of the accounts
+     * @throws NullPointerException     if mnemonic == null
+     * @throws IllegalArgumentException if mnemonic is not valid
+     */
+    public AccountDeriver(String mnemonic) {
+        if (mnemonic == null) {
+            throw new NullPointerException("null mnemonic");
+        }
+        HdKeyPair master = HdKeyPair.createMaster(Mnemonic.createSeed(mnemonic, "mnemonic"));
+        parent = master.generateChild("44'/118'/0'/0");
+    }
+
+    /**
+     * @param index index of the account
+     * @return account m/44'/118'/0'/0/index
+     * @throws IllegalArgumentException if index < 0
+     */
+    public Account derive(int index) {
+        if (index < 0) {
+            throw new IllegalArgumentException("negative index");
+        }
+        return new Account(index, parent.generateChildren(index, 1, false)[0]);
+    }
+
+    /**
+     * derives the accounts using the ForkJoinPool.commonPool(), returns after all accounts are consumed
+     *
+     * @param from     index of the first account
+     * @param count    number of the accounts
+     * @param consumer receives every account, can be called concurrently
+     * @throws NullPointerException     if consumer == null
+     * @throws IllegalArgumentException if from < 0 or count < 0 or from + count > 2**31
+     */
+    public void derive(int from, int count, Consumer<Account> consumer) {
+        derive(from, count, ForkJoinPool.commonPool(), consumer);
+    }
+
+    /**
+     * @param pool executes the chunks
+     * @throws NullPointerException     if pool == null or consumer == null
+     * @throws IllegalArgumentException if from < 0 or count < 0 or from + count > 2**31
+     * @see #derive(int, int, Consumer)
+     */
+    public void derive(int from, int count, ForkJoinPool pool, Consumer<Account> consumer) {
+        if (pool == null) {
+            throw new NullPointerException("null pool");
+        }
+        if (consumer == null) {
+            throw new NullPointerException("null consumer");
+        }
+        if (from < 0) {
+            throw new IllegalArgumentException("negative from");
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("negative count");
+        }
+        if ((long) from + count > 0x80000000L) {
+            throw new IllegalArgumentException("from + count > 2**31");
+        }
+        DeriveTask task = new DeriveTask(consumer, from, from + count);
+        if (count <= chunkSize) {
+            task.compute();
+        } else {
+            pool.invoke(task);
+        }
+    }
+
+    public static class Account {
+        public final int index;
+        public final String address;
+        public final byte[] publicKey; // 33 bytes compressed
+        public final HdKeyPair keyPair;
+
+        private Account(int index, HdKeyPair keyPair) {
+            this.index = index;
+            this.keyPair = keyPair;
+            publicKey = keyPair.publicKeyToByteArray();
+            address = Utils.publicKeyToAddress(publicKey);
+        }
+    }
+
+    private class DeriveTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Consumer<Account> consumer;
+        private final int from;
+        private final int to;
+
+        private DeriveTask(Consumer<Account> consumer, int from, int to) {
+            this.consumer = consumer;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > chunkSize) {
+                // long, from + to can overflow
+                int middle = (int) (((long) from + to) >>> 1);
+                invokeAll(new DeriveTask(consumer, from, middle), new DeriveTask(consumer, middle, to));
+                return;
+            }
+            HdKeyPair[] children = parent.generateChildren(from, to - from, false);
+            for (int i = 0; i < children.length; i++) {
+                consumer.accept(new Account(from + i, children[i]));
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+// local copy of the account number and sequence of the client, every transaction takes the next sequence
+// usage:
+//    AccountManager manager = new AccountManager(bluzelle);
+//    AccountManager.Sequence sequence = manager.next();
+//    manager.confirmed();
+//    manager.rejected();
+// the account is fetched once and again after the rejected transaction, because it does not consume the sequence,
+// but only if no other transaction of this client is pending, the node has not counted them yet
+package com.bluzelle;
+
+import com.bluzelle.json.JsonObject;
+
+class AccountManager {
+    private final Bluzelle bluzelle;
+    private String accountNumber = null; // null if must be fetched
+    private long sequence; // next
+    private int pending = 0; // reserved sequences of the transactions that are not confirmed or rejected yet
+    private int fetches = 0;
+
+    AccountManager(Bluzelle bluzelle) {
+        this.bluzelle = bluzelle;
+    }
+
+    /**
+     * reserves the sequence for the one transaction,
+     * every reserved sequence must be followed by confirmed() or rejected()
+     *
+     * @return account number and the reserved sequence
+     * @throws ConnectionException if can not connect to the node
+     */
+    synchronized Sequence next() {
+        if (accountNumber == null) {
+            JsonObject account = JsonObject.parse(bluzelle.fetch("/auth/accounts/" + bluzelle.address, null))
+                    .getObject("result").getObject("value");
+            fetches++;
+            sequence = Long.parseLong(account.getString("sequence"));
+            accountNumber = account.getString("account_number");
+        }
+        pending++;
+        return new Sequence(accountNumber, String.valueOf(sequence++));
+    }
+
+    /**
+     * the transaction with the reserved sequence is in the block
+     */
+    synchronized void confirmed() {
+        pending--;
+    }
+
+    /**
+     * the transaction with the reserved sequence has failed, its sequence could be not consumed,
+     * fetches the account again before the next transaction if no other transaction is pending,
+     * otherwise keeps the local sequence, which is ahead of the node
+     */
+    synchronized void rejected() {
+        pending--;
+        if (pending == 0) {
+            accountNumber = null;
+        }
+    }
+
+    synchronized int fetches() {
+        return fetches;
+    }
+
+    static class Sequence {
+        final String accountNumber;
+        final String sequence;
+
+        private Sequence(String accountNumber, String sequence) {
+            this.accountNumber = accountNumber;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+// non-blocking view of the bluzelle client, every call returns CompletableFuture
+// queries use the non-blocking request of the transport and parse the response on the executor,
+// transactions run on the executor
+// usage:
+//    AsyncBluzelle async = bluzelle.async();
+//    AsyncBluzelle async = bluzelle.async(executor);
+//    CompletableFuture<String> value = async.read(keyString, isProve);
+//    CompletableFuture<Void> created = async.create(keyString, valueString, gasInfo, leaseInfo);
+//    CompletableFuture<Response> response = async.send(message);
+// futures complete exceptionally with the same exceptions as the blocking methods of the Bluzelle
+package com.bluzelle;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+@SuppressWarnings("WeakerAccess")
+public class AsyncBluzelle {
+    public final Bluzelle bluzelle;
+    private final Executor executor;
+
+    AsyncBluzelle(Bluzelle bluzelle, Executor executor) {
+        this.bluzelle = bluzelle;
+        this.executor = executor;
+    }
+
+    /**
+     * @see Bluzelle#version()
+     */
+    public CompletableFuture<String> version() {
+        return query(bluzelle::versionQuery);
+    }
+
+    /**
+     * @see Bluzelle#account()
+     */
+    public CompletableFuture<AccountData> account() {
+        return query(bluzelle::accountQuery);
+    }
+
+    /**
+     * @see Bluzelle#transferTokensTo(String, int, GasInfo)
+     */
+    public CompletableFuture<Void> transferTokensTo(String address, int amount, GasInfo gasInfo) {
+        return run(() -> bluzelle.transferTokensTo(address, amount, gasInfo));
+    }
+
+    /**
+     * @see Bluzelle#create(String, String, GasInfo, LeaseInfo)
+     */
+    public CompletableFuture<Void> create(String key, String value, GasInfo gasInfo, LeaseInfo leaseInfo) {
+        return run(() -> bluzelle.create(key, value, gasInfo, leaseInfo));
+    }
+
+    /**
+     * @see Bluzelle#read(String, boolean)
+     */
+    public CompletableFuture<String> read(String key, boolean prove) {
+        return query(() -> bluzelle.readQuery(key, prove));
+    }
+
+    /**
+     * @see Bluzelle#txRead(String, GasInfo)
+     */
+    public CompletableFuture<String> txRead(String key, GasInfo gasInfo) {
+        return supply(() -> bluzelle.txRead(key, gasInfo));
+    }
+
+    /**
+     * @see Bluzelle#has(String)
+     */
+    public CompletableFuture<Boolean> has(String key) {
+        return query(() -> bluzelle.hasQuery(key));
+    }
+
+    /**
+     * @see Bluzelle#txHas(String, GasInfo)
+     */
+    public CompletableFuture<Boolean> txHas(String key, GasInfo gasInfo) {
+        return supply(() -> bluzelle.txHas(key, gasInfo));
+    }
+
+    /**
+     * @see Bluzelle#count()
+     */
+    public CompletableFuture<Integer> count() {
+        return query(bluzelle::countQuery);
+    }
+
+    /**
+     * @see Bluzelle#txCount(GasInfo)
+     */
+    public CompletableFuture<Integer> txCount(GasInfo gasInfo) {
+        return supply(() -> bluzelle.txCount(gasInfo));
+    }
+
+    /**
+     * @see Bluzelle#keys()
+     */
+    public CompletableFuture<ArrayList<String>> keys() {
+        return query(bluzelle::keysQuery);
+    }
+
+    /**
+     * @see Bluzelle#txKeys(GasInfo)
+     */
+    public CompletableFuture<ArrayList<String>> txKeys(GasInfo gasInfo) {
+        return supply(() -> bluzelle.txKeys(gasInfo));
+    }
+
+    /**
+     * @see Bluzelle#keyValues()
+     */
+    public CompletableFuture<HashMap<String, String>> keyValues() {
+        return query(bluzelle::keyValuesQuery);
+    }
+
+    /**
+     * @see Bluzelle#txKeyValues(GasInfo)
+     */
+    public CompletableFuture<HashMap<String, String>> txKeyValues(GasInfo gasInfo) {
+        return supply(() -> bluzelle.txKeyValues(gasInfo));
+    }
+
+    /**
+     * @see Bluzelle#getLease(String)
+     */
+    public CompletableFuture<Integer> getLease(String key) {
+        return query(() -> bluzelle.getLeaseQuery(key));
+    }
+
+    /**
+     * @see Bluzelle#txGetLease(String, GasInfo)
+     */
+    public CompletableFuture<Integer> txGetLease(String key, GasInfo gasInfo) {
+        return supply(() -> bluzelle.txGetLease(key, gasInfo));
+    }
+
+    /**
+     * @see Bluzelle#getNShortestLeases(int)
+     */
+    public CompletableFuture<HashMap<String, Integer>> getNShortestLeases(int n) {
+        return query(() -> bluzelle.getNShortestLeasesQuery(n));
+    }
+
+    /**
+     * @see Bluzelle#txGetNShortestLeases(int, GasInfo)
+     */
+    public CompletableFuture<HashMap<String, Integer>> txGetNShortestLeases(int n, GasInfo gasInfo) {
+        return supply(() -> bluzelle.txGetNShortestLeases(n, gasInfo));
+    }
+
+    /**
+     * @see Bluzelle#update(String, String, GasInfo, LeaseInfo)
+     */
+    public CompletableFuture<Void> update(String key, String value, GasInfo gasInfo, LeaseInfo leaseInfo) {
+        return run(() -> bluzelle.update(key, value, gasInfo, leaseInfo));
+    }
+
+    /**
+     * @see Bluzelle#rename(String, String, GasInfo)
+     */
+    public CompletableFuture<Void> rename(String key, String newKey, GasInfo gasInfo) {
+        return run(() -> bluzelle.rename(key, newKey, gasInfo));
+    }
+
+    /**
+     * @see Bluzelle#multiUpdate(HashMap, GasInfo)
+     */
+    public CompletableFuture<Void> multiUpdate(HashMap<String, String> keyValues, GasInfo gasInfo) {
+        return run(() -> bluzelle.multiUpdate(keyValues, gasInfo));
+    }
+
+    /**
+     * @see Bluzelle#renewLease(String, GasInfo, LeaseInfo)
+     */
+    public CompletableFuture<Void> renewLease(String key, GasInfo gasInfo, LeaseInfo leaseInfo) {
+        return run(() -> bluzelle.renewLease(key, gasInfo, leaseInfo));
+    }
+
+    /**
+     * @see Bluzelle#renewLeaseAll(GasInfo, LeaseInfo)
+     */
+    public CompletableFuture<Void> renewLeaseAll(GasInfo gasInfo, LeaseInfo leaseInfo) {
+        return run(() -> bluzelle.renewLeaseAll(gasInfo, leaseInfo));
+    }
+
+    /**
+     * @see Bluzelle#delete(String, GasInfo)
+     */
+    public CompletableFuture<Void> delete(String key, GasInfo gasInfo) {
+        return run(() -> bluzelle.delete(key, gasInfo));
+    }
+
+    /**
+     * @see Bluzelle#deleteAll(GasInfo)
+     */
+    public CompletableFuture<Void> deleteAll(GasInfo gasInfo) {
+        return run(() -> bluzelle.deleteAll(gasInfo));
+    }
+
+    /**
+     * sends the transaction built with Bluzelle.createMessage()
+     *
+     * @param message message to be sent
+     * @return future with the Response
+     * @throws NullPointerException if message == null
+     */
+    public CompletableFuture<Response> send(Message message) {
+        if (message == null) {
+            throw new NullPointerException("null message");
+        }
+        return supply(message::send);
+    }
+
+    // non-blocking request, only parsing of the response runs on the executor
+    private <T> CompletableFuture<T> query(Supplier<Query<T>> query) {
+        try {
+            return bluzelle.runAsync(query.get(), executor);
+        } catch (RuntimeException e) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    // blocking call, occupies the executor thread until the end
+    private <T> CompletableFuture<T> supply(Supplier<T> supplier) {
+        return CompletableFuture.supplyAsync(supplier, executor);
+    }
+
+    // blocking call, occupies the executor thread until the end
+    private CompletableFuture<Void> run(Runnable runnable) {
+        return CompletableFuture.runAsync(runnable, executor);
+    }
+}
@@ -0,0 +1,196 @@
+// collects the writes of many threads into one transaction
+// usage:
+//    BatchingWriter writer = bluzelle.batchingWriter(maxDelayMillis, maxMessages);
+//    CompletableFuture<Response> created = writer.create(keyString, valueString, gasInfo, leaseInfo);
+//    CompletableFuture<Response> updated = writer.update(keyString, valueString, gasInfo, leaseInfo);
+//    CompletableFuture<Response> deleted = writer.delete(keyString, gasInfo);
+//    CompletableFuture<Response> renamed = writer.rename(keyString, newKeyString, gasInfo);
+//    CompletableFuture<Response> renewed = writer.renewLease(keyString, gasInfo, leaseInfo);
+//    writer.flush();
+// the batch is sent maxDelayMillis after its first write or when it has maxMessages writes,
+// all writes of the batch complete with the same Response,
+// the writes are validated and their gas is estimated before they join the batch, without blocking the other threads,
+// if the node rejects the batch, its writes are broadcast again one by one without waiting for the blocks,
+// so the one bad write does not fail the others
+package com.bluzelle;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+@SuppressWarnings("WeakerAccess")
+public class BatchingWriter {
+    private final Bluzelle bluzelle;
+    private final long maxDelayMillis;
+    private final int maxMessages;
+    private Batch batch = null;
+
+    BatchingWriter(Bluzelle bluzelle, long maxDelayMillis, int maxMessages) {
+        if (maxDelayMillis < 0) {
+            throw new IllegalArgumentException("negative maxDelayMillis");
+        }
+        if (maxMessages < 1) {
+            throw new IllegalArgumentException("maxMessages < 1");
+        }
+        this.bluzelle = bluzelle;
+        this.maxDelayMillis = maxDelayMillis;
+        this.maxMessages = maxMessages;
+    }
+
+    /**
+     * @throws NullPointerException     if key == null or value == null or gasInfo == null
+     * @throws IllegalArgumentException if key is empty or contains '/', or lease is negative
+     * @see Bluzelle#create(String, String, GasInfo, LeaseInfo)
+     */
+    public CompletableFuture<Response> create(String key, String value, GasInfo gasInfo, LeaseInfo leaseInfo) {
+        return add(message -> message.create(key, value, gasInfo, leaseInfo));
+    }
+
+    /**
+     * @throws NullPointerException     if key == null or value == null or gasInfo == null
+     * @throws IllegalArgumentException if key is empty
+     * @see Bluzelle#update(String, String, GasInfo, LeaseInfo)
+     */
+    public CompletableFuture<Response> update(String key, String value, GasInfo gasInfo, LeaseInfo leaseInfo) {
+        return add(message -> message.update(key, value, gasInfo, leaseInfo));
+    }
+
+    /**
+     * @throws NullPointerException     if key == null or gasInfo == null
+     * @throws IllegalArgumentException if key is empty
+     * @see Bluzelle#delete(String, GasInfo)
+     */
+    public CompletableFuture<Response> delete(String key, GasInfo gasInfo) {
+        return add(message -> message.delete(key, gasInfo));
+    }
+
+    /**
+     * @throws NullPointerException     if key == null or newKey == null or gasInfo == null
+     * @throws IllegalArgumentException if key is empty or newKey is empty or newKey contains '/'
+     * @see Bluzelle#rename(String, String, GasInfo)
+     */
+    public CompletableFuture<Response> rename(String key, String newKey, GasInfo gasInfo) {
+        return add(message -> message.rename(key, newKey, gasInfo));
+    }
+
+    /**
+     * @throws NullPointerException     if key == null or gasInfo == null
+     * @throws IllegalArgumentException if key is empty or lease is negative
+     * @see Bluzelle#renewLease(String, GasInfo, LeaseInfo)
+     */
+    public CompletableFuture<Response> renewLease(String key, GasInfo gasInfo, LeaseInfo leaseInfo) {
+        return add(message -> message.renewLease(key, gasInfo, leaseInfo));
+    }
+
+    /**
+     * sends the collected writes without waiting
+     */
+    public void flush() {
+        Batch full;
+        synchronized (this) {
+            full = batch;
+            batch = null;
+        }
+        if (full != null) {
+            send(full);
+        }
+    }
+
+    private CompletableFuture<Response> add(Consumer<Message> write) {
+        // validates the arguments and estimates the gas, throws before changing the batch
+        Message single = bluzelle.createMessage();
+        write.accept(single);
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        Batch full = null;
+        synchronized (this) {
+            if (batch == null) {
+                batch = new Batch(bluzelle.createMessage());
+            }
+            batch.message.append(single);
+            batch.singles.add(single);
+            batch.futures.add(future);
+            if (batch.singles.size() >= maxMessages) {
+                full = batch;
+                batch = null;
+            } else if (batch.timer == null) {
+                Batch scheduled = batch;
+                batch.timer = Utils.scheduler().schedule(() -> {
+                    synchronized (this) {
+                        if (batch != scheduled) {
+                            return;
+                        }
+                        batch = null;
+                    }
+                    send(scheduled);
+                }, maxDelayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (full != null) {
+            send(full);
+        }
+        return future;
+    }
+
+    private void send(Batch batch) {
+        if (batch.timer != null) {
+            batch.timer.cancel(false);
+        }
+        if (batch.singles.isEmpty()) {
+            return;
+        }
+        Utils.defaultExecutor().execute(() -> {
+            Response response;
+            try {
+                response = batch.message.send();
+            } catch (ServerException e) {
+                if (batch.singles.size() == 1) {
+                    batch.futures.get(0).completeExceptionally(e);
+                } else {
+                    sendOneByOne(batch);
+                }
+                return;
+            } catch (RuntimeException e) {
+                // the outcome is unknown, the batch is not sent again
+                for (CompletableFuture<Response> future : batch.futures) {
+                    future.completeExceptionally(e);
+                }
+                return;
+            }
+            for (CompletableFuture<Response> future : batch.futures) {
+                future.complete(response);
+            }
+        });
+    }
+
+    // broadcasts every write without waiting for the block, the poller completes their futures
+    private void sendOneByOne(Batch batch) {
+        int size = batch.singles.size();
+        for (int i = 0; i < size; i++) {
+            CompletableFuture<Response> future = batch.futures.get(i);
+            try {
+                batch.singles.get(i).send(Message.modeSync).response.whenComplete((response, throwable) -> {
+                    if (throwable == null) {
+                        future.complete(response);
+                    } else {
+                        future.completeExceptionally(throwable);
+                    }
+                });
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static class Batch {
+        final Message message;
+        final ArrayList<Message> singles = new ArrayList<>();
+        final ArrayList<CompletableFuture<Response>> futures = new ArrayList<>();
+        ScheduledFuture<?> timer = null;
+
+        Batch(Message message) {
+            this.message = message;
+        }
+    }
+}
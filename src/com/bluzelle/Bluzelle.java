@@ -2,6 +2,9 @@
 // usage:
 //    connect
 //       Bluzelle bluzelle = Bluzelle.connect(mnemonicString, endpointString, uuidString, chainIdString);
+//       Bluzelle bluzelle = Bluzelle.connect(mnemonicString, endpointString, uuidString, chainIdString, transport);
+//       Bluzelle bluzelle = Bluzelle.connect(mnemonicString, endpointsList, uuidString, chainIdString);
+//       Bluzelle bluzelle = Bluzelle.connect(mnemonicString, endpointsList, uuidString, chainIdString, transport);
 //    data
 //       String version = bluzelle.version();
 //       JsonObject account = bluzelle.account();
@@ -17,6 +20,8 @@
 //       ArrayList<String> keys = bluzelle.crypto();
 //       ArrayList<String> keys = bluzelle.txKeys(gasInfo);
 //       HashMap<String, String> keyValues = bluzelle.keyValues();
+//       bluzelle.keys(keyConsumer);
+//       bluzelle.keyValues((keyString, valueString) -> {});
 //       HashMap<String, String> keyValues = bluzelle.txKeyValues(gasInfo);
 //       int leaseSeconds = bluzelle.getLease(keyString);
 //       int leaseSeconds = bluzelle.txGetLease(keyString, gasInfo);
@@ -31,32 +36,68 @@
 //    delete
 //       bluzelle.delete(keyString, gasInfo);
 //       bluzelle.deleteAll(gasInfo);
+//    batch
+//       BatchingWriter writer = bluzelle.batchingWriter(maxDelayMillis, maxMessages);
+//       CompletableFuture<Response> created = writer.create(keyString, valueString, gasInfo, leaseInfo);
+//       MultiResponse response = bluzelle.messageSplitter(maxGasPerTx, maxBytesPerTx).multiUpdate(map, gasInfo).send();
+//    gas
+//       bluzelle.enableGasEstimation(safetyMultiplier);
+//       bluzelle.enableGasEstimation(gasEstimator);
+//    cache
+//       bluzelle.enableCache(maxBytes, maxAgeMillis);
+//       bluzelle.disableCache();
+//    async
+//       AsyncBluzelle async = bluzelle.async();
+//       CompletableFuture<String> value = async.read(keyString, isProve);
 package com.bluzelle;
 
 import com.bluzelle.crypto.HdKeyPair;
 import com.bluzelle.crypto.Mnemonic;
 import com.bluzelle.json.JsonArray;
 import com.bluzelle.json.JsonObject;
+import com.bluzelle.json.JsonReader;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 import static com.bluzelle.LeaseInfo.blockTimeSeconds;
 import static com.bluzelle.Utils.*;
 
 public class Bluzelle {
     public final String address;
-    public final String endpoint;
+    public final String endpoint; // primary
     public final String chainId;
     public final String uuid;
+    final Transport transport;
+    final Router router;
+    final AccountManager accountManager = new AccountManager(this);
+    final TxPoller txPoller = new TxPoller(this);
     private final HdKeyPair keyPair;
-
-    private Bluzelle(HdKeyPair keyPair, String address, String endpoint, String chainId, String uuid) {
+    volatile ReadCache cache = null;
+    volatile GasEstimator gasEstimator = null;
+
+    private Bluzelle(
+            HdKeyPair keyPair,
+            String address,
+            List<String> endpoints,
+            String chainId,
+            String uuid,
+            Transport transport
+    ) {
         this.keyPair = keyPair;
         this.address = address;
-        this.endpoint = endpoint;
+        this.endpoint = endpoints.get(0);
         this.chainId = chainId;
         this.uuid = uuid;
+        this.transport = transport;
+        router = new Router(endpoints);
     }
 
     /**
@@ -74,19 +115,94 @@ public class Bluzelle {
      * @throws ConnectionException  if can not connect to the node
      */
     public static Bluzelle connect(String mnemonic, String endpoint, String uuid, String chainId) {
+        return connect(mnemonic, endpoint, uuid, chainId, pool);
+    }
+
+    /**
+     * creates and configures connection with the custom transport
+     *
+     * @param mnemonic  mnemonic of the private key for account
+     * @param endpoint  hostname and port of rest server
+     *                  if null or empty uses default "http://localhost:1317"
+     * @param uuid      uuid
+     *                  if null or empty uses uuid the same as address
+     * @param chainId   chain id of account
+     *                  if null or empty uses default "bluzelle"
+     * @param transport transport for all requests of this client
+     * @return instance of Bluzelle
+     * @throws NullPointerException if mnemonic == null or transport == null
+     */
+    public static Bluzelle connect(String mnemonic, String endpoint, String uuid, String chainId, Transport transport) {
+        return connect(mnemonic, Collections.singletonList(endpoint), uuid, chainId, transport);
+    }
+
+    /**
+     * creates and configures client of the several rest servers,
+     * reads go to the fastest healthy server and are retried on the others, failing servers are ejected for a while
+     *
+     * @param mnemonic  mnemonic of the private key for account
+     * @param endpoints hostnames and ports of rest servers, the first one is the primary
+     *                  if null or empty uses default "http://localhost:1317"
+     * @param uuid      uuid
+     *                  if null or empty uses uuid the same as address
+     * @param chainId   chain id of account
+     *                  if null or empty uses default "bluzelle"
+     * @return instance of Bluzelle
+     * @throws NullPointerException     if mnemonic == null
+     * @throws IllegalArgumentException if endpoints contains more than one element and any of them is null or empty
+     */
+    public static Bluzelle connect(String mnemonic, List<String> endpoints, String uuid, String chainId) {
+        return connect(mnemonic, endpoints, uuid, chainId, pool);
+    }
+
+    /**
+     * creates and configures client of the several rest servers with the custom transport
+     *
+     * @param mnemonic  mnemonic of the private key for account
+     * @param endpoints hostnames and ports of rest servers, the first one is the primary
+     *                  if null or empty uses default "http://localhost:1317"
+     * @param uuid      uuid
+     *                  if null or empty uses uuid the same as address
+     * @param chainId   chain id of account
+     *                  if null or empty uses default "bluzelle"
+     * @param transport transport for all requests of this client
+     * @return instance of Bluzelle
+     * @throws NullPointerException     if mnemonic == null or transport == null
+     * @throws IllegalArgumentException if endpoints contains more than one element and any of them is null or empty
+     */
+    public static Bluzelle connect(
+            String mnemonic,
+            List<String> endpoints,
+            String uuid,
+            String chainId,
+            Transport transport
+    ) {
+        if (transport == null) {
+            throw new NullPointerException("null transport");
+        }
+        if (endpoints == null || endpoints.isEmpty()) {
+            endpoints = Collections.singletonList(null);
+        }
+        ArrayList<String> list = new ArrayList<>();
+        for (String endpoint : endpoints) {
+            if (endpoint == null || endpoint.isEmpty()) {
+                if (endpoints.size() > 1) {
+                    throw new IllegalArgumentException("empty endpoint");
+                }
+                endpoint = "http://localhost:1317";
+            }
+            list.add(endpoint);
+        }
         HdKeyPair master = HdKeyPair.createMaster(Mnemonic.createSeed(mnemonic, "mnemonic"));
         HdKeyPair keyPair = master.generateChild("44'/118'/0'/0/0");
         String address = getAddress(keyPair);
-        if (endpoint == null || endpoint.isEmpty()) {
-            endpoint = "http://localhost:1317";
-        }
         if (uuid == null || uuid.isEmpty()) {
             uuid = address;
         }
         if (chainId == null || chainId.isEmpty()) {
             chainId = "bluzelle";
         }
-        return new Bluzelle(keyPair, address, endpoint, chainId, uuid);
+        return new Bluzelle(keyPair, address, list, chainId, uuid, transport);
     }
 
     public static String createMnemonic(int length) {
@@ -102,8 +218,7 @@ public class Bluzelle {
      * @throws ConnectionException if can not connect to the node
      */
     public String version() {
-        String response = get(endpoint, "/node_info");
-        return JsonObject.parse(response).getObject("application_version").getString("version");
+        return run(versionQuery());
     }
 
     /**
@@ -111,8 +226,7 @@ public class Bluzelle {
      * @throws ConnectionException if can not connect to the node
      */
     public AccountData account() {
-        String response = get(endpoint, "/auth/accounts/" + address);
-        return AccountData.parse(JsonObject.parse(response).getObject("result").getObject("value"));
+        return run(accountQuery());
     }
 
     public void transferTokensTo(String address, int amount, GasInfo gasInfo) {
@@ -147,13 +261,7 @@ public class Bluzelle {
      * @throws ConnectionException      if can not connect to the node
      */
     public String read(String key, boolean prove) {
-        if (key.isEmpty()) {
-            throw new IllegalArgumentException("Key cannot be empty");
-        }
-
-        String path = "/crud/" + (prove ? "pread/" : "read/") + uuid + "/" + urlEncode(key);
-        String response = get(endpoint, path, key);
-        return JsonObject.parse(response).getObject("result").getString("value");
+        return run(readQuery(key, prove));
     }
 
     /**
@@ -182,12 +290,7 @@ public class Bluzelle {
      * @throws ConnectionException      if can not connect to the node
      */
     public boolean has(String key) {
-        if (key.isEmpty()) {
-            throw new IllegalArgumentException("Key cannot be empty");
-        }
-
-        String response = get(endpoint, "/crud/has/" + uuid + "/" + urlEncode(key));
-        return JsonObject.parse(response).getObject("result").getBoolean("has");
+        return run(hasQuery(key));
     }
 
     /**
@@ -210,8 +313,7 @@ public class Bluzelle {
      * @throws ConnectionException if can not connect to the node
      */
     public int count() {
-        String response = get(endpoint, "/crud/count/" + uuid);
-        return Integer.parseInt(JsonObject.parse(response).getObject("result").getString("count"));
+        return run(countQuery());
     }
 
     /**
@@ -232,18 +334,7 @@ public class Bluzelle {
      * @throws ConnectionException if can not connect to the node
      */
     public ArrayList<String> keys() {
-        String response = get(endpoint, "/crud/keys/" + uuid);
-        JsonArray keys = JsonObject.parse(response).getObject("result").getArray("keys");
-
-        ArrayList<String> list = new ArrayList<>();
-        if (keys == null) {
-            return list;
-        }
-        int length = keys.length();
-        for (int i = 0; i < length; i++) {
-            list.add(keys.getString(i));
-        }
-        return list;
+        return run(keysQuery());
     }
 
     /**
@@ -266,20 +357,57 @@ public class Bluzelle {
      * @throws ConnectionException if can not connect to the node
      */
     public HashMap<String, String> keyValues() {
-        String response = get(endpoint, "/crud/keyvalues/" + uuid);
-        JsonArray keyValues = JsonObject.parse(response).getObject("result").getArray("keyvalues");
+        return run(keyValuesQuery());
+    }
 
-        HashMap<String, String> map = new HashMap<>();
-        if (keyValues == null) {
-            return map;
+    /**
+     * stream all keys, the response is parsed while it is received and the keys are not collected,
+     * the consumer runs while the connection is held, it must not call this client, it could wait for the connection
+     *
+     * @param consumer receives every key in order of the response
+     * @throws NullPointerException     if consumer == null
+     * @throws ConnectionException      if can not connect to the node
+     * @throws IllegalArgumentException if the response is incorrect
+     */
+    public void keys(Consumer<String> consumer) {
+        if (consumer == null) {
+            throw new NullPointerException("null consumer");
         }
-        JsonObject object;
-        int length = keyValues.length();
-        for (int i = 0; i < length; i++) {
-            object = keyValues.getObject(i);
-            map.put(object.getString("key"), object.getString("value"));
+        streamResultArray("/crud/keys/" + uuid, "keys", json -> consumer.accept(json.nextString()));
+    }
+
+    /**
+     * stream all keys and values, the response is parsed while it is received and the pairs are not collected,
+     * the consumer runs while the connection is held, it must not call this client, it could wait for the connection
+     *
+     * @param consumer receives every key and value in order of the response
+     * @throws NullPointerException     if consumer == null
+     * @throws ConnectionException      if can not connect to the node
+     * @throws IllegalArgumentException if the response is incorrect
+     */
+    public void keyValues(BiConsumer<String, String> consumer) {
+        if (consumer == null) {
+            throw new NullPointerException("null consumer");
         }
-        return map;
+        streamResultArray("/crud/keyvalues/" + uuid, "keyvalues", json -> {
+            String key = null;
+            String value = null;
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "key":
+                        key = json.nextString();
+                        break;
+                    case "value":
+                        value = json.nextString();
+                        break;
+                    default:
+                        json.skipValue();
+                }
+            }
+            json.endObject();
+            consumer.accept(key, value);
+        });
     }
 
     /**
@@ -306,12 +434,7 @@ public class Bluzelle {
      * @throws ConnectionException      if can not connect to the node
      */
     public int getLease(String key) {
-        if (key.isEmpty()) {
-            throw new IllegalArgumentException("Key cannot be empty");
-        }
-
-        String response = get(endpoint, "/crud/getlease/" + uuid + "/" + urlEncode(key), key);
-        return Integer.parseInt(JsonObject.parse(response).getObject("result").getString("lease")) * blockTimeSeconds;
+        return run(getLeaseQuery(key));
     }
 
     /**
@@ -338,23 +461,7 @@ public class Bluzelle {
      * @throws ConnectionException      if can not connect to the node
      */
     public HashMap<String, Integer> getNShortestLeases(int n) {
-        if (n < 0) {
-            throw new IllegalArgumentException("Invalid value specified");
-        }
-
-        String response = get(endpoint, "/crud/getnshortestleases/" + uuid + "/" + n);
-        JsonArray keyLeases = JsonObject.parse(response).getObject("result").getArray("keyleases");
-
-        HashMap<String, Integer> map = new HashMap<>();
-        if (keyLeases == null) {
-            return map;
-        }
-        int length = keyLeases.length();
-        for (int i = 0; i < length; i++) {
-            JsonObject object = keyLeases.getObject(i);
-            map.put(object.getString("key"), Integer.parseInt(object.getString("lease")) * blockTimeSeconds);
-        }
-        return map;
+        return run(getNShortestLeasesQuery(n));
     }
 
     /**
@@ -471,7 +578,315 @@ public class Bluzelle {
         createMessage().deleteAll(gasInfo).send();
     }
 
+    /**
+     * @return non-blocking view of this client running on the default daemon thread pool
+     */
+    public AsyncBluzelle async() {
+        return new AsyncBluzelle(this, defaultExecutor());
+    }
+
+    /**
+     * @param executor executor to run the calls
+     * @return non-blocking view of this client running on the executor
+     * @throws NullPointerException if executor == null
+     */
+    public AsyncBluzelle async(Executor executor) {
+        if (executor == null) {
+            throw new NullPointerException("null executor");
+        }
+        return new AsyncBluzelle(this, executor);
+    }
+
+    /**
+     * caches the results of read without proof, has and getLease of this client,
+     * transactions of this client invalidate the changed keys,
+     * changes made by other clients are visible after maxAgeMillis or at the end of the known lease
+     *
+     * @param maxBytes     maximum approximate size of the cache in bytes
+     * @param maxAgeMillis maximum age of the cached result
+     * @throws IllegalArgumentException if maxBytes < 1 or maxAgeMillis < 1
+     */
+    public void enableCache(long maxBytes, long maxAgeMillis) {
+        cache = new ReadCache(maxBytes, maxAgeMillis);
+    }
+
+    /**
+     * removes the cache, all reads go to the server
+     */
+    public void disableCache() {
+        cache = null;
+    }
+
+    /**
+     * msgs with maxGas == 0 get the gas limit estimated by the simulation on the node
+     * instead of the default 200000, the default is used if the simulation fails
+     *
+     * @param safetyMultiplier estimate is multiplied by this
+     * @throws IllegalArgumentException if safetyMultiplier < 1
+     */
+    public void enableGasEstimation(double safetyMultiplier) {
+        gasEstimator = new GasEstimator(this::simulate, safetyMultiplier);
+    }
+
+    /**
+     * msgs with maxGas == 0 get the gas limit estimated by the estimator instead of the default 200000,
+     * the default is used if the estimator throws ConnectionException or ServerException
+     *
+     * @param estimator estimator of the gas or null to use the default gas
+     */
+    public void enableGasEstimation(GasEstimator estimator) {
+        gasEstimator = estimator;
+    }
+
+    /**
+     * @param maxDelayMillis maximum time to collect writes into one transaction
+     * @param maxMessages    maximum number of writes in one transaction
+     * @return writer collecting the writes of many threads into one transaction
+     * @throws IllegalArgumentException if maxDelayMillis < 0 or maxMessages < 1
+     */
+    public BatchingWriter batchingWriter(long maxDelayMillis, int maxMessages) {
+        return new BatchingWriter(this, maxDelayMillis, maxMessages);
+    }
+
+    /**
+     * @param maxGasPerTx   maximum gas of the one transaction
+     * @param maxBytesPerTx maximum size of the one encoded transaction in bytes
+     * @return splitter of the large batch of writes into several transactions
+     * @throws IllegalArgumentException if maxGasPerTx < 1 or maxBytesPerTx is too small
+     */
+    public MessageSplitter messageSplitter(long maxGasPerTx, int maxBytesPerTx) {
+        return new MessageSplitter(this, maxGasPerTx, maxBytesPerTx);
+    }
+
     public Message createMessage() {
         return new Message(this, keyPair);
     }
-}
\ No newline at end of file
+
+    Query<String> versionQuery() {
+        return new Query<>("/node_info", null,
+                json -> json.getObject("application_version").getString("version"));
+    }
+
+    Query<AccountData> accountQuery() {
+        return new Query<>("/auth/accounts/" + address, null,
+                json -> AccountData.parse(json.getObject("result").getObject("value")));
+    }
+
+    Query<String> readQuery(String key, boolean prove) {
+        if (key.isEmpty()) {
+            throw new IllegalArgumentException("Key cannot be empty");
+        }
+
+        String path = "/crud/" + (prove ? "pread/" : "read/") + uuid + "/" + urlEncode(key);
+        return new Query<>(path, key, json -> json.getObject("result").getString("value"),
+                ReadCache.read, prove ? null : key);
+    }
+
+    Query<Boolean> hasQuery(String key) {
+        if (key.isEmpty()) {
+            throw new IllegalArgumentException("Key cannot be empty");
+        }
+
+        return new Query<>("/crud/has/" + uuid + "/" + urlEncode(key), null,
+                json -> json.getObject("result").getBoolean("has"), ReadCache.has, key);
+    }
+
+    Query<Integer> countQuery() {
+        return new Query<>("/crud/count/" + uuid, null,
+                json -> Integer.parseInt(json.getObject("result").getString("count")));
+    }
+
+    Query<ArrayList<String>> keysQuery() {
+        return new Query<>("/crud/keys/" + uuid, null, json -> {
+            JsonArray keys = json.getObject("result").getArray("keys");
+
+            ArrayList<String> list = new ArrayList<>();
+            if (keys == null) {
+                return list;
+            }
+            int length = keys.length();
+            for (int i = 0; i < length; i++) {
+                list.add(keys.getString(i));
+            }
+            return list;
+        });
+    }
+
+    Query<HashMap<String, String>> keyValuesQuery() {
+        return new Query<>("/crud/keyvalues/" + uuid, null, json -> {
+            JsonArray keyValues = json.getObject("result").getArray("keyvalues");
+
+            HashMap<String, String> map = new HashMap<>();
+            if (keyValues == null) {
+                return map;
+            }
+            JsonObject object;
+            int length = keyValues.length();
+            for (int i = 0; i < length; i++) {
+                object = keyValues.getObject(i);
+                map.put(object.getString("key"), object.getString("value"));
+            }
+            return map;
+        });
+    }
+
+    Query<Integer> getLeaseQuery(String key) {
+        if (key.isEmpty()) {
+            throw new IllegalArgumentException("Key cannot be empty");
+        }
+
+        return new Query<>("/crud/getlease/" + uuid + "/" + urlEncode(key), key,
+                json -> Integer.parseInt(json.getObject("result").getString("lease")) * blockTimeSeconds,
+                ReadCache.lease, key);
+    }
+
+    Query<HashMap<String, Integer>> getNShortestLeasesQuery(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Invalid value specified");
+        }
+
+        return new Query<>("/crud/getnshortestleases/" + uuid + "/" + n, null, json -> {
+            JsonArray keyLeases = json.getObject("result").getArray("keyleases");
+
+            HashMap<String, Integer> map = new HashMap<>();
+            if (keyLeases == null) {
+                return map;
+            }
+            int length = keyLeases.length();
+            for (int i = 0; i < length; i++) {
+                JsonObject object = keyLeases.getObject(i);
+                map.put(object.getString("key"), Integer.parseInt(object.getString("lease")) * blockTimeSeconds);
+            }
+            return map;
+        });
+    }
+
+    // performs get request on the best endpoint, blocks until the response
+    String fetch(String path, String key) {
+        return router.get(transport, path, key);
+    }
+
+    // streams the elements of the array result.field of the response to the reader, other values are skipped,
+    // the reader runs while the pool permit and the socket are held
+    private void streamResultArray(String path, String field, ElementReader reader) {
+        router.get(transport, path, null, body -> {
+            JsonReader json = new JsonReader(body);
+            json.beginObject();
+            while (json.hasNext()) {
+                if (!json.nextName().equals("result") || json.peek() != JsonReader.Token.BEGIN_OBJECT) {
+                    json.skipValue();
+                    continue;
+                }
+                json.beginObject();
+                while (json.hasNext()) {
+                    if (!json.nextName().equals(field) || json.peek() != JsonReader.Token.BEGIN_ARRAY) {
+                        json.skipValue();
+                        continue;
+                    }
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        reader.read(json);
+                    }
+                    json.endArray();
+                }
+                json.endObject();
+            }
+            json.endObject();
+            return null;
+        });
+    }
+
+    // performs get request on the best endpoint without blocking
+    CompletableFuture<String> fetchAsync(String path, String key) {
+        return router.getAsync(transport, path, key);
+    }
+
+    // posts the transaction to the best endpoint, blocks until the response
+    String broadcast(Object tx) {
+        return router.post(transport, tx);
+    }
+
+    // gas limit for the msg without maxGas
+    int defaultGas(String type, JsonObject value) {
+        GasEstimator estimator = gasEstimator;
+        if (estimator == null) {
+            return 200000;
+        }
+        try {
+            return estimator.estimate(type, value);
+        } catch (ConnectionException | ServerException | IllegalArgumentException e) {
+            // the estimate is optional, the node could be unavailable or return the incorrect response
+            return 200000;
+        }
+    }
+
+    // simulates the msg on the node, returns gas used, the error does not eject the node
+    private int simulate(String type, JsonObject value) {
+        JsonObject request = JsonObject.parse(value.toString());
+        JsonObject baseReq = new JsonObject();
+        baseReq.put("from", address);
+        baseReq.put("chain_id", chainId);
+        baseReq.put("simulate", true);
+        request.put("BaseReq", baseReq);
+        // response example: {"gas_estimate":"51234"}
+        JsonObject response = JsonObject.parse(router.postUntracked(transport, "/" + type, request));
+        String gas = response.getString("gas_estimate");
+        if (gas == null) {
+            throw new ServerException("no gas estimate");
+        }
+        return Integer.parseInt(gas);
+    }
+
+    // removes the cached results of the keys changed by the transaction
+    void invalidate(Iterable<String> keys, boolean all) {
+        ReadCache cache = this.cache;
+        if (cache == null) {
+            return;
+        }
+        if (all) {
+            cache.clear();
+            return;
+        }
+        for (String key : keys) {
+            cache.invalidate(key);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> T run(Query<T> query) {
+        ReadCache cache = this.cache;
+        if (cache == null || query.cacheKey == null) {
+            return query.parse(fetch(query.path, query.key));
+        }
+        long generation = cache.generation();
+        Object cached = cache.get(query.cacheKind, query.cacheKey);
+        if (cached != null) {
+            return (T) cached;
+        }
+        T result = query.parse(fetch(query.path, query.key));
+        cache.put(query.cacheKind, query.cacheKey, result, generation);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> CompletableFuture<T> runAsync(Query<T> query, Executor executor) {
+        ReadCache cache = this.cache;
+        if (cache == null || query.cacheKey == null) {
+            return fetchAsync(query.path, query.key).thenApplyAsync(query::parse, executor);
+        }
+        long generation = cache.generation();
+        Object cached = cache.get(query.cacheKind, query.cacheKey);
+        if (cached != null) {
+            return CompletableFuture.completedFuture((T) cached);
+        }
+        return fetchAsync(query.path, query.key).thenApplyAsync(response -> {
+            T result = query.parse(response);
+            cache.put(query.cacheKind, query.cacheKey, result, generation);
+            return result;
+        }, executor);
+    }
+
+    private interface ElementReader {
+        void read(JsonReader json) throws IOException;
+    }
+}
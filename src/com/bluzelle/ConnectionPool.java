@@ -0,0 +1,633 @@
+// bounded pool of the persistent http/1.1 connections, one pool of sockets per scheme://host:port
+// usage:
+//    ConnectionPool pool = new ConnectionPool(maxConnectionsPerHost, idleTimeoutMillis);
+//    String response = pool.get(urlString);
+//    String response = pool.post(urlString, bodyString);
+//    T result = pool.get(urlString, inputStream -> result);
+//    CompletableFuture<String> response = pool.getAsync(urlString);
+//    int idle = pool.idleConnections();
+//    pool.close();
+// urls routed through a proxy by the jvm settings (http.proxyHost, ProxySelector) use HttpURLConnection,
+// the get request is sent again on the new connection if the reused connection has given no response,
+// the post request only if the write has failed, the server could have received it, the idle connection is checked
+// before the post instead
+package com.bluzelle;
+
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+@SuppressWarnings("WeakerAccess")
+public class ConnectionPool implements Transport {
+    static final int connectTimeoutMillis = 5000;
+    private final int maxConnectionsPerHost;
+    private final long idleTimeoutMillis;
+    private final HashMap<String, Host> hosts = new HashMap<>(); // <scheme://host:port, host>
+    private final UrlConnectionTransport proxied = new UrlConnectionTransport();
+    private boolean closed = false;
+
+    /**
+     * @param maxConnectionsPerHost maximum number of the simultaneously opened connections to the one host
+     * @param idleTimeoutMillis     idle connections older than this will be closed
+     * @throws IllegalArgumentException if maxConnectionsPerHost < 1 or idleTimeoutMillis < 0
+     */
+    public ConnectionPool(int maxConnectionsPerHost, long idleTimeoutMillis) {
+        if (maxConnectionsPerHost < 1) {
+            throw new IllegalArgumentException("maxConnectionsPerHost < 1");
+        }
+        if (idleTimeoutMillis < 0) {
+            throw new IllegalArgumentException("negative idleTimeoutMillis");
+        }
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * perform get request using a pooled connection
+     *
+     * @param url full url
+     * @return response String
+     * @throws NullPointerException  if url == null
+     * @throws FileNotFoundException if server returns 404
+     * @throws IOException           if can not connect or server returns error
+     */
+    @Override
+    public String get(String url) throws IOException {
+        URL parsed = new URL(url);
+        if (isProxied(parsed)) {
+            checkOpen();
+            return proxied.get(url);
+        }
+        return request("GET", parsed, null, Connection::readString);
+    }
+
+    /**
+     * perform get request using a pooled connection, the reader reads the body from the socket,
+     * the rest of the body is skipped after the reader returns
+     *
+     * @param url    full url
+     * @param reader reads the body of the successful response
+     * @return result of the reader
+     * @throws NullPointerException  if url == null or reader == null
+     * @throws FileNotFoundException if server returns 404
+     * @throws IOException           if can not connect, server returns error or reader throws it
+     */
+    @Override
+    public <T> T get(String url, BodyReader<T> reader) throws IOException {
+        if (reader == null) {
+            throw new NullPointerException("null reader");
+        }
+        URL parsed = new URL(url);
+        if (isProxied(parsed)) {
+            checkOpen();
+            return proxied.get(url, reader);
+        }
+        return request("GET", parsed, null, reader);
+    }
+
+    /**
+     * perform post request using a pooled connection
+     *
+     * @param url  full url
+     * @param body json String to post
+     * @return response String
+     * @throws NullPointerException if url == null or body == null
+     * @throws IOException          if can not connect or server returns error
+     */
+    @Override
+    public String post(String url, String body) throws IOException {
+        URL parsed = new URL(url);
+        if (isProxied(parsed)) {
+            checkOpen();
+            return proxied.post(url, body);
+        }
+        return request("POST", parsed, body.getBytes("utf-8"), Connection::readString);
+    }
+
+    /**
+     * perform get request on the default executor, blocks one of its threads
+     */
+    @Override
+    public CompletableFuture<String> getAsync(String url) {
+        if (url == null) {
+            throw new NullPointerException("null url");
+        }
+        return Utils.supplyAsync(() -> get(url));
+    }
+
+    /**
+     * perform post request on the default executor, blocks one of its threads
+     */
+    @Override
+    public CompletableFuture<String> postAsync(String url, String body) {
+        if (url == null || body == null) {
+            throw new NullPointerException("null url or body");
+        }
+        return Utils.supplyAsync(() -> post(url, body));
+    }
+
+    /**
+     * @return number of the opened idle connections to all hosts
+     */
+    public synchronized int idleConnections() {
+        int count = 0;
+        for (Host host : hosts.values()) {
+            count += host.idle.size();
+        }
+        return count;
+    }
+
+    /**
+     * closes all idle connections, busy connections will be closed after release,
+     * the next requests throw IOException
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (Host host : hosts.values()) {
+            for (Connection connection : host.idle) {
+                connection.close();
+            }
+            host.idle.clear();
+        }
+    }
+
+    // true if the jvm proxy settings send the url through the proxy
+    private static boolean isProxied(URL url) {
+        ProxySelector selector = ProxySelector.getDefault();
+        if (selector == null) {
+            return false;
+        }
+        List<Proxy> proxies;
+        try {
+            proxies = selector.select(url.toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return false;
+        }
+        return proxies != null && !proxies.isEmpty() && proxies.get(0).type() != Proxy.Type.DIRECT;
+    }
+
+    private <T> T request(String method, URL url, byte[] body, BodyReader<T> reader) throws IOException {
+        String protocol = url.getProtocol();
+        if (!protocol.equals("http") && !protocol.equals("https")) {
+            throw new IOException("unsupported protocol " + protocol);
+        }
+        Host host = getHost(url);
+        try {
+            // waits for a busy connection without the timeout, this is not a failure of the host
+            host.permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted");
+        }
+        try {
+            Connection connection = takeIdle(host);
+            if (connection != null && body != null && connection.isClosedByPeer()) {
+                // the post is not sent again after the write, checks the connection before
+                connection.close();
+                connection = null;
+            }
+            if (connection != null) {
+                try {
+                    return exchange(host, connection, method, url, body, reader);
+                } catch (StaleConnectionException e) {
+                    // server has closed the idle connection before the request, open new one
+                    connection.close();
+                }
+            }
+            return exchange(host, open(url, host), method, url, body, reader);
+        } finally {
+            host.permits.release();
+        }
+    }
+
+    private <T> T exchange(
+            Host host,
+            Connection connection,
+            String method,
+            URL url,
+            byte[] body,
+            BodyReader<T> reader
+    ) throws IOException {
+        Response response;
+        T result = null;
+        try {
+            connection.write(method, url, body);
+            response = connection.read();
+            if (response.code < 400) {
+                result = reader.read(response.body);
+            }
+            if (response.keepAlive) {
+                // the rest of the body, the connection is reused after the whole response
+                response.body.skip(Long.MAX_VALUE);
+            }
+        } catch (StaleConnectionException e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+        if (response.keepAlive) {
+            release(host, connection);
+        } else {
+            connection.close();
+        }
+        if (response.code == 404 || response.code == 410) {
+            throw new FileNotFoundException(url.toString());
+        }
+        if (response.code >= 400) {
+            throw new HttpStatusException(response.code, url.toString());
+        }
+        return result;
+    }
+
+    private synchronized Host getHost(URL url) throws IOException {
+        checkOpen();
+        int port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+        String key = url.getProtocol() + "://" + url.getHost() + ":" + port;
+        Host host = hosts.get(key);
+        if (host == null) {
+            host = new Host(key, url.getHost(), port, url.getProtocol().equals("https"), maxConnectionsPerHost);
+            hosts.put(key, host);
+        }
+        return host;
+    }
+
+    // returns the most recently used alive connection or null
+    private synchronized Connection takeIdle(Host host) throws IOException {
+        checkOpen();
+        evictIdle(host, System.currentTimeMillis());
+        return host.idle.pollLast();
+    }
+
+    private synchronized void release(Host host, Connection connection) {
+        long now = System.currentTimeMillis();
+        if (closed) {
+            connection.close();
+            return;
+        }
+        connection.lastUsed = now;
+        host.idle.addLast(connection);
+        evictIdle(host, now);
+    }
+
+    private synchronized void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("closed pool");
+        }
+    }
+
+    private void evictIdle(Host host, long now) {
+        Iterator<Connection> iterator = host.idle.iterator();
+        while (iterator.hasNext()) {
+            Connection connection = iterator.next();
+            if (now - connection.lastUsed < idleTimeoutMillis) {
+                // the rest are newer
+                return;
+            }
+            iterator.remove();
+            connection.close();
+        }
+    }
+
+    private Connection open(URL url, Host host) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setKeepAlive(true);
+            socket.connect(new InetSocketAddress(host.hostName, host.port), connectTimeoutMillis);
+            if (host.tls) {
+                SSLSocket sslSocket = (SSLSocket) ((SSLSocketFactory) SSLSocketFactory.getDefault())
+                        .createSocket(socket, host.hostName, host.port, true);
+                SSLParameters parameters = sslSocket.getSSLParameters();
+                parameters.setEndpointIdentificationAlgorithm("HTTPS");
+                sslSocket.setSSLParameters(parameters);
+                sslSocket.startHandshake();
+                socket = sslSocket;
+            }
+            return new Connection(socket, url.getHost() + (url.getPort() == -1 ? "" : ":" + url.getPort()));
+        } catch (IOException e) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+            throw e;
+        }
+    }
+
+    private static class Host {
+        final String key;
+        final String hostName;
+        final int port;
+        final boolean tls;
+        final Semaphore permits;
+        final ArrayDeque<Connection> idle = new ArrayDeque<>(); // the oldest first
+
+        Host(String key, String hostName, int port, boolean tls, int maxConnections) {
+            this.key = key;
+            this.hostName = hostName;
+            this.port = port;
+            this.tls = tls;
+            permits = new Semaphore(maxConnections, true);
+        }
+    }
+
+    private static class Response {
+        final int code;
+        final boolean keepAlive;
+        final InputStream body; // bounded by the response
+
+        Response(int code, boolean keepAlive, InputStream body) {
+            this.code = code;
+            this.keepAlive = keepAlive;
+            this.body = body;
+        }
+    }
+
+    // thrown if the reused connection was closed by server before the request was written,
+    // or before any response byte of the get request
+    private static class StaleConnectionException extends IOException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    private static class Connection {
+        private final Socket socket;
+        private final String hostHeader;
+        private final InputStream input;
+        private final OutputStream output;
+        private boolean reused = false;
+        private boolean idempotent = false; // current request can be sent again
+        private long lastUsed;
+
+        Connection(Socket socket, String hostHeader) throws IOException {
+            this.socket = socket;
+            this.hostHeader = hostHeader;
+            input = new BufferedInputStream(socket.getInputStream());
+            output = new BufferedOutputStream(socket.getOutputStream());
+        }
+
+        void write(String method, URL url, byte[] body) throws IOException {
+            String path = url.getFile().isEmpty() ? "/" : url.getFile();
+            StringBuilder head = new StringBuilder();
+            head.append(method).append(' ').append(path).append(" HTTP/1.1\r\n");
+            head.append("Host: ").append(hostHeader).append("\r\n");
+            head.append("Connection: keep-alive\r\n");
+            head.append("Accept: application/json\r\n");
+            if (body != null) {
+                head.append("Content-Type: application/json\r\n");
+                head.append("Content-Length: ").append(body.length).append("\r\n");
+            }
+            head.append("\r\n");
+            idempotent = body == null;
+            try {
+                output.write(head.toString().getBytes("utf-8"));
+                if (body != null) {
+                    output.write(body);
+                }
+                output.flush();
+            } catch (IOException e) {
+                if (reused) {
+                    throw new StaleConnectionException();
+                }
+                throw e;
+            }
+        }
+
+        // true if the idle connection was closed by the server or has the unexpected bytes
+        boolean isClosedByPeer() {
+            try {
+                if (input.available() > 0) {
+                    return true;
+                }
+                int timeout = socket.getSoTimeout();
+                socket.setSoTimeout(1);
+                try {
+                    // end of the stream or the byte without the request
+                    input.read();
+                    return true;
+                } catch (SocketTimeoutException e) {
+                    return false;
+                } finally {
+                    socket.setSoTimeout(timeout);
+                }
+            } catch (IOException e) {
+                return true;
+            }
+        }
+
+        Response read() throws IOException {
+            String statusLine;
+            try {
+                statusLine = readLine();
+            } catch (IOException e) {
+                if (reused && idempotent) {
+                    throw new StaleConnectionException();
+                }
+                throw e;
+            }
+            if (statusLine == null) {
+                if (reused && idempotent) {
+                    throw new StaleConnectionException();
+                }
+                throw new EOFException("empty response");
+            }
+            reused = true;
+            // HTTP/1.1 200 OK
+            int start = statusLine.indexOf(' ');
+            if (!statusLine.startsWith("HTTP/") || start < 0 || statusLine.length() < start + 4) {
+                throw new IOException("incorrect status line " + statusLine);
+            }
+            int code;
+            try {
+                code = Integer.parseInt(statusLine.substring(start + 1, start + 4));
+            } catch (NumberFormatException e) {
+                throw new IOException("incorrect status line " + statusLine);
+            }
+            boolean keepAlive = statusLine.startsWith("HTTP/1.1");
+            long contentLength = -1;
+            boolean chunked = false;
+            String line;
+            while ((line = readLine()) != null && !line.isEmpty()) {
+                int colon = line.indexOf(':');
+                if (colon <= 0) {
+                    continue;
+                }
+                String name = line.substring(0, colon).trim().toLowerCase();
+                String value = line.substring(colon + 1).trim().toLowerCase();
+                switch (name) {
+                    case "content-length":
+                        try {
+                            contentLength = Long.parseLong(value);
+                        } catch (NumberFormatException e) {
+                            throw new IOException("incorrect content-length " + value);
+                        }
+                        break;
+                    case "transfer-encoding":
+                        chunked = value.contains("chunked");
+                        break;
+                    case "connection":
+                        if (value.contains("close")) {
+                            keepAlive = false;
+                        } else if (value.contains("keep-alive")) {
+                            keepAlive = true;
+                        }
+                        break;
+                }
+            }
+            if (line == null) {
+                throw new EOFException("unexpected end of headers");
+            }
+
+            if (chunked) {
+                return new Response(code, keepAlive, new Body(true, 0));
+            } else if (contentLength >= 0) {
+                return new Response(code, keepAlive, new Body(false, contentLength));
+            } else if (code != 204 && code != 304 && code >= 200) {
+                // no length, body ends with the connection
+                return new Response(code, false, new Body(false, Long.MAX_VALUE));
+            }
+            return new Response(code, keepAlive, new Body(false, 0));
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+
+        static String readString(InputStream body) throws IOException {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = body.read(buffer)) >= 0) {
+                output.write(buffer, 0, read);
+            }
+            return output.toString("utf-8");
+        }
+
+        // returns line without \r\n or null if the stream is closed before any byte
+        private String readLine() throws IOException {
+            StringBuilder builder = new StringBuilder();
+            while (true) {
+                int b = input.read();
+                if (b < 0) {
+                    return builder.length() == 0 ? null : builder.toString();
+                }
+                if (b == '\n') {
+                    int length = builder.length();
+                    if (length > 0 && builder.charAt(length - 1) == '\r') {
+                        builder.setLength(length - 1);
+                    }
+                    return builder.toString();
+                }
+                builder.append((char) b);
+            }
+        }
+
+        // body of one response, ends after content-length bytes, the last chunk or the end of the stream
+        private class Body extends InputStream {
+            private final boolean chunked;
+            private final byte[] one = new byte[1];
+            private long remaining; // in the body or the current chunk, Long.MAX_VALUE until the end of the stream
+            private boolean firstChunk = true;
+            private boolean finished;
+
+            Body(boolean chunked, long length) {
+                this.chunked = chunked;
+                remaining = length;
+                finished = !chunked && length == 0;
+            }
+
+            @Override
+            public int read() throws IOException {
+                return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) throws IOException {
+                if (length == 0) {
+                    return 0;
+                }
+                if (finished) {
+                    return -1;
+                }
+                if (chunked && remaining == 0) {
+                    nextChunk();
+                    if (finished) {
+                        return -1;
+                    }
+                }
+                int read = input.read(bytes, offset, (int) Math.min(length, remaining));
+                if (read < 0) {
+                    if (remaining == Long.MAX_VALUE) {
+                        finished = true;
+                        return -1;
+                    }
+                    throw new EOFException("unexpected end of body");
+                }
+                if (remaining != Long.MAX_VALUE) {
+                    remaining -= read;
+                    if (remaining == 0 && !chunked) {
+                        finished = true;
+                    }
+                }
+                return read;
+            }
+
+            @Override
+            public long skip(long length) throws IOException {
+                byte[] buffer = new byte[512];
+                long skipped = 0;
+                while (skipped < length) {
+                    int read = read(buffer, 0, (int) Math.min(buffer.length, length - skipped));
+                    if (read < 0) {
+                        break;
+                    }
+                    skipped += read;
+                }
+                return skipped;
+            }
+
+            private void nextChunk() throws IOException {
+                if (!firstChunk) {
+                    // \r\n after the data of the previous chunk
+                    readLine();
+                }
+                firstChunk = false;
+                String line = readLine();
+                if (line == null) {
+                    throw new EOFException("unexpected end of chunk");
+                }
+                int extension = line.indexOf(';');
+                String size = (extension < 0 ? line : line.substring(0, extension)).trim();
+                try {
+                    remaining = Long.parseLong(size, 16);
+                } catch (NumberFormatException e) {
+                    throw new IOException("incorrect chunk size " + size);
+                }
+                if (remaining == 0) {
+                    // skip trailers
+                    while ((line = readLine()) != null && !line.isEmpty()) {
+                        continue;
+                    }
+                    finished = true;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+// estimates gas of the msgs, simulates the msg and fits the linear model gas = a + b * bytes for every msg type
+// usage:
+//    GasEstimator estimator = new GasEstimator(simulator, safetyMultiplier);
+//    int gas = estimator.estimate(typeString, valueJsonObject);
+//    estimator.observe(typeString, valueJsonObject, gasUsed);
+// bytes is the size of the encoded msg value, the model is used after minSamples different sizes,
+// before that the size already sampled gets its largest sample, so the msgs of the fixed size are simulated once,
+// msg larger than twice the largest sample is simulated again, the estimate is multiplied by safetyMultiplier,
+// samples without the used gas are ignored
+package com.bluzelle;
+
+import com.bluzelle.json.JsonObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+@SuppressWarnings("WeakerAccess")
+public class GasEstimator {
+    static final int minSamples = 3;
+    private final Simulator simulator;
+    private final double safetyMultiplier;
+    private final HashMap<String, Model> models = new HashMap<>(); // <msg type, model>
+    private int simulations = 0;
+
+    /**
+     * @param simulator        returns gas used by the msg
+     * @param safetyMultiplier estimate is multiplied by this
+     * @throws NullPointerException     if simulator == null
+     * @throws IllegalArgumentException if safetyMultiplier < 1
+     */
+    public GasEstimator(Simulator simulator, double safetyMultiplier) {
+        if (simulator == null) {
+            throw new NullPointerException("null simulator");
+        }
+        if (!(safetyMultiplier >= 1)) {
+            throw new IllegalArgumentException("safetyMultiplier < 1");
+        }
+        this.simulator = simulator;
+        this.safetyMultiplier = safetyMultiplier;
+    }
+
+    /**
+     * @param type  msg type, for example "crud/create"
+     * @param value msg value
+     * @return gas limit of the msg
+     * @throws ConnectionException if simulator can not connect to the node
+     * @throws ServerException     if simulator returns error
+     */
+    public int estimate(String type, JsonObject value) {
+        int bytes = bytes(value);
+        Model model;
+        synchronized (this) {
+            model = models.get(type);
+            if (model != null && model.fits(bytes)) {
+                return (int) Math.ceil(model.gas(bytes) * safetyMultiplier);
+            }
+        }
+        int gas = simulator.simulate(type, value);
+        synchronized (this) {
+            simulations++;
+        }
+        observe(type, value, gas);
+        return (int) Math.ceil(gas * safetyMultiplier);
+    }
+
+    /**
+     * adds the sample to the model, for example gas used by the transaction with one msg,
+     * gasUsed <= 0 is ignored
+     *
+     * @param type    msg type
+     * @param value   msg value
+     * @param gasUsed gas used by the msg
+     */
+    public synchronized void observe(String type, JsonObject value, int gasUsed) {
+        if (gasUsed <= 0) {
+            return;
+        }
+        Model model = models.get(type);
+        if (model == null) {
+            model = new Model();
+            models.put(type, model);
+        }
+        model.add(bytes(value), gasUsed);
+    }
+
+    /**
+     * @return number of the calls of the simulator
+     */
+    public synchronized int simulations() {
+        return simulations;
+    }
+
+    private static int bytes(JsonObject value) {
+        return value.toString().getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    public interface Simulator {
+        /**
+         * @param type  msg type
+         * @param value msg value
+         * @return gas used by the msg
+         * @throws ConnectionException if can not connect to the node
+         * @throws ServerException     if server returns error
+         */
+        int simulate(String type, JsonObject value);
+    }
+
+    // least squares line over all samples
+    private static class Model {
+        private final HashMap<Integer, Integer> sizes = new HashMap<>(); // <bytes, largest gas>
+        private int count = 0;
+        private double sumX = 0;
+        private double sumY = 0;
+        private double sumXX = 0;
+        private double sumXY = 0;
+        private double maxY = 0;
+        private int maxX = 0;
+
+        void add(int bytes, int gas) {
+            sizes.merge(bytes, gas, Math::max);
+            count++;
+            sumX += bytes;
+            sumY += gas;
+            sumXX += (double) bytes * bytes;
+            sumXY += (double) bytes * gas;
+            maxX = Math.max(maxX, bytes);
+            maxY = Math.max(maxY, gas);
+        }
+
+        boolean fits(int bytes) {
+            return sizes.containsKey(bytes) || sizes.size() >= minSamples && bytes <= 2L * maxX;
+        }
+
+        double gas(int bytes) {
+            if (sizes.size() < minSamples) {
+                // the line is not defined yet, this size is sampled
+                return sizes.get(bytes);
+            }
+            double denominator = count * sumXX - sumX * sumX;
+            double slope = denominator == 0 ? 0 : (count * sumXY - sumX * sumY) / denominator;
+            double intercept = (sumY - slope * sumX) / count;
+            // negative slope is the noise, the larger msg can not be cheaper
+            if (slope < 0) {
+                return maxY;
+            }
+            return Math.max(1, intercept + slope * bytes);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.bluzelle;
+
+import java.io.IOException;
+
+// server has answered with the error status, the endpoint itself works
+public class HttpStatusException extends IOException {
+    private static final long serialVersionUID = 1L;
+    public final int code;
+
+    public HttpStatusException(int code, String url) {
+        super("Server returned HTTP response code: " + code + " for URL: " + url);
+        this.code = code;
+    }
+}
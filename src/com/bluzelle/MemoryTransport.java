@@ -0,0 +1,94 @@
+// in-memory transport, answers the requests with the handler without network, for tests and local stand-ins
+// usage:
+//    Transport transport = new MemoryTransport((method, url, body) -> responseString);
+//    int requests = transport.requests();
+// handler can throw FileNotFoundException for the missing keys or IOException for the connection errors
+package com.bluzelle;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@SuppressWarnings("WeakerAccess")
+public class MemoryTransport implements Transport {
+    private final Handler handler;
+    private final AtomicInteger requests = new AtomicInteger();
+
+    /**
+     * @param handler function answering the requests
+     * @throws NullPointerException if handler == null
+     */
+    public MemoryTransport(Handler handler) {
+        if (handler == null) {
+            throw new NullPointerException("null handler");
+        }
+        this.handler = handler;
+    }
+
+    /**
+     * @return number of the requests handled
+     */
+    public int requests() {
+        return requests.get();
+    }
+
+    @Override
+    public String get(String url) throws IOException {
+        if (url == null) {
+            throw new NullPointerException("null url");
+        }
+        requests.incrementAndGet();
+        return handler.handle("GET", url, null);
+    }
+
+    @Override
+    public String post(String url, String body) throws IOException {
+        if (url == null || body == null) {
+            throw new NullPointerException("null url or body");
+        }
+        requests.incrementAndGet();
+        return handler.handle("POST", url, body);
+    }
+
+    @Override
+    public CompletableFuture<String> getAsync(String url) {
+        if (url == null) {
+            throw new NullPointerException("null url");
+        }
+        return complete(() -> get(url));
+    }
+
+    @Override
+    public CompletableFuture<String> postAsync(String url, String body) {
+        if (url == null || body == null) {
+            throw new NullPointerException("null url or body");
+        }
+        return complete(() -> post(url, body));
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private static CompletableFuture<String> complete(Utils.IoSupplier<String> supplier) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        try {
+            future.complete(supplier.get());
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    public interface Handler {
+        /**
+         * @param method GET or POST
+         * @param url    full url
+         * @param body   posted String or null for GET
+         * @return response String
+         * @throws java.io.FileNotFoundException if nothing found
+         * @throws IOException                   to simulate connection error
+         */
+        String handle(String method, String url, String body) throws IOException;
+    }
+}
@@ -1,23 +1,33 @@
 package com.bluzelle;
 
 import com.bluzelle.crypto.Ecc;
+import com.bluzelle.crypto.Hashes;
 import com.bluzelle.crypto.HdKeyPair;
 import com.bluzelle.json.JsonArray;
 import com.bluzelle.json.JsonObject;
 
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 
+import static com.bluzelle.LeaseInfo.blockTimeSeconds;
 import static com.bluzelle.Response.*;
 import static com.bluzelle.Utils.*;
 
 public class Message {
+    public static final String modeSync = "sync";
+    public static final String modeAsync = "async";
     private final Bluzelle bluzelle;
     private final HdKeyPair keyPair;
     private final ArrayList<Integer> types = new ArrayList<>();
     private final ArrayList<String> tags = new ArrayList<>();
     private final JsonArray msg = new JsonArray();
+    private final HashSet<String> changedKeys = new HashSet<>(); // for the cache invalidation
+    private boolean changedAll = false;
     private int maxGas = 0;
     private int maxFee = 0;
     private int gasPrice = 0;
@@ -74,6 +84,7 @@ public class Message {
         data.put("Value", value);
         data.put("Lease", String.valueOf(blocks));
         addMessage("crud/create", data, gasInfo);
+        changedKeys.add(key);
         return this;
     }
 
@@ -224,6 +235,7 @@ public class Message {
         data.put("Value", value);
         data.put("Lease", leaseInfo == null ? "0" : String.valueOf(leaseInfo.blocks));
         addMessage("crud/update", data, gasInfo);
+        changedKeys.add(key);
         return this;
     }
 
@@ -250,6 +262,8 @@ public class Message {
         data.put("Key", key);
         data.put("NewKey", newKey);
         addMessage("crud/rename", data, gasInfo);
+        changedKeys.add(key);
+        changedKeys.add(newKey);
         return this;
     }
 
@@ -278,6 +292,7 @@ public class Message {
 
         JsonObject data = new JsonObject().put("KeyValues", jsonKeyValues);
         addMessage("crud/multiupdate", data, gasInfo);
+        changedKeys.addAll(keyValues.keySet());
         return this;
     }
 
@@ -306,6 +321,7 @@ public class Message {
         data.put("Key", key);
         data.put("Lease", String.valueOf(blocks));
         addMessage("crud/renewlease", data, gasInfo);
+        changedKeys.add(key);
         return this;
     }
 
@@ -328,6 +344,7 @@ public class Message {
 
         JsonObject data = new JsonObject().put("Lease", String.valueOf(blocks));
         addMessage("crud/renewleaseall", data, gasInfo);
+        changedAll = true;
         return this;
     }
 
@@ -346,6 +363,7 @@ public class Message {
 
         JsonObject data = new JsonObject().put("Key", key);
         addMessage("crud/delete", data, gasInfo);
+        changedKeys.add(key);
         return this;
     }
 
@@ -356,10 +374,68 @@ public class Message {
      */
     public Message deleteAll(GasInfo gasInfo) {
         addMessage("crud/deleteall", new JsonObject(), gasInfo);
+        changedAll = true;
         return this;
     }
 
+    /**
+     * broadcasts the transaction and waits for the block
+     *
+     * @return Response of the transaction
+     * @throws ConnectionException if can not connect to the node
+     * @throws ServerException     if server returns error
+     */
     public Response send() {
+        try {
+            Response response = Response.parse(broadcast("block"), types, tags);
+            GasEstimator estimator = bluzelle.gasEstimator;
+            if (estimator != null && msg.length() == 1) {
+                JsonObject single = msg.getObject(0);
+                estimator.observe(single.getString("type"), single.getObject("value"), response.gasUsed);
+            }
+            return response;
+        } finally {
+            // on the error the transaction still could be applied
+            bluzelle.invalidate(changedKeys, changedAll);
+        }
+    }
+
+    /**
+     * broadcasts the transaction without waiting for the block,
+     * the result is polled by the background thread
+     *
+     * @param mode modeSync returns after the node has checked the transaction, modeAsync does not wait
+     * @return PendingTx with the txhash, completes when the transaction is included in the block
+     * @throws NullPointerException     if mode == null
+     * @throws IllegalArgumentException if mode is not modeSync or modeAsync
+     * @throws ConnectionException      if can not connect to the node
+     * @throws ServerException          if server returns error
+     */
+    public PendingTx send(String mode) {
+        if (!mode.equals(modeSync) && !mode.equals(modeAsync)) {
+            throw new IllegalArgumentException("unknown mode " + mode);
+        }
+        String txhash;
+        try {
+            txhash = broadcast(mode).getString("txhash");
+        } finally {
+            bluzelle.invalidate(changedKeys, changedAll);
+        }
+        PendingTx pending = new PendingTx(txhash, types, tags, changedKeys, changedAll);
+        AccountManager accountManager = bluzelle.accountManager;
+        pending.response.whenComplete((response, throwable) -> {
+            if (throwable == null) {
+                accountManager.confirmed();
+            } else {
+                accountManager.rejected();
+            }
+        });
+        bluzelle.txPoller.add(pending);
+        return pending;
+    }
+
+    // signs and posts the transaction, returns the successful response
+    private JsonObject broadcast(String mode) {
         JsonObject fee = new JsonObject();
         fee.put("gas", String.valueOf(maxGas));
         JsonObject feeAmount = new JsonObject();
@@ -376,21 +452,29 @@ public class Message {
 
         JsonObject out = new JsonObject();
         out.put("tx", tx);
-        out.put("mode", "block");
+        out.put("mode", mode);
 
+        AccountManager accountManager = bluzelle.accountManager;
         int i = 0;
         do {
-            tx.put("signatures", new JsonArray().put(sign(msg, fee, memo)));
-            //System.out.println("post:" + out.toString());
-
-            String response = post(bluzelle.endpoint, out);
-            //System.out.println("response:" + response);
-
-            JsonObject responseData = JsonObject.parse(response);
+            tx.put("signatures", new JsonArray().put(sign(msg, fee, memo, accountManager.next())));
+
+            JsonObject responseData;
+            try {
+                responseData = JsonObject.parse(bluzelle.broadcast(out));
+            } catch (RuntimeException e) {
+                accountManager.rejected();
+                throw e;
+            }
 
             if (responseData.getInteger("code") == null) {
-                return Response.parse(responseData, types, tags);
+                if (mode.equals("block")) {
+                    accountManager.confirmed();
+                }
+                return responseData;
             }
+            // sequence could be not consumed
+            accountManager.rejected();
             String errorMessage = extractMessage(responseData);
             if (!errorMessage.contains("signature verification failed")) {
                 throw new ServerException(errorMessage);
@@ -398,32 +482,56 @@ public class Message {
             if (++i == 20) {
                 throw new ServerException(errorMessage);
             }
-
-            if (i != 0) {
-                System.out.println("!!!!");
-                System.out.println("!!!!");
-                System.out.println("!!!!");
+            // the pending transactions of this client get into the block meanwhile
+            try {
+                Thread.sleep(Math.min(50L << i, blockTimeSeconds * 1000L));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ConnectionException(new InterruptedIOException("interrupted"));
             }
-
         } while (true);
     }
 
+    // appends the msgs of the other message of this client, they are not copied
+    Message append(Message other) {
+        for (int i = 0; i < other.msg.length(); i++) {
+            msg.put(other.msg.getObject(i));
+        }
+        types.addAll(other.types);
+        tags.addAll(other.tags);
+        changedKeys.addAll(other.changedKeys);
+        changedAll |= other.changedAll;
+        maxGas += other.maxGas;
+        maxFee += other.maxFee;
+        gasPrice = Math.max(gasPrice, other.gasPrice);
+        return this;
+    }
+
+    // total gas of the msgs
+    int gas() {
+        return maxGas;
+    }
+
+    // size of the encoded msgs in bytes
+    int msgBytes() {
+        return msg.toString().getBytes(StandardCharsets.UTF_8).length;
+    }
+
     private void addMessage(String path, JsonObject value, GasInfo gasInfo) {
         value.put("UUID", bluzelle.uuid);
         value.put("Owner", bluzelle.address);
+        // estimates before changing the message
+        int gas = gasInfo.maxGas == 0 ? bluzelle.defaultGas(path, value) : gasInfo.maxGas;
         msg.put(new JsonObject().put("type", path).put("value", value));
 
-        maxGas += gasInfo.maxGas == 0 ? 200000 : gasInfo.maxGas;
+        maxGas += gas;
         maxFee += gasInfo.maxFee;
         gasPrice = Math.max(gasPrice, gasInfo.gasPrice);
     }
 
-    private JsonObject sign(JsonArray msg, JsonObject fee, String memo) {
-        String response = get(bluzelle.endpoint, "/auth/accounts/" + bluzelle.address);
-        System.out.println(response);
-        JsonObject account = JsonObject.parse(response).getObject("result").getObject("value");
-        String sequence = account.getString("sequence");
-        String accountNumber = account.getString("account_number");
+    private JsonObject sign(JsonArray msg, JsonObject fee, String memo, AccountManager.Sequence account) {
+        String sequence = account.sequence;
+        String accountNumber = account.accountNumber;
 
         JsonObject payload = new JsonObject();
         payload.put("account_number", accountNumber);
@@ -433,7 +541,9 @@ public class Message {
         payload.put("msgs", msg);
         payload.put("sequence", sequence);
 
-        byte[] hash = sha256hash(payload.toSanitizeString().getBytes());
+        MessageDigest sha256 = Hashes.sha256Digest();
+        payload.writeSanitized(sha256);
+        byte[] hash = sha256.digest();
         byte[] signature = Ecc.ecc.sign(hash, keyPair.d);
 
         JsonObject publicKey = new JsonObject();
@@ -449,7 +559,7 @@ public class Message {
         return out;
     }
 
-    private String extractMessage(JsonObject data) {
+    static String extractMessage(JsonObject data) {
         // data example:
         // {"height":"0",
         //  "txhash":"DC9D177340F74B6FA5DCD6E06A8CD47F9E208DE2F3045F932809BF92142DAD44",
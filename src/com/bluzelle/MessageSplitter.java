@@ -0,0 +1,256 @@
+// splits the large batch of writes into several transactions fitting the gas and size limits of the node
+// usage:
+//    MessageSplitter splitter = bluzelle.messageSplitter(maxGasPerTx, maxBytesPerTx);
+//    splitter.create(keyString, valueString, gasInfo, leaseInfo).update(keyString, valueString, gasInfo, leaseInfo);
+//    splitter.multiUpdate(keyValuesHashMap, gasInfo).delete(keyString, gasInfo);
+//    int transactions = splitter.transactions();
+//    MultiResponse response = splitter.send();
+// writes keep their order, large multiUpdate is split into several msgs sharing its maxGas and maxFee by size,
+// every write is validated and estimated once, transactions are broadcast in order with the sync mode
+// and then awaited together
+package com.bluzelle;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Consumer;
+
+@SuppressWarnings("WeakerAccess")
+public class MessageSplitter {
+    static final int txOverheadBytes = 1024; // fee, memo, signature and public key
+    private final Bluzelle bluzelle;
+    private final long maxGas;
+    private final int maxBytes;
+    private final ArrayList<Write> writes = new ArrayList<>();
+
+    MessageSplitter(Bluzelle bluzelle, long maxGas, int maxBytes) {
+        if (maxGas < 1) {
+            throw new IllegalArgumentException("maxGas < 1");
+        }
+        if (maxBytes <= txOverheadBytes) {
+            throw new IllegalArgumentException("maxBytes <= " + txOverheadBytes);
+        }
+        this.bluzelle = bluzelle;
+        this.maxGas = maxGas;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @throws NullPointerException     if key == null or value == null or gasInfo == null
+     * @throws IllegalArgumentException if key is empty or contains '/', or lease is negative, or write is too large
+     * @see Message#create(String, String, GasInfo, LeaseInfo)
+     */
+    public MessageSplitter create(String key, String value, GasInfo gasInfo, LeaseInfo leaseInfo) {
+        return add(message -> message.create(key, value, gasInfo, leaseInfo));
+    }
+
+    /**
+     * @throws NullPointerException     if key == null or value == null or gasInfo == null
+     * @throws IllegalArgumentException if key is empty or write is too large
+     * @see Message#update(String, String, GasInfo, LeaseInfo)
+     */
+    public MessageSplitter update(String key, String value, GasInfo gasInfo, LeaseInfo leaseInfo) {
+        return add(message -> message.update(key, value, gasInfo, leaseInfo));
+    }
+
+    /**
+     * @throws NullPointerException     if key == null or newKey == null or gasInfo == null
+     * @throws IllegalArgumentException if key is empty or newKey is empty or newKey contains '/'
+     * @see Message#rename(String, String, GasInfo)
+     */
+    public MessageSplitter rename(String key, String newKey, GasInfo gasInfo) {
+        return add(message -> message.rename(key, newKey, gasInfo));
+    }
+
+    /**
+     * splits keyValues into the several msgs if needed, maxGas and maxFee of gasInfo are shared by the msgs
+     * in proportion to their size
+     *
+     * @throws NullPointerException     if keyValues == null or gasInfo == null
+     * @throws IllegalArgumentException if key is empty or one key-value is too large
+     * @see Message#multiUpdate(HashMap, GasInfo)
+     */
+    public MessageSplitter multiUpdate(HashMap<String, String> keyValues, GasInfo gasInfo) {
+        if (gasInfo == null) {
+            throw new NullPointerException("null gasInfo");
+        }
+        long totalBytes = bytes(keyValues);
+        int budget = maxBytes - txOverheadBytes;
+        HashMap<String, String> chunk = new HashMap<>();
+        int chunkBytes = 0;
+        Iterator<Map.Entry<String, String>> iterator = keyValues.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, String> entry = iterator.next();
+            int bytes = bytes(entry);
+            if (!chunk.isEmpty() && chunkBytes + bytes > budget) {
+                addMultiUpdate(chunk, gasInfo, totalBytes);
+                chunk = new HashMap<>();
+                chunkBytes = 0;
+            }
+            chunk.put(entry.getKey(), entry.getValue());
+            chunkBytes += bytes;
+        }
+        if (!chunk.isEmpty()) {
+            addMultiUpdate(chunk, gasInfo, totalBytes);
+        }
+        return this;
+    }
+
+    /**
+     * @throws NullPointerException     if key == null or gasInfo == null
+     * @throws IllegalArgumentException if key is empty or lease is negative
+     * @see Message#renewLease(String, GasInfo, LeaseInfo)
+     */
+    public MessageSplitter renewLease(String key, GasInfo gasInfo, LeaseInfo leaseInfo) {
+        return add(message -> message.renewLease(key, gasInfo, leaseInfo));
+    }
+
+    /**
+     * @throws NullPointerException     if key == null or gasInfo == null
+     * @throws IllegalArgumentException if key is empty
+     * @see Message#delete(String, GasInfo)
+     */
+    public MessageSplitter delete(String key, GasInfo gasInfo) {
+        return add(message -> message.delete(key, gasInfo));
+    }
+
+    /**
+     * @return number of the transactions to send
+     */
+    public int transactions() {
+        return split().size();
+    }
+
+    /**
+     * broadcasts all transactions in order and waits for them,
+     * stops broadcasting on the first error, the previous transactions could be applied
+     *
+     * @return MultiResponse with the Response of each transaction
+     * @throws ConnectionException if can not connect to the node
+     * @throws ServerException     if server returns error
+     */
+    public MultiResponse send() {
+        ArrayList<PendingTx> pending = new ArrayList<>();
+        RuntimeException exception = null;
+        for (Message message : split()) {
+            try {
+                pending.add(message.send(Message.modeSync));
+            } catch (RuntimeException e) {
+                exception = e;
+                break;
+            }
+        }
+        ArrayList<Response> responses = new ArrayList<>();
+        for (PendingTx pendingTx : pending) {
+            try {
+                responses.add(pendingTx.await());
+            } catch (RuntimeException e) {
+                if (exception == null) {
+                    exception = e;
+                }
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+        return new MultiResponse(responses);
+    }
+
+    // chunk gets the share of maxGas and maxFee of the whole multiUpdate of totalBytes
+    private void addMultiUpdate(HashMap<String, String> chunk, GasInfo gasInfo, long totalBytes) {
+        long bytes = bytes(chunk);
+        GasInfo share = new GasInfo(
+                gasInfo.gasPrice,
+                gasInfo.maxGas == 0 ? 0 : (int) Math.max(1, gasInfo.maxGas * bytes / totalBytes),
+                (int) (gasInfo.maxFee * bytes / totalBytes)
+        );
+        // validation errors are thrown here
+        Message probe = probe(message -> message.multiUpdate(chunk, share));
+        if (chunk.size() > 1 && !fits(probe)) {
+            // escaping or the estimated gas made the chunk too large
+            HashMap<String, String> half = new HashMap<>();
+            Iterator<Map.Entry<String, String>> iterator = chunk.entrySet().iterator();
+            for (int i = chunk.size() / 2; i > 0; i--) {
+                Map.Entry<String, String> entry = iterator.next();
+                half.put(entry.getKey(), entry.getValue());
+                iterator.remove();
+            }
+            addMultiUpdate(half, gasInfo, totalBytes);
+            addMultiUpdate(chunk, gasInfo, totalBytes);
+            return;
+        }
+        add(probe);
+    }
+
+    private MessageSplitter add(Consumer<Message> write) {
+        return add(probe(write));
+    }
+
+    // validates the arguments, measures and estimates the msg once
+    private Message probe(Consumer<Message> write) {
+        Message probe = bluzelle.createMessage();
+        write.accept(probe);
+        return probe;
+    }
+
+    private boolean fits(Message probe) {
+        return probe.gas() <= maxGas && probe.msgBytes() + txOverheadBytes <= maxBytes;
+    }
+
+    private MessageSplitter add(Message probe) {
+        int bytes = probe.msgBytes();
+        if (probe.gas() > maxGas) {
+            throw new IllegalArgumentException("gas of the write is larger than maxGas");
+        }
+        if (bytes + txOverheadBytes > maxBytes) {
+            throw new IllegalArgumentException("write is larger than maxBytes");
+        }
+        writes.add(new Write(probe, bytes));
+        return this;
+    }
+
+    private ArrayList<Message> split() {
+        ArrayList<Message> messages = new ArrayList<>();
+        Message message = null;
+        long gas = 0;
+        int bytes = 0;
+        for (Write write : writes) {
+            long writeGas = write.probe.gas();
+            if (message == null || gas + writeGas > maxGas || bytes + write.bytes + 1 > maxBytes) {
+                message = bluzelle.createMessage();
+                messages.add(message);
+                gas = 0;
+                bytes = txOverheadBytes;
+            }
+            message.append(write.probe);
+            gas += writeGas;
+            bytes += write.bytes + 1;
+        }
+        return messages;
+    }
+
+    // approximate size of the key-values in the msg, without escaping
+    private static long bytes(HashMap<String, String> keyValues) {
+        long bytes = 0;
+        for (Map.Entry<String, String> entry : keyValues.entrySet()) {
+            bytes += bytes(entry);
+        }
+        return bytes;
+    }
+
+    private static int bytes(Map.Entry<String, String> entry) {
+        // {"key":"","value":""},
+        return entry.getKey().length() + (entry.getValue() == null ? 4 : entry.getValue().length()) + 22;
+    }
+
+    private static class Write {
+        final Message probe;
+        final int bytes;
+
+        Write(Message probe, int bytes) {
+            this.probe = probe;
+            this.bytes = bytes;
+        }
+    }
+}
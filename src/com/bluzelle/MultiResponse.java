@@ -0,0 +1,34 @@
+// responses of the several transactions of the one batch
+// usage:
+//    ArrayList<Response> responses = multiResponse.responses;
+//    int gasUsed = multiResponse.gasUsed;
+//    ArrayList<String> txHashes = multiResponse.txHashes();
+package com.bluzelle;
+
+import java.util.ArrayList;
+
+@SuppressWarnings("WeakerAccess")
+public class MultiResponse {
+    public final ArrayList<Response> responses; // in the order of the broadcast
+    public final int gasUsed; // total
+
+    MultiResponse(ArrayList<Response> responses) {
+        this.responses = responses;
+        int gas = 0;
+        for (Response response : responses) {
+            gas += response.gasUsed;
+        }
+        gasUsed = gas;
+    }
+
+    /**
+     * @return hashes of all transactions in the order of the broadcast
+     */
+    public ArrayList<String> txHashes() {
+        ArrayList<String> txHashes = new ArrayList<>();
+        for (Response response : responses) {
+            txHashes.add(response.txHash);
+        }
+        return txHashes;
+    }
+}
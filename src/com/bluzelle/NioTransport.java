@@ -0,0 +1,652 @@
+// non-blocking http/1.1 transport, a few selector threads multiplex all requests over keep-alive connections
+// usage:
+//    NioTransport transport = new NioTransport(threads, maxConnectionsPerHost, idleTimeoutMillis);
+//    CompletableFuture<String> response = transport.getAsync(urlString);
+//    String response = transport.get(urlString);
+//    transport.close();
+// supports http only
+// requests are spread over the threads, each thread opens up to maxConnectionsPerHost connections to the one host,
+// the rest of the requests wait in the queue for the free connection
+// futures are completed on the selector threads, dependent stages should not block, use thenApplyAsync
+// the host name is resolved on the calling thread, the selector threads never block on dns
+package com.bluzelle;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@SuppressWarnings("WeakerAccess")
+public class NioTransport implements Transport {
+    private static final long selectTimeoutMillis = 500;
+    private final Loop[] loops;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * starts selector threads
+     *
+     * @param threads               number of the selector threads
+     * @param maxConnectionsPerHost maximum number of the connections to the one host for the one thread
+     * @param idleTimeoutMillis     idle connections older than this will be closed
+     * @throws IllegalArgumentException if threads < 1 or maxConnectionsPerHost < 1 or idleTimeoutMillis < 0
+     * @throws ConnectionException      if can not open selector
+     */
+    public NioTransport(int threads, int maxConnectionsPerHost, long idleTimeoutMillis) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads < 1");
+        }
+        if (maxConnectionsPerHost < 1) {
+            throw new IllegalArgumentException("maxConnectionsPerHost < 1");
+        }
+        if (idleTimeoutMillis < 0) {
+            throw new IllegalArgumentException("negative idleTimeoutMillis");
+        }
+        loops = new Loop[threads];
+        try {
+            for (int i = 0; i < threads; i++) {
+                loops[i] = new Loop(maxConnectionsPerHost, idleTimeoutMillis);
+            }
+        } catch (IOException e) {
+            close();
+            throw new ConnectionException(e);
+        }
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(loops[i], "bluzelle-nio-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    @Override
+    public String get(String url) throws IOException {
+        return await(getAsync(url));
+    }
+
+    @Override
+    public String post(String url, String body) throws IOException {
+        return await(postAsync(url, body));
+    }
+
+    @Override
+    public CompletableFuture<String> getAsync(String url) {
+        if (url == null) {
+            throw new NullPointerException("null url");
+        }
+        return submit("GET", url, null);
+    }
+
+    @Override
+    public CompletableFuture<String> postAsync(String url, String body) {
+        if (url == null || body == null) {
+            throw new NullPointerException("null url or body");
+        }
+        return submit("POST", url, body);
+    }
+
+    /**
+     * stops selector threads, closes all connections and fails all unfinished requests
+     */
+    @Override
+    public void close() {
+        for (Loop loop : loops) {
+            if (loop != null) {
+                loop.close();
+            }
+        }
+    }
+
+    private CompletableFuture<String> submit(String method, String url, String body) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        Exchange exchange;
+        try {
+            exchange = new Exchange(method, new URL(url), body, future);
+        } catch (IOException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+        loops[(next.getAndIncrement() & Integer.MAX_VALUE) % loops.length].submit(exchange);
+        return future;
+    }
+
+    private static String await(CompletableFuture<String> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static class Exchange {
+        final String hostKey;
+        final InetSocketAddress address;
+        final URL url;
+        final ByteBuffer request;
+        final CompletableFuture<String> future;
+        boolean retried = false;
+
+        Exchange(String method, URL url, String body, CompletableFuture<String> future) throws IOException {
+            if (!url.getProtocol().equals("http")) {
+                throw new IOException("unsupported protocol " + url.getProtocol());
+            }
+            this.url = url;
+            this.future = future;
+            String hostName = url.getHost();
+            int port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+            hostKey = hostName + ":" + port;
+            address = new InetSocketAddress(hostName, port);
+            if (address.isUnresolved()) {
+                throw new UnknownHostException(hostName);
+            }
+
+            byte[] bodyBytes = body == null ? null : body.getBytes("utf-8");
+            String path = url.getFile().isEmpty() ? "/" : url.getFile();
+            StringBuilder head = new StringBuilder();
+            head.append(method).append(' ').append(path).append(" HTTP/1.1\r\n");
+            head.append("Host: ").append(hostName).append(url.getPort() == -1 ? "" : ":" + url.getPort());
+            head.append("\r\n");
+            head.append("Connection: keep-alive\r\n");
+            head.append("Accept: application/json\r\n");
+            if (bodyBytes != null) {
+                head.append("Content-Type: application/json\r\n");
+                head.append("Content-Length: ").append(bodyBytes.length).append("\r\n");
+            }
+            head.append("\r\n");
+            byte[] headBytes = head.toString().getBytes("utf-8");
+            request = ByteBuffer.allocate(headBytes.length + (bodyBytes == null ? 0 : bodyBytes.length));
+            request.put(headBytes);
+            if (bodyBytes != null) {
+                request.put(bodyBytes);
+            }
+            request.flip();
+        }
+
+        void complete(Parser response) {
+            if (response.code == 404 || response.code == 410) {
+                future.completeExceptionally(new FileNotFoundException(url.toString()));
+            } else if (response.code >= 400) {
+                future.completeExceptionally(new HttpStatusException(response.code, url.toString()));
+            } else {
+                try {
+                    future.complete(response.body.toString("utf-8"));
+                } catch (UnsupportedEncodingException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    private static class Host {
+        final ArrayDeque<Connection> idle = new ArrayDeque<>(); // the oldest first
+        final ArrayDeque<Exchange> waiting = new ArrayDeque<>();
+        int open = 0;
+    }
+
+    private static class Connection {
+        final Host host;
+        final SocketChannel channel;
+        SelectionKey key;
+        Exchange exchange;
+        ByteBuffer output;
+        Parser parser;
+        boolean connecting = true;
+        boolean reused = false;
+        long deadline; // connect deadline
+        long lastUsed;
+
+        Connection(Host host, SocketChannel channel) {
+            this.host = host;
+            this.channel = channel;
+        }
+    }
+
+    private static class Loop implements Runnable {
+        private final Selector selector;
+        private final int maxConnectionsPerHost;
+        private final long idleTimeoutMillis;
+        private final ConcurrentLinkedQueue<Exchange> submitted = new ConcurrentLinkedQueue<>();
+        private final HashMap<String, Host> hosts = new HashMap<>(); // <host:port, host>, selector thread only
+        private final ByteBuffer buffer = ByteBuffer.allocate(65536);
+        private volatile boolean closed = false;
+
+        Loop(int maxConnectionsPerHost, long idleTimeoutMillis) throws IOException {
+            this.maxConnectionsPerHost = maxConnectionsPerHost;
+            this.idleTimeoutMillis = idleTimeoutMillis;
+            selector = Selector.open();
+        }
+
+        void submit(Exchange exchange) {
+            if (closed) {
+                exchange.future.completeExceptionally(new IOException("transport is closed"));
+                return;
+            }
+            submitted.add(exchange);
+            selector.wakeup();
+            if (closed && submitted.remove(exchange)) {
+                exchange.future.completeExceptionally(new IOException("transport is closed"));
+            }
+        }
+
+        void close() {
+            closed = true;
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                loop();
+            } finally {
+                // the submissions after the failure of the selector are rejected
+                closed = true;
+                shutdown();
+            }
+        }
+
+        private void loop() {
+            long lastCheck = System.currentTimeMillis();
+            while (!closed) {
+                try {
+                    selector.select(selectTimeoutMillis);
+                } catch (IOException e) {
+                    return;
+                }
+                Exchange exchange;
+                while ((exchange = submitted.poll()) != null) {
+                    Host host = hosts.get(exchange.hostKey);
+                    if (host == null) {
+                        host = new Host();
+                        hosts.put(exchange.hostKey, host);
+                    }
+                    host.waiting.add(exchange);
+                    dispatch(host);
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+                long now = System.currentTimeMillis();
+                if (now - lastCheck >= selectTimeoutMillis) {
+                    lastCheck = now;
+                    checkTimeouts(now);
+                }
+            }
+        }
+
+        // starts waiting exchanges on the idle or new connections
+        private void dispatch(Host host) {
+            while (!host.waiting.isEmpty()) {
+                Connection connection = host.idle.pollLast();
+                if (connection != null && System.currentTimeMillis() - connection.lastUsed >= idleTimeoutMillis) {
+                    discard(connection);
+                    continue;
+                }
+                if (connection == null) {
+                    if (host.open >= maxConnectionsPerHost) {
+                        return;
+                    }
+                    Exchange exchange = host.waiting.peek();
+                    try {
+                        connection = open(host, exchange);
+                    } catch (IOException e) {
+                        host.waiting.poll();
+                        exchange.future.completeExceptionally(e);
+                        continue;
+                    }
+                }
+                Exchange exchange = host.waiting.poll();
+                try {
+                    start(connection, exchange);
+                } catch (RuntimeException e) {
+                    // cancelled key, the connection can not be used
+                    discard(connection);
+                    exchange.future.completeExceptionally(new IOException(e));
+                }
+            }
+        }
+
+        private Connection open(Host host, Exchange exchange) throws IOException {
+            SocketChannel channel = SocketChannel.open();
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+                Connection connection = new Connection(host, channel);
+                connection.connecting = !channel.connect(exchange.address);
+                connection.deadline = System.currentTimeMillis() + ConnectionPool.connectTimeoutMillis;
+                connection.key = channel.register(selector, 0, connection);
+                host.open++;
+                return connection;
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e instanceof IOException ? (IOException) e : new IOException(e);
+            }
+        }
+
+        private void start(Connection connection, Exchange exchange) {
+            connection.exchange = exchange;
+            connection.output = exchange.request.duplicate();
+            connection.parser = new Parser();
+            connection.key.interestOps(connection.connecting ? SelectionKey.OP_CONNECT : SelectionKey.OP_WRITE);
+        }
+
+        private void handle(SelectionKey key) {
+            Connection connection = (Connection) key.attachment();
+            if (!key.isValid()) {
+                return;
+            }
+            try {
+                if (key.isConnectable()) {
+                    if (connection.channel.finishConnect()) {
+                        connection.connecting = false;
+                        key.interestOps(SelectionKey.OP_WRITE);
+                    }
+                } else if (key.isWritable()) {
+                    connection.channel.write(connection.output);
+                    if (!connection.output.hasRemaining()) {
+                        key.interestOps(SelectionKey.OP_READ);
+                    }
+                } else if (key.isReadable()) {
+                    read(connection);
+                }
+            } catch (IOException e) {
+                fail(connection, e);
+            } catch (RuntimeException e) {
+                fail(connection, new IOException(e));
+            }
+        }
+
+        private void read(Connection connection) throws IOException {
+            if (connection.exchange == null) {
+                // idle connection was closed by server or sent garbage
+                connection.host.idle.remove(connection);
+                discard(connection);
+                return;
+            }
+            buffer.clear();
+            int read = connection.channel.read(buffer);
+            boolean done;
+            if (read < 0) {
+                if (!connection.parser.endOfStream()) {
+                    throw new EOFException("unexpected end of response");
+                }
+                done = true;
+            } else {
+                buffer.flip();
+                done = connection.parser.feed(buffer);
+            }
+            if (!done) {
+                return;
+            }
+            Exchange exchange = connection.exchange;
+            Parser parser = connection.parser;
+            connection.exchange = null;
+            connection.parser = null;
+            connection.output = null;
+            Host host = connection.host;
+            if (parser.keepAlive && read >= 0) {
+                connection.reused = true;
+                connection.lastUsed = System.currentTimeMillis();
+                // keep reading to notice the close by server
+                connection.key.interestOps(SelectionKey.OP_READ);
+                host.idle.addLast(connection);
+            } else {
+                discard(connection);
+            }
+            exchange.complete(parser);
+            dispatch(host);
+        }
+
+        private void fail(Connection connection, IOException e) {
+            Exchange exchange = connection.exchange;
+            Host host = connection.host;
+            boolean stale = connection.reused && (connection.parser == null || !connection.parser.received);
+            discard(connection);
+            if (exchange == null) {
+                return;
+            }
+            if (stale && !exchange.retried) {
+                // server has closed the idle connection before reading the request, try the new one
+                exchange.retried = true;
+                host.waiting.addFirst(exchange);
+            } else {
+                exchange.future.completeExceptionally(e);
+            }
+            dispatch(host);
+        }
+
+        private void discard(Connection connection) {
+            connection.host.open--;
+            connection.key.cancel();
+            try {
+                connection.channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+
+        private void checkTimeouts(long now) {
+            for (Host host : hosts.values()) {
+                Iterator<Connection> iterator = host.idle.iterator();
+                while (iterator.hasNext()) {
+                    Connection connection = iterator.next();
+                    if (now - connection.lastUsed < idleTimeoutMillis) {
+                        break;
+                    }
+                    iterator.remove();
+                    discard(connection);
+                }
+            }
+            ArrayList<Connection> expired = new ArrayList<>();
+            for (SelectionKey key : selector.keys()) {
+                Connection connection = (Connection) key.attachment();
+                if (connection.connecting && connection.exchange != null && now > connection.deadline) {
+                    expired.add(connection);
+                }
+            }
+            for (Connection connection : expired) {
+                fail(connection, new SocketTimeoutException("connect timed out"));
+            }
+        }
+
+        private void shutdown() {
+            IOException closedException = new IOException("transport is closed");
+            for (SelectionKey key : selector.keys()) {
+                Connection connection = (Connection) key.attachment();
+                try {
+                    connection.channel.close();
+                } catch (IOException ignored) {
+                }
+                if (connection.exchange != null) {
+                    connection.exchange.future.completeExceptionally(closedException);
+                }
+            }
+            for (Host host : hosts.values()) {
+                for (Exchange exchange : host.waiting) {
+                    exchange.future.completeExceptionally(closedException);
+                }
+            }
+            Exchange exchange;
+            while ((exchange = submitted.poll()) != null) {
+                exchange.future.completeExceptionally(closedException);
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    // incremental parser of the http/1.1 response
+    private static class Parser {
+        private static final int statusLine = 0;
+        private static final int headers = 1;
+        private static final int fixedBody = 2;
+        private static final int chunkSize = 3;
+        private static final int chunkData = 4;
+        private static final int chunkEnd = 5;
+        private static final int trailers = 6;
+        private static final int bodyUntilClose = 7;
+        private static final int done = 8;
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private final StringBuilder line = new StringBuilder();
+        int code;
+        boolean keepAlive;
+        boolean received = false;
+        private int state = statusLine;
+        private long contentLength = -1;
+        private boolean chunked = false;
+        private long remaining;
+
+        // returns true if the response is complete
+        boolean feed(ByteBuffer buffer) throws IOException {
+            if (buffer.hasRemaining()) {
+                received = true;
+            }
+            while (buffer.hasRemaining() && state != done) {
+                switch (state) {
+                    case fixedBody:
+                    case chunkData:
+                    case bodyUntilClose:
+                        int length = buffer.remaining();
+                        if (state != bodyUntilClose) {
+                            length = (int) Math.min(length, remaining);
+                            remaining -= length;
+                        }
+                        body.write(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+                        buffer.position(buffer.position() + length);
+                        if (state == fixedBody && remaining == 0) {
+                            state = done;
+                        } else if (state == chunkData && remaining == 0) {
+                            state = chunkEnd;
+                        }
+                        break;
+                    default:
+                        char c = (char) (buffer.get() & 0xFF);
+                        if (c != '\n') {
+                            line.append(c);
+                            break;
+                        }
+                        int lineLength = line.length();
+                        if (lineLength > 0 && line.charAt(lineLength - 1) == '\r') {
+                            line.setLength(lineLength - 1);
+                        }
+                        String string = line.toString();
+                        line.setLength(0);
+                        processLine(string);
+                }
+            }
+            return state == done;
+        }
+
+        // returns true if the response is complete
+        boolean endOfStream() {
+            if (state == bodyUntilClose) {
+                state = done;
+                keepAlive = false;
+            }
+            return state == done;
+        }
+
+        private void processLine(String string) throws IOException {
+            switch (state) {
+                case statusLine:
+                    // HTTP/1.1 200 OK
+                    int start = string.indexOf(' ');
+                    if (!string.startsWith("HTTP/") || start < 0 || string.length() < start + 4) {
+                        throw new IOException("incorrect status line " + string);
+                    }
+                    try {
+                        code = Integer.parseInt(string.substring(start + 1, start + 4));
+                    } catch (NumberFormatException e) {
+                        throw new IOException("incorrect status line " + string);
+                    }
+                    keepAlive = string.startsWith("HTTP/1.1");
+                    state = headers;
+                    break;
+                case headers:
+                    if (string.isEmpty()) {
+                        if (chunked) {
+                            state = chunkSize;
+                        } else if (contentLength > 0) {
+                            remaining = contentLength;
+                            state = fixedBody;
+                        } else if (contentLength == 0 || code == 204 || code == 304 || code < 200) {
+                            state = done;
+                        } else {
+                            state = bodyUntilClose;
+                            keepAlive = false;
+                        }
+                        break;
+                    }
+                    int colon = string.indexOf(':');
+                    if (colon <= 0) {
+                        break;
+                    }
+                    String name = string.substring(0, colon).trim().toLowerCase();
+                    String value = string.substring(colon + 1).trim().toLowerCase();
+                    switch (name) {
+                        case "content-length":
+                            try {
+                                contentLength = Long.parseLong(value);
+                            } catch (NumberFormatException e) {
+                                throw new IOException("incorrect content-length " + value);
+                            }
+                            break;
+                        case "transfer-encoding":
+                            chunked = value.contains("chunked");
+                            break;
+                        case "connection":
+                            if (value.contains("close")) {
+                                keepAlive = false;
+                            } else if (value.contains("keep-alive")) {
+                                keepAlive = true;
+                            }
+                            break;
+                    }
+                    break;
+                case chunkSize:
+                    int extension = string.indexOf(';');
+                    String size = (extension < 0 ? string : string.substring(0, extension)).trim();
+                    try {
+                        remaining = Long.parseLong(size, 16);
+                    } catch (NumberFormatException e) {
+                        throw new IOException("incorrect chunk size " + size);
+                    }
+                    state = remaining == 0 ? trailers : chunkData;
+                    break;
+                case chunkEnd:
+                    state = chunkSize;
+                    break;
+                case trailers:
+                    if (string.isEmpty()) {
+                        state = done;
+                    }
+                    break;
+            }
+        }
+    }
+}
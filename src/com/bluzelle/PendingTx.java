@@ -0,0 +1,55 @@
+// transaction broadcast without waiting for the block
+// usage:
+//    PendingTx pending = message.send(Message.modeSync);
+//    String txhash = pending.txhash;
+//    CompletableFuture<Response> future = pending.response;
+//    Response response = pending.await();
+package com.bluzelle;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+@SuppressWarnings("WeakerAccess")
+public class PendingTx {
+    public final String txhash;
+    // completes when the transaction is in the block,
+    // exceptionally with ServerException if the transaction has failed or was not included in time
+    public final CompletableFuture<Response> response = new CompletableFuture<>();
+    final ArrayList<Integer> types;
+    final ArrayList<String> tags;
+    final Iterable<String> changedKeys;
+    final boolean changedAll;
+
+    PendingTx(
+            String txhash,
+            ArrayList<Integer> types,
+            ArrayList<String> tags,
+            Iterable<String> changedKeys,
+            boolean changedAll
+    ) {
+        this.txhash = txhash;
+        this.types = types;
+        this.tags = tags;
+        this.changedKeys = changedKeys;
+        this.changedAll = changedAll;
+    }
+
+    /**
+     * blocks until the transaction is in the block
+     *
+     * @return Response of the transaction
+     * @throws ConnectionException if can not connect to the node
+     * @throws ServerException     if the transaction has failed or was not included in time
+     */
+    public Response await() {
+        try {
+            return response.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
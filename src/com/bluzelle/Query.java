@@ -0,0 +1,30 @@
+package com.bluzelle;
+
+import com.bluzelle.json.JsonObject;
+
+import java.util.function.Function;
+
+// get request to the rest server and the parser of its response
+class Query<T> {
+    final String path;
+    final String key; // for the KeyNotFoundException or null
+    final char cacheKind; // ReadCache kind or 0 if the result is not cached
+    final String cacheKey; // key in the database or null if the result is not cached
+    private final Function<JsonObject, T> parser;
+
+    Query(String path, String key, Function<JsonObject, T> parser) {
+        this(path, key, parser, (char) 0, null);
+    }
+
+    Query(String path, String key, Function<JsonObject, T> parser, char cacheKind, String cacheKey) {
+        this.path = path;
+        this.key = key;
+        this.parser = parser;
+        this.cacheKind = cacheKind;
+        this.cacheKey = cacheKey;
+    }
+
+    T parse(String response) {
+        return parser.apply(JsonObject.parseLazy(response));
+    }
+}
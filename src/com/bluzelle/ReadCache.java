@@ -0,0 +1,178 @@
+// bounded lru cache of the read, has and getLease results, weighted by the approximate size in bytes
+// usage:
+//    ReadCache cache = new ReadCache(maxBytes, maxAgeMillis);
+//    long generation = cache.generation();
+//    Object value = cache.get(ReadCache.read, keyString);
+//    cache.put(ReadCache.read, keyString, value, generation);
+//    cache.invalidate(keyString);
+//    cache.clear();
+// entries expire after maxAgeMillis and not later than the known lease of the key,
+// put is ignored if there was any invalidation after the generation was taken, the value could be stale
+package com.bluzelle;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+class ReadCache {
+    static final char read = 'r';
+    static final char has = 'h';
+    static final char lease = 'l';
+    private static final int entryOverhead = 96; // bytes of the map entry, Entry and boxed value
+    private final long maxBytes;
+    private final long maxAgeNanos;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes = 0;
+    private long generation = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * @param maxBytes     maximum total weight of the entries
+     * @param maxAgeMillis entries older than this are not returned
+     * @throws IllegalArgumentException if maxBytes < 1 or maxAgeMillis < 1
+     */
+    ReadCache(long maxBytes, long maxAgeMillis) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("maxBytes < 1");
+        }
+        if (maxAgeMillis < 1) {
+            throw new IllegalArgumentException("maxAgeMillis < 1");
+        }
+        this.maxBytes = maxBytes;
+        maxAgeNanos = maxAgeMillis * 1000000;
+    }
+
+    /**
+     * @return counter of the invalidations, must be taken before the request and passed to the put
+     */
+    synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * @param kind read, has or lease
+     * @param key  key in the database
+     * @return cached value or null
+     */
+    synchronized Object get(char kind, String key) {
+        String mapKey = kind + key;
+        Entry entry = entries.get(mapKey);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        long now = System.nanoTime();
+        if (now - entry.expiresAt >= 0) {
+            remove(mapKey);
+            misses++;
+            return null;
+        }
+        hits++;
+        if (kind == lease) {
+            // remaining seconds
+            long seconds = (entry.leaseDeadline - now) / 1000000000;
+            return (int) Math.max(0, seconds);
+        }
+        return entry.value;
+    }
+
+    /**
+     * @param kind       read, has or lease
+     * @param key        key in the database
+     * @param value      String for read, Boolean for has, Integer seconds for lease
+     * @param generation value of generation() before the request
+     */
+    synchronized void put(char kind, String key, Object value, long generation) {
+        if (generation != this.generation) {
+            return;
+        }
+        long now = System.nanoTime();
+        long expiresAt = now + maxAgeNanos;
+        long leaseDeadline = 0;
+        if (kind == lease) {
+            leaseDeadline = now + (Integer) value * 1000000000L;
+            // known lease bounds the other entries of the key
+            for (char other : new char[]{read, has}) {
+                Entry entry = entries.get(other + key);
+                if (entry != null && entry.expiresAt - leaseDeadline > 0) {
+                    entry.expiresAt = leaseDeadline;
+                }
+            }
+        } else {
+            Entry leaseEntry = entries.get(lease + key);
+            if (leaseEntry != null && expiresAt - leaseEntry.leaseDeadline > 0) {
+                expiresAt = leaseEntry.leaseDeadline;
+            }
+        }
+        if (leaseDeadline != 0 && expiresAt - leaseDeadline > 0) {
+            expiresAt = leaseDeadline;
+        }
+        long weight = entryOverhead + 2L * (key.length() + (value instanceof String ? ((String) value).length() : 0));
+        if (weight > maxBytes) {
+            return;
+        }
+        String mapKey = kind + key;
+        remove(mapKey);
+        entries.put(mapKey, new Entry(value, weight, expiresAt, leaseDeadline));
+        bytes += weight;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (bytes > maxBytes) {
+            bytes -= iterator.next().weight;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * removes all entries of the key
+     *
+     * @param key key in the database
+     */
+    synchronized void invalidate(String key) {
+        generation++;
+        remove(read + key);
+        remove(has + key);
+        remove(lease + key);
+    }
+
+    /**
+     * removes all entries
+     */
+    synchronized void clear() {
+        generation++;
+        entries.clear();
+        bytes = 0;
+    }
+
+    synchronized long bytes() {
+        return bytes;
+    }
+
+    synchronized long hits() {
+        return hits;
+    }
+
+    synchronized long misses() {
+        return misses;
+    }
+
+    private void remove(String mapKey) {
+        Entry entry = entries.remove(mapKey);
+        if (entry != null) {
+            bytes -= entry.weight;
+        }
+    }
+
+    private static class Entry {
+        final Object value;
+        final long weight;
+        final long leaseDeadline; // for the lease entry
+        long expiresAt;
+
+        Entry(Object value, long weight, long expiresAt, long leaseDeadline) {
+            this.value = value;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+            this.leaseDeadline = leaseDeadline;
+        }
+    }
+}
@@ -0,0 +1,334 @@
+// chooses the rest endpoint for every request, tracks latency and errors of the endpoints
+// usage:
+//    Router router = new Router(endpointsList);
+//    String response = router.get(transport, pathString, keyStringOrNull);
+//    T result = router.get(transport, pathString, keyStringOrNull, bodyReader);
+//    CompletableFuture<String> response = router.getAsync(transport, pathString, keyStringOrNull);
+//    String response = router.post(transport, dataJsonObject);
+//    String response = router.post(transport, pathString, dataJsonObject);
+//    String response = router.postUntracked(transport, pathString, dataJsonObject);
+// requests go to the healthy endpoint with the lowest ewma latency weighted by the ewma error rate,
+// endpoint with failureThreshold consecutive failures is ejected for openMillis, then gets one trial request,
+// endpoint not used for refreshMillis gets the next request to refresh its statistics,
+// get requests are idempotent and are retried on the other endpoints, post requests are not retried,
+// streamed get request is not retried after its body reader has started,
+// only the transport failures and the gateway errors 502-504 count as the failures of the endpoint,
+// other error statuses are the answers of the healthy endpoint and are not retried,
+// errors of the untracked post never count, it is used for the optional requests with the fallback
+package com.bluzelle;
+
+import java.io.FileNotFoundException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+class Router {
+    static final int failureThreshold = 3;
+    static final long openMillis = 5000;
+    static final long refreshMillis = 10000;
+    private static final double alpha = 0.2; // weight of the new sample
+    private static final double errorPenalty = 4; // latency multiplier at 100% errors
+    final ArrayList<Node> nodes = new ArrayList<>();
+    private final long openNanos;
+    private final long refreshNanos;
+
+    /**
+     * @param endpoints list of the rest endpoints, the first one is the primary
+     * @throws IllegalArgumentException if endpoints is empty
+     */
+    Router(List<String> endpoints) {
+        this(endpoints, openMillis, refreshMillis);
+    }
+
+    Router(List<String> endpoints, long openMillis, long refreshMillis) {
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("no endpoints");
+        }
+        for (String endpoint : endpoints) {
+            nodes.add(new Node(endpoint));
+        }
+        openNanos = openMillis * 1000000;
+        refreshNanos = refreshMillis * 1000000;
+    }
+
+    /**
+     * performs get request, retries on the other endpoints if can not connect
+     *
+     * @return response String
+     * @throws KeyNotFoundException if key != null and key does not exist
+     * @throws ConnectionException  if can not connect to any endpoint
+     */
+    String get(Transport transport, String path, String key) {
+        ArrayList<Node> tried = new ArrayList<>();
+        while (true) {
+            Node node = choose(tried);
+            long start = System.nanoTime();
+            try {
+                String response = Utils.get(transport, node.endpoint, path, key);
+                node.success(System.nanoTime() - start);
+                return response;
+            } catch (KeyNotFoundException e) {
+                node.success(System.nanoTime() - start);
+                throw e;
+            } catch (ConnectionException e) {
+                if (!isNodeFailure(e.getCause())) {
+                    node.success(System.nanoTime() - start);
+                    throw e;
+                }
+                node.failure(System.nanoTime() - start);
+                tried.add(node);
+                if (tried.size() >= nodes.size()) {
+                    throw e;
+                }
+            } catch (RuntimeException e) {
+                node.release();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * performs get request, the reader reads the body while it is received,
+     * retries on the other endpoints if can not connect before the reader has started
+     *
+     * @return result of the reader
+     * @throws KeyNotFoundException if key != null and key does not exist
+     * @throws ConnectionException  if can not connect to any endpoint or can not read the body
+     */
+    <T> T get(Transport transport, String path, String key, Transport.BodyReader<T> reader) {
+        boolean[] started = {false};
+        Transport.BodyReader<T> tracked = body -> {
+            started[0] = true;
+            return reader.read(body);
+        };
+        ArrayList<Node> tried = new ArrayList<>();
+        while (true) {
+            Node node = choose(tried);
+            long start = System.nanoTime();
+            try {
+                T result = Utils.get(transport, node.endpoint, path, key, tracked);
+                node.success(System.nanoTime() - start);
+                return result;
+            } catch (KeyNotFoundException e) {
+                node.success(System.nanoTime() - start);
+                throw e;
+            } catch (ConnectionException e) {
+                if (!isNodeFailure(e.getCause())) {
+                    node.success(System.nanoTime() - start);
+                    throw e;
+                }
+                node.failure(System.nanoTime() - start);
+                tried.add(node);
+                if (started[0] || tried.size() >= nodes.size()) {
+                    throw e;
+                }
+            } catch (RuntimeException e) {
+                // for example the incorrect body, the trial of the node must end
+                node.release();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * performs get request without blocking, retries on the other endpoints if can not connect
+     *
+     * @return future with the response String,
+     * completes exceptionally with KeyNotFoundException or ConnectionException
+     */
+    CompletableFuture<String> getAsync(Transport transport, String path, String key) {
+        CompletableFuture<String> out = new CompletableFuture<>();
+        getAsync(transport, path, key, new ArrayList<>(), out);
+        return out;
+    }
+
+    /**
+     * posts the transaction to the best endpoint
+     *
+     * @return response String
+     * @throws ConnectionException if can not connect
+     */
+    String post(Transport transport, Object data) {
+        return post(transport, "/txs", data);
+    }
+
+    /**
+     * posts data to the path of the best endpoint
+     *
+     * @return response String
+     * @throws ConnectionException if can not connect
+     */
+    String post(Transport transport, String path, Object data) {
+        Node node = choose(new ArrayList<>());
+        long start = System.nanoTime();
+        try {
+            String response = Utils.post(transport, node.endpoint, path, data);
+            node.success(System.nanoTime() - start);
+            return response;
+        } catch (ConnectionException e) {
+            if (isNodeFailure(e.getCause())) {
+                node.failure(System.nanoTime() - start);
+            } else {
+                node.success(System.nanoTime() - start);
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            node.release();
+            throw e;
+        }
+    }
+
+    /**
+     * posts data to the path of the best endpoint, the error does not count as the failure of the endpoint
+     *
+     * @return response String
+     * @throws ConnectionException if can not connect
+     */
+    String postUntracked(Transport transport, String path, Object data) {
+        Node node = choose(new ArrayList<>());
+        long start = System.nanoTime();
+        try {
+            String response = Utils.post(transport, node.endpoint, path, data);
+            node.success(System.nanoTime() - start);
+            return response;
+        } catch (RuntimeException e) {
+            node.release();
+            throw e;
+        }
+    }
+
+    private void getAsync(
+            Transport transport,
+            String path,
+            String key,
+            ArrayList<Node> tried,
+            CompletableFuture<String> out
+    ) {
+        Node node = choose(tried);
+        long start = System.nanoTime();
+        Utils.getAsync(transport, node.endpoint, path, key).whenComplete((response, throwable) -> {
+            long elapsed = System.nanoTime() - start;
+            if (throwable == null) {
+                node.success(elapsed);
+                out.complete(response);
+            } else if (throwable instanceof ConnectionException && isNodeFailure(throwable.getCause())) {
+                node.failure(elapsed);
+                tried.add(node);
+                if (tried.size() >= nodes.size()) {
+                    out.completeExceptionally(throwable);
+                } else {
+                    getAsync(transport, path, key, tried, out);
+                }
+            } else {
+                if (throwable instanceof KeyNotFoundException || throwable instanceof ConnectionException) {
+                    node.success(elapsed);
+                } else {
+                    node.release();
+                }
+                out.completeExceptionally(throwable);
+            }
+        });
+    }
+
+    // returns true if the cause of the ConnectionException is the failure of the endpoint,
+    // false if the endpoint has answered or the request was interrupted locally
+    static boolean isNodeFailure(Throwable cause) {
+        if (cause instanceof FileNotFoundException) {
+            return false;
+        }
+        if (cause instanceof InterruptedIOException && !(cause instanceof SocketTimeoutException)) {
+            return false;
+        }
+        if (cause instanceof HttpStatusException) {
+            int code = ((HttpStatusException) cause).code;
+            return code >= 502 && code <= 504;
+        }
+        return true;
+    }
+
+    // returns the best endpoint except tried, or the endpoint closest to the end of ejection if all are ejected
+    private Node choose(ArrayList<Node> tried) {
+        long now = System.nanoTime();
+        Node best = null;
+        double bestScore = Double.MAX_VALUE;
+        Node ejected = null;
+        for (Node node : nodes) {
+            if (tried.contains(node)) {
+                continue;
+            }
+            synchronized (node) {
+                if (node.failures >= failureThreshold) {
+                    if (now - node.ejectedAt >= openNanos && !node.trial) {
+                        // half-open, the only trial request
+                        node.trial = true;
+                        node.lastUsed = now;
+                        return node;
+                    }
+                    if (ejected == null || node.ejectedAt < ejected.ejectedAt) {
+                        ejected = node;
+                    }
+                    continue;
+                }
+                if (now - node.lastUsed >= refreshNanos) {
+                    node.lastUsed = now;
+                    return node;
+                }
+                double score = node.latency * (1 + errorPenalty * node.errorRate);
+                if (score < bestScore) {
+                    best = node;
+                    bestScore = score;
+                }
+            }
+        }
+        if (best == null) {
+            best = ejected;
+        }
+        synchronized (best) {
+            best.lastUsed = now;
+        }
+        return best;
+    }
+
+    static class Node {
+        final String endpoint;
+        double latency = 0; // ewma nanoseconds, 0 until the first response
+        double errorRate = 0; // ewma from 0 to 1
+        int failures = 0; // consecutive
+        long ejectedAt;
+        long lastUsed;
+        boolean trial = false;
+
+        Node(String endpoint) {
+            this.endpoint = endpoint;
+            lastUsed = System.nanoTime();
+        }
+
+        synchronized void success(long nanos) {
+            latency = latency == 0 ? nanos : latency + alpha * (nanos - latency);
+            errorRate -= alpha * errorRate;
+            failures = 0;
+            trial = false;
+        }
+
+        synchronized void failure(long nanos) {
+            latency = Math.max(latency, latency + alpha * (nanos - latency));
+            errorRate += alpha * (1 - errorRate);
+            failures++;
+            if (failures >= failureThreshold) {
+                ejectedAt = System.nanoTime();
+            }
+            trial = false;
+        }
+
+        // the request has ended without the result for the statistics
+        synchronized void release() {
+            trial = false;
+        }
+
+        synchronized boolean isEjected() {
+            return failures >= failureThreshold;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+// transport for the http requests to the rest server
+// usage:
+//    Transport transport = new ConnectionPool(maxConnectionsPerHost, idleTimeoutMillis); // default
+//    Transport transport = new UrlConnectionTransport();
+//    Transport transport = new NioTransport(threads, maxConnectionsPerHost, idleTimeoutMillis);
+//    Transport transport = new MemoryTransport(handler);
+//    Bluzelle bluzelle = Bluzelle.connect(mnemonicString, endpointString, uuidString, chainIdString, transport);
+//    String response = transport.get(urlString);
+//    T result = transport.get(urlString, inputStream -> result);
+//    CompletableFuture<String> response = transport.getAsync(urlString);
+package com.bluzelle;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+public interface Transport {
+
+    /**
+     * perform get request, blocks until the response
+     *
+     * @param url full url
+     * @return response String
+     * @throws NullPointerException  if url == null
+     * @throws FileNotFoundException if server returns 404
+     * @throws HttpStatusException   if server returns other error status
+     * @throws IOException           if can not connect
+     */
+    String get(String url) throws IOException;
+
+    /**
+     * perform get request, the body reader reads the response while it is received,
+     * the default implementation reads the whole response first
+     *
+     * @param url    full url
+     * @param reader reads the body of the successful response
+     * @return result of the reader
+     * @throws NullPointerException  if url == null or reader == null
+     * @throws FileNotFoundException if server returns 404
+     * @throws HttpStatusException   if server returns other error status
+     * @throws IOException           if can not connect or reader throws it
+     */
+    default <T> T get(String url, BodyReader<T> reader) throws IOException {
+        if (reader == null) {
+            throw new NullPointerException("null reader");
+        }
+        return reader.read(new ByteArrayInputStream(get(url).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * perform post request, blocks until the response
+     *
+     * @param url  full url
+     * @param body json String to post
+     * @return response String
+     * @throws NullPointerException if url == null or body == null
+     * @throws HttpStatusException  if server returns error status
+     * @throws IOException          if can not connect
+     */
+    String post(String url, String body) throws IOException;
+
+    /**
+     * perform get request without blocking the caller
+     *
+     * @param url full url
+     * @return future completed with the response String or exceptionally with the IOException
+     * @throws NullPointerException if url == null
+     */
+    CompletableFuture<String> getAsync(String url);
+
+    /**
+     * perform post request without blocking the caller
+     *
+     * @param url  full url
+     * @param body json String to post
+     * @return future completed with the response String or exceptionally with the IOException
+     * @throws NullPointerException if url == null or body == null
+     */
+    CompletableFuture<String> postAsync(String url, String body);
+
+    /**
+     * releases connections and threads of this transport
+     */
+    void close();
+
+    interface BodyReader<T> {
+        /**
+         * @param body utf-8 body of the response, can be read partially, closed by the transport
+         * @return result
+         * @throws IOException if can not read the body
+         */
+        T read(InputStream body) throws IOException;
+    }
+}
@@ -0,0 +1,122 @@
+// resolves the pending transactions of the client, polls the node for all of them every pollMillis
+// usage:
+//    TxPoller poller = new TxPoller(bluzelle);
+//    poller.add(pendingTx);
+//    int pending = poller.pending();
+// the default scheduler runs the polls of all clients, the requests of one poll are sent concurrently
+package com.bluzelle;
+
+import com.bluzelle.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+class TxPoller {
+    static final long pollMillis = 1000;
+    static final long timeoutMillis = 60000; // 12 blocks
+    private final Bluzelle bluzelle;
+    private final ArrayList<Entry> entries = new ArrayList<>();
+    private boolean scheduled = false;
+
+    TxPoller(Bluzelle bluzelle) {
+        this.bluzelle = bluzelle;
+    }
+
+    /**
+     * @param pendingTx transaction to track
+     */
+    synchronized void add(PendingTx pendingTx) {
+        entries.add(new Entry(pendingTx, System.nanoTime() + timeoutMillis * 1000000));
+        schedule();
+    }
+
+    /**
+     * @return number of the unresolved transactions
+     */
+    synchronized int pending() {
+        return entries.size();
+    }
+
+    private void schedule() {
+        if (!scheduled && !entries.isEmpty()) {
+            scheduled = true;
+            Utils.scheduler().schedule(this::poll, pollMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void poll() {
+        CompletableFuture<?> polled = null;
+        try {
+            ArrayList<Entry> batch;
+            synchronized (this) {
+                batch = new ArrayList<>(entries);
+            }
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[batch.size()];
+            for (int i = 0; i < futures.length; i++) {
+                Entry entry = batch.get(i);
+                String txhash = entry.pendingTx.txhash;
+                futures[i] = bluzelle.fetchAsync("/txs/" + txhash, txhash)
+                        .handle((response, throwable) -> {
+                            if (throwable == null) {
+                                resolve(entry, response);
+                            } else if (System.nanoTime() - entry.deadline > 0) {
+                                // not found yet or the connection error
+                                finish(entry);
+                                entry.pendingTx.response.completeExceptionally(
+                                        new ServerException("transaction " + txhash + " is not in the block")
+                                );
+                            }
+                            return null;
+                        });
+            }
+            polled = CompletableFuture.allOf(futures);
+        } finally {
+            if (polled == null) {
+                // failed before the requests were sent, the next poll retries them
+                reschedule();
+            } else {
+                polled.whenComplete((ignored, throwable) -> reschedule());
+            }
+        }
+    }
+
+    private synchronized void reschedule() {
+        scheduled = false;
+        schedule();
+    }
+
+    // the incorrect response completes the transaction with the exception, it is not polled again
+    private void resolve(Entry entry, String responseString) {
+        PendingTx pendingTx = entry.pendingTx;
+        finish(entry);
+        try {
+            JsonObject response = JsonObject.parse(responseString);
+            if (response.getInteger("code") != null) {
+                pendingTx.response.completeExceptionally(new ServerException(Message.extractMessage(response)));
+            } else {
+                pendingTx.response.complete(Response.parse(response, pendingTx.types, pendingTx.tags));
+            }
+        } catch (RuntimeException e) {
+            pendingTx.response.completeExceptionally(e);
+        }
+    }
+
+    private void finish(Entry entry) {
+        synchronized (this) {
+            entries.remove(entry);
+        }
+        // the values could be read between the broadcast and the block
+        bluzelle.invalidate(entry.pendingTx.changedKeys, entry.pendingTx.changedAll);
+    }
+
+    private static class Entry {
+        final PendingTx pendingTx;
+        final long deadline;
+
+        Entry(PendingTx pendingTx, long deadline) {
+            this.pendingTx = pendingTx;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+// transport using java.net.HttpURLConnection, keep-alive is handled by the jdk
+// usage:
+//    Transport transport = new UrlConnectionTransport();
+package com.bluzelle;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+
+@SuppressWarnings("WeakerAccess")
+public class UrlConnectionTransport implements Transport {
+
+    @Override
+    public String get(String url) throws IOException {
+        if (url == null) {
+            throw new NullPointerException("null url");
+        }
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(ConnectionPool.connectTimeoutMillis);
+        return read(connection);
+    }
+
+    @Override
+    public <T> T get(String url, BodyReader<T> reader) throws IOException {
+        if (url == null || reader == null) {
+            throw new NullPointerException("null url or reader");
+        }
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(ConnectionPool.connectTimeoutMillis);
+        InputStream input = open(connection);
+        try {
+            T result = reader.read(input);
+            // the rest of the body, otherwise the connection will not be reused
+            drain(input);
+            return result;
+        } finally {
+            input.close();
+        }
+    }
+
+    @Override
+    public String post(String url, String body) throws IOException {
+        if (url == null || body == null) {
+            throw new NullPointerException("null url or body");
+        }
+        byte[] bytes = body.getBytes("utf-8");
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(ConnectionPool.connectTimeoutMillis);
+        connection.setDoOutput(true);
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-type", "application/json");
+        connection.setFixedLengthStreamingMode(bytes.length);
+
+        OutputStream stream = connection.getOutputStream();
+        stream.write(bytes);
+        stream.flush();
+        stream.close();
+        return read(connection);
+    }
+
+    @Override
+    public CompletableFuture<String> getAsync(String url) {
+        if (url == null) {
+            throw new NullPointerException("null url");
+        }
+        return Utils.supplyAsync(() -> get(url));
+    }
+
+    @Override
+    public CompletableFuture<String> postAsync(String url, String body) {
+        if (url == null || body == null) {
+            throw new NullPointerException("null url or body");
+        }
+        return Utils.supplyAsync(() -> post(url, body));
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private static String read(HttpURLConnection connection) throws IOException {
+        return drain(open(connection));
+    }
+
+    private static InputStream open(HttpURLConnection connection) throws IOException {
+        try {
+            return connection.getInputStream();
+        } catch (IOException e) {
+            // the error stream must be read to the end, otherwise the connection will not be reused
+            InputStream error = connection.getErrorStream();
+            if (error != null) {
+                drain(error);
+            }
+            if (e instanceof FileNotFoundException) {
+                throw e;
+            }
+            // the error status without the body is the answer of the server too
+            int code;
+            try {
+                code = connection.getResponseCode();
+            } catch (IOException ignored) {
+                throw e;
+            }
+            if (code < 400) {
+                // no valid error status, the connection error
+                throw e;
+            }
+            throw new HttpStatusException(code, connection.getURL().toString());
+        }
+    }
+
+    private static String drain(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        try {
+            int read;
+            while ((read = input.read(buffer)) >= 0) {
+                output.write(buffer, 0, read);
+            }
+        } finally {
+            input.close();
+        }
+        return output.toString("utf-8");
+    }
+}
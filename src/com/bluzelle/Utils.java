@@ -3,6 +3,11 @@
 //    String response = Utils.get(endpointString, pathString, keyString);
 //    String response = Utils.get(endpointString, pathString);
 //    String response = Utils.post(endpointString, dataJsonObject);
+//    String response = Utils.get(transport, endpointString, pathString, keyStringOrNull);
+//    T result = Utils.get(transport, endpointString, pathString, keyStringOrNull, bodyReader);
+//    String response = Utils.post(transport, endpointString, dataJsonObject);
+//    String response = Utils.post(transport, endpointString, pathString, dataJsonObject);
+//    CompletableFuture<String> response = Utils.getAsync(transport, endpointString, pathString, keyStringOrNull);
 //    String bluzelleAddress = Utils.getAddress(hdKeyPair);
 //    byte[] sha256hash = Utils.sha256hash(messageBytes);
 //    String memo = Utils.randomString();
@@ -12,23 +17,22 @@
 package com.bluzelle;
 
 import com.bluzelle.crypto.Bech32;
+import com.bluzelle.crypto.Hashes;
 import com.bluzelle.crypto.HdKeyPair;
-import com.bluzelle.crypto.Ripemd160;
 
-import java.io.*;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.net.URLConnection;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.concurrent.*;
 
 @SuppressWarnings("WeakerAccess")
 public class Utils {
     private static final String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
     private static final String hex = "0123456789ABCDEF";
+    // default transport, keep-alive connections shared by all clients
+    static final ConnectionPool pool = new ConnectionPool(8, 30000);
 
     /**
-     * perform get request
+     * perform get request using the default transport
      *
      * @param endpoint url endpoint
      * @param path     url path
@@ -38,17 +42,11 @@ public class Utils {
      * @throws ConnectionException  if can not connect
      */
     public static String get(String endpoint, String path, String key) {
-        try {
-            return get(endpoint + path);
-        } catch (FileNotFoundException e) {
-            throw new KeyNotFoundException(key);
-        } catch (IOException e) {
-            throw new ConnectionException(e);
-        }
+        return get(pool, endpoint, path, key);
     }
 
     /**
-     * perform get request
+     * perform get request using the default transport
      *
      * @param endpoint url endpoint
      * @param path     url path
@@ -56,33 +54,58 @@ public class Utils {
      * @throws ConnectionException if can not connect
      */
     public static String get(String endpoint, String path) {
+        return get(pool, endpoint, path, null);
+    }
+
+    /**
+     * perform get request
+     *
+     * @param transport transport to perform request
+     * @param endpoint  url endpoint
+     * @param path      url path
+     * @param key       String for the custom exception or null
+     * @return response String
+     * @throws NullPointerException if transport == null
+     * @throws KeyNotFoundException if key != null and key does not exist
+     * @throws ConnectionException  if can not connect
+     */
+    public static String get(Transport transport, String endpoint, String path, String key) {
         try {
-            return get(endpoint + path);
+            return transport.get(endpoint + path);
         } catch (IOException e) {
-            throw new ConnectionException(e);
+            throw toRuntimeException(e, key);
         }
     }
 
-    private static String get(String path) throws IOException {
-        URL url = new URL(path);
-        URLConnection connection = url.openConnection();
-        connection.setConnectTimeout(5000);
-
-        BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-        StringBuilder builder = new StringBuilder();
-        String input;
-        do {
-            input = reader.readLine();
-            if (input == null) {
-                reader.close();
-                return builder.toString();
-            }
-            builder.append(input);
-        } while (true);
+    /**
+     * perform get request, the reader reads the body while it is received
+     *
+     * @param transport transport to perform request
+     * @param endpoint  url endpoint
+     * @param path      url path
+     * @param key       String for the custom exception or null
+     * @param reader    reads the body of the response
+     * @return result of the reader
+     * @throws NullPointerException if transport == null or reader == null
+     * @throws KeyNotFoundException if key != null and key does not exist
+     * @throws ConnectionException  if can not connect or can not read the body
+     */
+    public static <T> T get(
+            Transport transport,
+            String endpoint,
+            String path,
+            String key,
+            Transport.BodyReader<T> reader
+    ) {
+        try {
+            return transport.get(endpoint + path, reader);
+        } catch (IOException e) {
+            throw toRuntimeException(e, key);
+        }
     }
 
     /**
-     * perform post request
+     * perform post request using the default transport
      *
      * @param endpoint url endpoint
      * @param data     Object.toString() to post
@@ -91,43 +114,136 @@ public class Utils {
      * @throws ConnectionException  if can not connect
      */
     public static String post(String endpoint, Object data) {
+        return post(pool, endpoint, data);
+    }
+
+    /**
+     * perform post request
+     *
+     * @param transport transport to perform request
+     * @param endpoint  url endpoint
+     * @param data      Object.toString() to post
+     * @return response String
+     * @throws NullPointerException if transport == null or data == null
+     * @throws ConnectionException  if can not connect
+     */
+    public static String post(Transport transport, String endpoint, Object data) {
+        return post(transport, endpoint, "/txs", data);
+    }
+
+    /**
+     * perform post request to the path
+     *
+     * @param transport transport to perform request
+     * @param endpoint  url endpoint
+     * @param path      url path
+     * @param data      Object.toString() to post
+     * @return response String
+     * @throws NullPointerException if transport == null or data == null
+     * @throws ConnectionException  if can not connect
+     */
+    public static String post(Transport transport, String endpoint, String path, Object data) {
+        String body = data.toString();
         try {
-            URL url = new URL(endpoint + "/txs");
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setConnectTimeout(5000);
-            connection.setDoOutput(true);
-            connection.setRequestMethod("POST");
-            connection.setRequestProperty("Content-type", "application/json");
-
-            OutputStream stream = connection.getOutputStream();
-            stream.write(data.toString().getBytes("utf-8"));
-            stream.flush();
-            stream.close();
-
-            BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-            StringBuilder builder = new StringBuilder();
-            String input;
-            do {
-                input = reader.readLine();
-                if (input == null) {
-                    reader.close();
-                    return builder.toString();
-                }
-                builder.append(input);
-            } while (true);
+            return transport.post(endpoint + path, body);
         } catch (IOException e) {
             throw new ConnectionException(e);
         }
     }
 
+    /**
+     * perform get request without blocking the caller
+     *
+     * @param transport transport to perform request
+     * @param endpoint  url endpoint
+     * @param path      url path
+     * @param key       String for the custom exception or null
+     * @return future with the response String,
+     * completes exceptionally with KeyNotFoundException or ConnectionException
+     * @throws NullPointerException if transport == null
+     */
+    public static CompletableFuture<String> getAsync(Transport transport, String endpoint, String path, String key) {
+        CompletableFuture<String> out = new CompletableFuture<>();
+        transport.getAsync(endpoint + path).whenComplete((response, throwable) -> {
+            if (throwable == null) {
+                out.complete(response);
+                return;
+            }
+            if (throwable instanceof CompletionException && throwable.getCause() != null) {
+                throwable = throwable.getCause();
+            }
+            out.completeExceptionally(
+                    throwable instanceof IOException ? toRuntimeException((IOException) throwable, key) : throwable
+            );
+        });
+        return out;
+    }
+
+    // maps transport exceptions to the exceptions of this library
+    static RuntimeException toRuntimeException(IOException e, String key) {
+        if (key != null && e instanceof FileNotFoundException) {
+            return new KeyNotFoundException(key);
+        }
+        return new ConnectionException(e);
+    }
+
+    // runs supplier on the default executor, completes exceptionally with its IOException
+    static <T> CompletableFuture<T> supplyAsync(IoSupplier<T> supplier) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        defaultExecutor().execute(() -> {
+            try {
+                future.complete(supplier.get());
+            } catch (IOException | RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    // default executor for the blocking calls, created on the first use,
+    // threads are daemons and die after 60 seconds of idle
+    static Executor defaultExecutor() {
+        return DefaultExecutor.executor;
+    }
+
+    // default scheduler for the delayed tasks, one daemon thread created on the first use,
+    // tasks must not block
+    static ScheduledExecutorService scheduler() {
+        return DefaultScheduler.scheduler;
+    }
+
+    interface IoSupplier<T> {
+        T get() throws IOException;
+    }
+
+    private static class DefaultExecutor {
+        static final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "bluzelle-io");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static class DefaultScheduler {
+        static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bluzelle-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
     /**
      * @param keyPair HdKeyPair keypair from which will be created address
      * @return String address
      * @throws NullPointerException if keyPair == null
      */
     public static String getAddress(HdKeyPair keyPair) {
-        byte[] hash = Ripemd160.getHash(sha256hash(keyPair.publicKeyToByteArray()));
-        return Bech32.encode("bluzelle", hash);
+        return publicKeyToAddress(keyPair.publicKeyToByteArray());
+    }
+
+    // address of the 33-bytes compressed public key
+    static String publicKeyToAddress(byte[] publicKey) {
+        return Bech32.encode("bluzelle", Hashes.hash160(publicKey));
     }
 
     /**
@@ -136,14 +252,7 @@ public class Utils {
      * @throws NullPointerException if message == null
      */
     public static byte[] sha256hash(byte[] message) {
-        MessageDigest sha256;
-        try {
-            sha256 = MessageDigest.getInstance("SHA-256");
-        } catch (NoSuchAlgorithmException e) {
-            e.printStackTrace();
-            throw new RuntimeException(e);
-        }
-        return sha256.digest(message);
+        return Hashes.sha256(message);
     }
 
     /**
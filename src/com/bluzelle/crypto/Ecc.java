@@ -5,25 +5,37 @@
 //    BigInteger x = point.x;
 //    BigInteger y = point.y;
 //    byte[] signature = Ecc.ecc.sign(messageBytes, privateKeyBigInteger);
+//    byte[] signature = Ecc.ecc.sign(messageBytes, privateKeyBigInteger, extraEntropyBytes);
 //    bool verified = Ecc.ecc.verify(messageBytes, publicKeyPoint, signatureBytes);
+//    boolean[] verified = Ecc.ecc.verifyBatch(messagesList, publicKeysList, signaturesList);
 package com.bluzelle.crypto;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 import java.math.BigInteger;
-import java.security.SecureRandom;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
-import java.util.Random;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class Ecc {
     public static final Ecc ecc = new Ecc();
-    private static final BigInteger two = BigInteger.valueOf(2);
-    private static final BigInteger three = BigInteger.valueOf(3);
+    // nonce generation does not create the Mac for each signature
+    private static final ThreadLocal<Mac> hmacSha256 = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance("HmacSHA256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    });
 
-    private final BigInteger p = new BigInteger("fffffffffffffffffffffffffffffffffffffffffffffffffffffffefffffc2f", 16);
     // subgroup, g * r = g * (r % n)
     // subgroup order, n is the smallest integer such that g * n = infinity, n < p; 0 < private key < n
     @SuppressWarnings("WeakerAccess")
-    public final BigInteger n = new BigInteger("fffffffffffffffffffffffffffffffebaaedce6af48a03bbfd25e8cd0364141", 16);
-    private final BigInteger halfN = n.divide(BigInteger.valueOf(2)); // = n / 2
+    public final BigInteger n = Scalar.n;
     // base point, generator
     private final Point g = new Point(
             new BigInteger("79BE667EF9DCBBAC55A06295CE870B07029BFCDB2DCE28D959F2815B16F81798", 16),
@@ -31,6 +43,26 @@ public class Ecc {
     );
     // point at infinity, infinity + q = q, infinity * r = infinity
     private final Point infinity = new Point();
+    // fixed-base table, gTable[i][j] = g * (j + 1) * 16**i, 64 windows of 4 bits, built on the first use
+    private volatile Point[][] gTable;
+    // endomorphism, (x, y) * lambda = (x * beta, y)
+    private final BigInteger lambda =
+            new BigInteger("5363ad4cc05c30e0a5261c028812645a122e22ea20816678df02967c1b23bd72", 16);
+    private final FieldElement beta = new FieldElement().set(
+            new BigInteger("7ae96a2b657c07106e64479eac3434e99cf0497512f58995c1396c28719501ee", 16)
+    );
+    // short basis of the lattice {(k1, k2): k1 + k2 * lambda = 0 mod n}, (a1, b1) and (a2, b2)
+    private final BigInteger a1 = new BigInteger("3086d221a7d46bcde86c90e49284eb15", 16);
+    private final BigInteger b1 = new BigInteger("-e4437ed6010e88286f547fa90abfe4c3", 16);
+    private final BigInteger a2 = new BigInteger("114ca50f7a8e2f3f657c1108d9d44cfd8", 16);
+    private final BigInteger b2 = a1;
+    // odd multiples for the wnaf, gOddTable[0][i] = g * (2 * i + 1), gOddTable[1][i] = endomorphism of it
+    private static final int gWindow = 7;
+    private static final int window = 5;
+    private volatile Point[][] gOddTable;
+    private final BigInteger pMinusN = FieldElement.p.subtract(n);
+    // items of the batch verified by one thread
+    static final int batchChunk = 128;
 
     private Ecc() {
     }
@@ -42,10 +74,43 @@ public class Ecc {
      */
     @SuppressWarnings("WeakerAccess")
     public Point gMultiply(BigInteger r) {
-        return g.multiply(r);
+        // g * r = g * (r % n)
+        return gMultiply(new Scalar().set(r)).toPoint();
+    }
+
+    // returns g * r[i], the points are converted to the affine coordinates with one inversion
+    Point[] gMultiplyAll(BigInteger[] r) {
+        Jacobian[] points = new Jacobian[r.length];
+        for (int i = 0; i < r.length; i++) {
+            points[i] = gMultiply(new Scalar().set(r[i]));
+        }
+        return toPoints(points);
+    }
+
+    // returns point * r
+    Point multiply(Point point, BigInteger r) {
+        return point.multiply(new Scalar().set(r)).toPoint();
+    }
+
+    // returns g * u1 + q * u2
+    Point gMultiplyAdd(BigInteger u1, Point q, BigInteger u2) {
+        return gMultiplyAdd(new Scalar().set(u1), oddTables(q), new Scalar().set(u2)).toPoint();
+    }
+
+    // returns k1 and k2, k = k1 + k2 * lambda mod n, |k1| and |k2| < 2**129
+    BigInteger[] split(BigInteger k) {
+        // c1 = round(b2 * k / n), c2 = round(-b1 * k / n)
+        BigInteger c1 = b2.multiply(k).shiftLeft(1).add(n).divide(n.shiftLeft(1));
+        BigInteger c2 = b1.negate().multiply(k).shiftLeft(1).add(n).divide(n.shiftLeft(1));
+        // (k1, k2) = (k, 0) - c1 * (a1, b1) - c2 * (a2, b2)
+        BigInteger k1 = k.subtract(c1.multiply(a1)).subtract(c2.multiply(a2));
+        BigInteger k2 = c1.multiply(b1).add(c2.multiply(b2)).negate();
+        return new BigInteger[]{k1, k2};
     }
 
     /**
+     * signs with the deterministic nonce, the same message and key give the same signature
+     *
      * @param message the message to be signed
      * @param d       private key to sign message
      * @return 64 byte array r and s, big endian
@@ -53,40 +118,49 @@ public class Ecc {
      * @throws IllegalArgumentException if message is too big
      */
     public byte[] sign(byte[] message, BigInteger d) {
+        return sign(message, d, null);
+    }
+
+    /**
+     * @param message      the message to be signed
+     * @param d            private key to sign message
+     * @param extraEntropy additional data mixed into the nonce or null, rfc 6979 section 3.6
+     * @return 64 byte array r and s, big endian
+     * @throws NullPointerException     if message == null or d == null
+     * @throws IllegalArgumentException if message is too big
+     */
+    @SuppressWarnings("WeakerAccess")
+    public byte[] sign(byte[] message, BigInteger d, byte[] extraEntropy) {
         BigInteger z = new BigInteger(1, message);
         if (z.bitLength() > n.bitLength()) {
             throw new IllegalArgumentException("the message is too big, requires bitLength <= n.bitLength");
         }
-        BigInteger r;
-        BigInteger s = BigInteger.ZERO;
-        Random random = new SecureRandom();
+        Scalar zScalar = new Scalar().set(z);
+        Scalar dScalar = new Scalar().set(d);
+        Scalar kScalar = new Scalar();
+        Scalar r = new Scalar();
+        Scalar s = new Scalar();
+        Nonce nonce = new Nonce(dScalar, zScalar, extraEntropy);
         do {
-            // random integer k, 1 <= k < n
-            BigInteger k;
-            do {
-                k = new BigInteger(n.bitLength(), random);
-            } while (k.bitLength() < (n.bitLength() >> 1) || k.compareTo(n) >= 0);
+            // deterministic integer k, 1 <= k < n
+            kScalar.set(nonce.next());
             // p = g * k
             // r = px % n
-            r = gMultiply(k).x.mod(n);
-            if (r.signum() == 0) {
+            r.set(gMultiply(kScalar).toPoint().fieldX);
+            if (r.isZero()) {
                 continue;
             }
             // s * k = (z + r * d)
             // s = k**(-1) * (z + r * d) % n
-            s = k.modInverse(n).multiply(z.add(r.multiply(d))).mod(n);
-            if (s.compareTo(halfN) > 0) {
-                s = n.subtract(s);
+            s.multiply(r, dScalar).add(s, zScalar).multiply(s, kScalar.inverse(kScalar));
+            if (s.isHigh()) {
+                s.negate(s);
             }
-        } while (s.signum() == 0);
+        } while (s.isZero());
 
         byte[] signature = new byte[64];
-        byte[] rBytes = r.toByteArray();
-        int rStart = rBytes[0] == 0 ? 1 : 0;
-        System.arraycopy(rBytes, rStart, signature, 32 - (rBytes.length - rStart), rBytes.length - rStart);
-        byte[] sBytes = s.toByteArray();
-        int sStart = sBytes[0] == 0 ? 1 : 0;
-        System.arraycopy(sBytes, sStart, signature, 64 - (sBytes.length - sStart), sBytes.length - sStart);
+        r.toBytes(signature, 0);
+        s.toBytes(signature, 32);
         return signature;
     }
 
@@ -100,28 +174,430 @@ public class Ecc {
      */
     @SuppressWarnings("WeakerAccess")
     public boolean verify(byte[] message, Point publicKey, byte[] signature) {
+        BigInteger[] zrs = parse(message, signature);
+        if (zrs == null) {
+            return false;
+        }
+        Scalar sInverse = new Scalar().set(zrs[2]);
+        sInverse.inverse(sInverse);
+        return verify(new Scalar().set(zrs[0]), oddTables(publicKey), zrs[1], sInverse);
+    }
+
+    /**
+     * verifies many signatures, the inversions and the tables of the repeated public keys are shared,
+     * batches larger than batchChunk are split between the threads of the ForkJoinPool.commonPool()
+     *
+     * @param messages   the messages whose signatures to be verify
+     * @param publicKeys public keys as Points
+     * @param signatures 64 byte arrays r and s big endian
+     * @return array with true for each valid signature and false for the invalid or malformed one
+     * @throws NullPointerException     if any argument or item == null
+     * @throws IllegalArgumentException if the sizes are different
+     */
+    @SuppressWarnings("WeakerAccess")
+    public boolean[] verifyBatch(List<byte[]> messages, List<Point> publicKeys, List<byte[]> signatures) {
+        return verifyBatch(messages, publicKeys, signatures, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool executes the chunks of the large batch
+     * @throws NullPointerException     if any argument or item == null
+     * @throws IllegalArgumentException if the sizes are different
+     * @see #verifyBatch(List, List, List)
+     */
+    @SuppressWarnings("WeakerAccess")
+    public boolean[] verifyBatch(
+            List<byte[]> messages,
+            List<Point> publicKeys,
+            List<byte[]> signatures,
+            ForkJoinPool pool
+    ) {
+        if (pool == null) {
+            throw new NullPointerException("null pool");
+        }
+        int size = messages.size();
+        if (publicKeys.size() != size || signatures.size() != size) {
+            throw new IllegalArgumentException("different sizes");
+        }
+        byte[][] messageArray = messages.toArray(new byte[size][]);
+        Point[] publicKeyArray = publicKeys.toArray(new Point[size]);
+        byte[][] signatureArray = signatures.toArray(new byte[size][]);
+        for (int i = 0; i < size; i++) {
+            if (messageArray[i] == null || publicKeyArray[i] == null || signatureArray[i] == null) {
+                throw new NullPointerException("null item " + i);
+            }
+        }
+        boolean[] result = new boolean[size];
+        BatchTask task = new BatchTask(messageArray, publicKeyArray, signatureArray, result, 0, size);
+        if (size <= batchChunk) {
+            task.compute();
+        } else {
+            pool.invoke(task);
+        }
+        return result;
+    }
+
+    // returns z, r and s, or null if the message is too big or r or s is out of the range
+    private BigInteger[] parse(byte[] message, byte[] signature) {
         BigInteger z = new BigInteger(1, message);
         if (z.bitLength() > n.bitLength()) {
-            return false;
+            return null;
         }
 
         BigInteger r = new BigInteger(1, Arrays.copyOfRange(signature, 0, 32));
         BigInteger s = new BigInteger(1, Arrays.copyOfRange(signature, 32, 64));
 
         if (r.signum() != 1 || r.compareTo(n) >= 0) {
-            return false;
+            return null;
         }
         if (s.signum() != 1 || s.compareTo(n) >= 0) {
-            return false;
+            return null;
         }
+        return new BigInteger[]{z, r, s};
+    }
+
+    // verifies the parsed signature, qTables are oddTables(publicKey)
+    private boolean verify(Scalar z, Point[][] qTables, BigInteger r, Scalar sInverse) {
         // p = g * k
         // s * k = (z + r * d)
         // p = g * s**(-1) * (z + r * d) = g * s**(-1) * z + g * d * s**(-1) * r
         // = g * s**(-1) * z + publicKey * s**(-1) * r
-        BigInteger sInverse = s.modInverse(n);
-        Point p = gMultiply(sInverse.multiply(z)).add(publicKey.multiply(sInverse.multiply(r)));
-        // r == px % n
-        return r.compareTo(p.x.mod(n)) == 0;
+        Scalar u1 = new Scalar().multiply(z, sInverse);
+        Scalar u2 = new Scalar().multiply(new Scalar().set(r), sInverse);
+        Jacobian p = gMultiplyAdd(u1, qTables, u2);
+        if (p.isInfinity()) {
+            return false;
+        }
+        // r == px % n, px < p < 2 * n, so px is r or r + n
+        if (p.hasX(new FieldElement().set(r))) {
+            return true;
+        }
+        return r.compareTo(pMinusN) < 0 && p.hasX(new FieldElement().set(r.add(n)));
+    }
+
+    // verifies [from, to) of the batch, splits the large range in two
+    private class BatchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final byte[][] messages;
+        private final Point[] publicKeys;
+        private final byte[][] signatures;
+        private final boolean[] result;
+        private final int from;
+        private final int to;
+
+        private BatchTask(
+                byte[][] messages,
+                Point[] publicKeys,
+                byte[][] signatures,
+                boolean[] result,
+                int from,
+                int to
+        ) {
+            this.messages = messages;
+            this.publicKeys = publicKeys;
+            this.signatures = signatures;
+            this.result = result;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > batchChunk) {
+                int middle = (from + to) >>> 1;
+                invokeAll(
+                        new BatchTask(messages, publicKeys, signatures, result, from, middle),
+                        new BatchTask(messages, publicKeys, signatures, result, middle, to)
+                );
+                return;
+            }
+            int size = to - from;
+            BigInteger[][] parsed = new BigInteger[size][];
+            Scalar[] inverses = new Scalar[size];
+            // prefix[i] = product of s of the previous items, the one inversion for all items
+            Scalar product = new Scalar().set(BigInteger.ONE);
+            for (int i = 0; i < size; i++) {
+                if (signatures[from + i].length >= 32) {
+                    parsed[i] = parse(messages[from + i], signatures[from + i]);
+                }
+                if (parsed[i] != null) {
+                    inverses[i] = new Scalar().set(product);
+                    product.multiply(product, new Scalar().set(parsed[i][2]));
+                }
+            }
+            product.inverse(product);
+            Scalar s = new Scalar();
+            for (int i = size - 1; i >= 0; i--) {
+                if (parsed[i] != null) {
+                    s.set(parsed[i][2]);
+                    inverses[i].multiply(inverses[i], product);
+                    product.multiply(product, s);
+                }
+            }
+            // <x of the public key, tables>
+            HashMap<BigInteger, Point[][]> tables = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                if (parsed[i] == null) {
+                    continue;
+                }
+                Point publicKey = publicKeys[from + i];
+                Point[][] qTables = tables.get(publicKey.x);
+                if (qTables == null || !qTables[0][0].y.equals(publicKey.y)) {
+                    qTables = oddTables(publicKey);
+                    tables.put(publicKey.x, qTables);
+                }
+                result[from + i] = verify(new Scalar().set(parsed[i][0]), qTables, parsed[i][1], inverses[i]);
+            }
+        }
+    }
+
+    // returns g * r
+    private Jacobian gMultiply(Scalar r) {
+        Point[][] table = getGTable();
+        // g * r = sum(g * window_i * 16**i)
+        Jacobian result = new Jacobian().set(infinity);
+        for (int i = 0; i < 64; i++) {
+            int window = r.limbs[i >>> 3] >>> ((i & 7) << 2) & 0xf;
+            if (window != 0) {
+                result.add(table[i][window - 1]);
+            }
+        }
+        return result;
+    }
+
+    // returns g * u1 + q * u2, strauss-shamir over g, endomorphism of g, q and endomorphism of q
+    // with the scalars split into halves of 129 bits, the doublings are shared, qTables are oddTables(q)
+    private Jacobian gMultiplyAdd(Scalar u1, Point[][] qTables, Scalar u2) {
+        Point[][] gTables = getGOddTable();
+        BigInteger[] gHalves = split(u1.toBigInteger());
+        int[][] digits = new int[4][];
+        Point[][] tables = new Point[4][];
+        digits[0] = wnaf(gHalves[0], gWindow);
+        tables[0] = gTables[0];
+        digits[1] = wnaf(gHalves[1], gWindow);
+        tables[1] = gTables[1];
+        int count = 2;
+        if (qTables != null && !u2.isZero()) {
+            BigInteger[] qHalves = split(u2.toBigInteger());
+            digits[2] = wnaf(qHalves[0], window);
+            tables[2] = qTables[0];
+            digits[3] = wnaf(qHalves[1], window);
+            tables[3] = qTables[1];
+            count = 4;
+        }
+        Jacobian result = new Jacobian().set(infinity);
+        for (int i = digits[0].length - 1; i >= 0; i--) {
+            result.getTwice();
+            for (int j = 0; j < count; j++) {
+                int digit = digits[j][i];
+                if (digit > 0) {
+                    result.add(tables[j][digit >>> 1], false);
+                } else if (digit < 0) {
+                    result.add(tables[j][-digit >>> 1], true);
+                }
+            }
+        }
+        return result;
+    }
+
+    // returns odd multiples of q for the window and the endomorphism of them, null for the infinity
+    private Point[][] oddTables(Point q) {
+        if (q.isInfinity()) {
+            return null;
+        }
+        Point[] odd = oddMultiples(q, 1 << (window - 2));
+        return new Point[][]{odd, endomorphism(odd)};
+    }
+
+    // returns width-w non-adjacent form, 131 signed odd digits from the lowest, |k| < 2**130
+    private static int[] wnaf(BigInteger k, int w) {
+        int[] digits = new int[131];
+        int sign = k.signum();
+        k = k.abs();
+        int length = k.bitLength();
+        int carry = 0;
+        int bit = 0;
+        while (bit < length) {
+            if ((k.testBit(bit) ? 1 : 0) == carry) {
+                bit++;
+                continue;
+            }
+            int now = Math.min(w, length - bit);
+            int word = carry;
+            for (int i = now - 1; i >= 0; i--) {
+                word += (k.testBit(bit + i) ? 1 : 0) << i;
+            }
+            carry = word >>> (w - 1) & 1;
+            word -= carry << w;
+            digits[bit] = word * sign;
+            bit += now;
+        }
+        digits[bit] = carry * sign;
+        return digits;
+    }
+
+    // returns point * (2 * i + 1) for i < count
+    private Point[] oddMultiples(Point point, int count) {
+        Jacobian[] multiples = new Jacobian[count];
+        Jacobian twice = new Jacobian().set(point).getTwice();
+        multiples[0] = new Jacobian().set(point);
+        for (int i = 1; i < count; i++) {
+            multiples[i] = new Jacobian().set(multiples[i - 1]).add(twice);
+        }
+        return toPoints(multiples);
+    }
+
+    // returns the points in the affine coordinates with one inversion, montgomery trick
+    private Point[] toPoints(Jacobian[] points) {
+        Point[] result = new Point[points.length];
+        if (points.length == 0) {
+            return result;
+        }
+        // products[i] = z0 * z1 * ... * zi, the infinity is skipped
+        FieldElement[] products = new FieldElement[points.length];
+        FieldElement one = new FieldElement().set(1);
+        for (int i = 0; i < points.length; i++) {
+            FieldElement previous = i == 0 ? one : products[i - 1];
+            products[i] = points[i].isInfinity()
+                    ? previous
+                    : new FieldElement().multiply(previous, points[i].z);
+        }
+        // inverse = products[i]**(-1), zi**(-1) = inverse * products[i - 1]
+        FieldElement inverse = new FieldElement().inverse(products[points.length - 1]);
+        FieldElement zInverse = new FieldElement();
+        FieldElement zzInverse = new FieldElement();
+        FieldElement x = new FieldElement();
+        FieldElement y = new FieldElement();
+        for (int i = points.length - 1; i >= 0; i--) {
+            if (points[i].isInfinity()) {
+                result[i] = infinity;
+                continue;
+            }
+            zInverse.multiply(inverse, i == 0 ? one : products[i - 1]);
+            inverse.multiply(inverse, points[i].z);
+            zzInverse.square(zInverse);
+            x.multiply(points[i].x, zzInverse);
+            y.multiply(points[i].y, zzInverse.multiply(zzInverse, zInverse));
+            result[i] = new Point(x, y);
+        }
+        return result;
+    }
+
+    // returns points * lambda = (x * beta, y)
+    private Point[] endomorphism(Point[] points) {
+        Point[] result = new Point[points.length];
+        FieldElement x = new FieldElement();
+        for (int i = 0; i < points.length; i++) {
+            result[i] = new Point(x.multiply(points[i].fieldX, beta), points[i].fieldY);
+        }
+        return result;
+    }
+
+    private Point[][] getGOddTable() {
+        Point[][] table = gOddTable;
+        if (table == null) {
+            synchronized (this) {
+                table = gOddTable;
+                if (table == null) {
+                    Point[] odd = oddMultiples(g, 1 << (gWindow - 2));
+                    table = new Point[][]{odd, endomorphism(odd)};
+                    gOddTable = table;
+                }
+            }
+        }
+        return table;
+    }
+
+    private Point[][] getGTable() {
+        Point[][] table = gTable;
+        if (table == null) {
+            synchronized (this) {
+                table = gTable;
+                if (table == null) {
+                    table = new Point[64][15];
+                    Point base = g;
+                    Jacobian sum = new Jacobian();
+                    for (int i = 0; i < 64; i++) {
+                        table[i][0] = base;
+                        sum.set(base);
+                        for (int j = 1; j < 15; j++) {
+                            table[i][j] = sum.add(base).toPoint();
+                        }
+                        // base * 16 = base * 15 + base
+                        base = sum.add(base).toPoint();
+                    }
+                    gTable = table;
+                }
+            }
+        }
+        return table;
+    }
+
+    // deterministic nonces, rfc 6979 with hmac-sha256, qlen = hlen = 256
+    static class Nonce {
+        private final Mac mac = hmacSha256.get();
+        private byte[] k = new byte[32];
+        private byte[] v = new byte[32];
+        private boolean used = false;
+
+        /**
+         * @param d            private key
+         * @param z            the message, bits2octets(h1) = int2octets(z % n)
+         * @param extraEntropy additional data or null
+         */
+        Nonce(Scalar d, Scalar z, byte[] extraEntropy) {
+            byte[] x = new byte[32];
+            d.toBytes(x, 0);
+            byte[] h = new byte[32];
+            z.toBytes(h, 0);
+            Arrays.fill(v, (byte) 1);
+            for (int i = 0; i <= 1; i++) {
+                // k = hmac_k(v || i || x || h || extraEntropy), v = hmac_k(v)
+                init();
+                mac.update(v);
+                mac.update((byte) i);
+                mac.update(x);
+                mac.update(h);
+                if (extraEntropy != null) {
+                    mac.update(extraEntropy);
+                }
+                k = mac.doFinal();
+                init();
+                v = mac.doFinal(v);
+            }
+        }
+
+        /**
+         * @return the next candidate, 1 <= k < n
+         */
+        BigInteger next() {
+            while (true) {
+                if (used) {
+                    // the previous k was rejected, k = hmac_k(v || 0), v = hmac_k(v)
+                    init();
+                    mac.update(v);
+                    mac.update((byte) 0);
+                    k = mac.doFinal();
+                    init();
+                    v = mac.doFinal(v);
+                }
+                used = true;
+                init();
+                v = mac.doFinal(v);
+                BigInteger candidate = new BigInteger(1, v);
+                if (candidate.signum() > 0 && candidate.compareTo(Scalar.n) < 0) {
+                    return candidate;
+                }
+            }
+        }
+
+        private void init() {
+            try {
+                mac.init(new SecretKeySpec(k, "HmacSHA256"));
+            } catch (InvalidKeyException e) {
+                throw new RuntimeException(e);
+            }
+        }
     }
 
     @SuppressWarnings("WeakerAccess")
@@ -129,107 +605,206 @@ public class Ecc {
         // point on the elliptic curve, immutable
         public final BigInteger x; // -1 for the point at infinity
         public final BigInteger y;
+        private final FieldElement fieldX; // null for the point at infinity
+        private final FieldElement fieldY;
 
         // creates point at infinity
         private Point() {
             x = BigInteger.valueOf(-1);
             y = BigInteger.ZERO;
+            fieldX = null;
+            fieldY = null;
         }
 
         private Point(BigInteger x, BigInteger y) {
             this.x = x;
             this.y = y;
+            fieldX = new FieldElement().set(x);
+            fieldY = new FieldElement().set(y);
+        }
+
+        private Point(FieldElement x, FieldElement y) {
+            fieldX = new FieldElement().set(x);
+            fieldY = new FieldElement().set(y);
+            this.x = fieldX.toBigInteger();
+            this.y = fieldY.toBigInteger();
         }
 
         private boolean isInfinity() {
-            return x.signum() < 0;
+            return fieldX == null;
         }
 
-        private Point add(Point q) {
+        private Jacobian multiply(Scalar r) {
+            // double-and-add from the highest bit, one inversion at the end
+            Jacobian result = new Jacobian().set(infinity);
             if (isInfinity()) {
-                // 0 + q = q
-                return q;
+                // 0 * n = 0
+                return result;
             }
+            for (int bitN = 255; bitN >= 0; bitN--) {
+                result.getTwice();
+                if (r.testBit(bitN)) {
+                    result.add(this);
+                }
+            }
+            return result;
+        }
+    }
+
+    // point in jacobian coordinates, x = X / Z**2, y = Y / Z**3, mutable, the result is written to this
+    // addition and doubling do not need the inversion, point is converted to the affine once
+    private class Jacobian {
+        private final FieldElement x = new FieldElement(); // X
+        private final FieldElement y = new FieldElement(); // Y
+        private final FieldElement z = new FieldElement(); // Z, 0 for the point at infinity
+        private final FieldElement t1 = new FieldElement();
+        private final FieldElement t2 = new FieldElement();
+        private final FieldElement t3 = new FieldElement();
+        private final FieldElement t4 = new FieldElement();
+        private final FieldElement t5 = new FieldElement();
+        private final FieldElement t6 = new FieldElement();
+
+        private Jacobian set(Point point) {
+            if (point.isInfinity()) {
+                x.set(1);
+                y.set(1);
+                z.set(0);
+            } else {
+                x.set(point.fieldX);
+                y.set(point.fieldY);
+                z.set(1);
+            }
+            return this;
+        }
+
+        private Jacobian set(Jacobian q) {
+            x.set(q.x);
+            y.set(q.y);
+            z.set(q.z);
+            return this;
+        }
+
+        private boolean isInfinity() {
+            return z.isZero();
+        }
+
+        // this = this + q, q in the affine coordinates
+        private Jacobian add(Point q) {
+            return add(q, false);
+        }
+
+        // this = this + q or this = this - q, q in the affine coordinates
+        private Jacobian add(Point q, boolean subtract) {
             if (q.isInfinity()) {
-                // p + 0 = p
                 return this;
             }
-            int xCompare = x.compareTo(q.x);
-            if (xCompare == 0) {
-                if (y.compareTo(q.y) == 0) {
-                    // p + p = 2 * p
-                    return getTwice();
-                } else {
-                    // p - p = 0
-                    return infinity;
-                }
-            } else {
-                // for different points slope m = (y2 - y1) / (x2 - x1)
-                BigInteger m;
-                BigInteger deltaX;
-                if (xCompare > 0) {
-                    m = y.subtract(q.y);
-                    deltaX = x.subtract(q.x);
-                } else {
-                    m = q.y.subtract(y);
-                    deltaX = q.x.subtract(x);
-                }
-                // deltaY / deltaX = deltaY * deltaX**(-1)
-                if (deltaX.compareTo(BigInteger.ONE) > 0) {
-                    m = m.multiply(deltaX.modInverse(p));
+            if (isInfinity()) {
+                set(q);
+                if (subtract) {
+                    y.negate(y);
                 }
-                // y**2 = x**3 + t * x + k and y = m * x + n
-                // x**3 + (-m**2) * x**2 + (t - 2 * m * n) * x + (k - n**2) = 0
-                // x1 + x2 + x3 = -b / a = m**2
-                // rx = m**2 - px - qx
-                BigInteger rx = m.pow(2).subtract(x).subtract(q.x).mod(p);
-                // m * (rx - px) = ry - py
-                // ry = m * (rx - px) + py
-                BigInteger ry = m.multiply(rx.subtract(x)).add(y).mod(p);
-                // p + q + r = 0
-                // r = -(p + q)
-                return new Point(rx, p.subtract(ry));
+                return this;
+            }
+            // u2 = qx * Z**2, s2 = qy * Z**3
+            t1.square(z);
+            t2.multiply(q.fieldX, t1);
+            t3.multiply(q.fieldY, t1).multiply(t3, z);
+            if (subtract) {
+                t3.negate(t3);
+            }
+            // h = u2 - X, m = s2 - Y
+            t2.subtract(t2, x);
+            t3.subtract(t3, y);
+            if (t2.isZero()) {
+                // p + p = 2 * p, p - p = 0
+                return t3.isZero() ? getTwice() : set(infinity);
             }
+            // X3 = m**2 - h**3 - 2 * X * h**2
+            t1.square(t2);
+            t4.multiply(t1, t2);
+            t5.multiply(x, t1);
+            x.square(t3).subtract(x, t4).subtract(x, t5).subtract(x, t5);
+            // Y3 = m * (X * h**2 - X3) - Y * h**3
+            t5.subtract(t5, x).multiply(t5, t3);
+            t4.multiply(t4, y);
+            y.subtract(t5, t4);
+            // Z3 = Z * h
+            z.multiply(z, t2);
+            return this;
         }
 
-        private Point multiply(BigInteger r) {
-            if (isInfinity()) {
-                // 0 * n = 0
+        // this = this + q
+        private Jacobian add(Jacobian q) {
+            if (q.isInfinity()) {
                 return this;
             }
-            if (r.signum() == 0) {
-                // p * 0 = 0
-                return infinity;
+            if (isInfinity()) {
+                return set(q);
             }
-            if (r.signum() == -1) {
-                // p * (-r) = -(p * r)
-                Point inverse = multiply(r.negate());
-                return new Point(inverse.x, p.subtract(inverse.y));
+            // u1 = X1 * Z2**2, u2 = X2 * Z1**2, s1 = Y1 * Z2**3, s2 = Y2 * Z1**3
+            t1.square(z);
+            t2.square(q.z);
+            t3.multiply(x, t2);
+            t4.multiply(q.x, t1);
+            t5.multiply(y, t2).multiply(t5, q.z);
+            t6.multiply(q.y, t1).multiply(t6, z);
+            // h = u2 - u1, m = s2 - s1
+            t4.subtract(t4, t3);
+            t6.subtract(t6, t5);
+            if (t4.isZero()) {
+                // p + p = 2 * p, p - p = 0
+                return t6.isZero() ? getTwice() : set(infinity);
             }
+            // X3 = m**2 - h**3 - 2 * u1 * h**2
+            t1.square(t4);
+            t2.multiply(t1, t4);
+            t3.multiply(t3, t1);
+            x.square(t6).subtract(x, t2).subtract(x, t3).subtract(x, t3);
+            // Y3 = m * (u1 * h**2 - X3) - s1 * h**3
+            t3.subtract(t3, x).multiply(t3, t6);
+            t5.multiply(t5, t2);
+            y.subtract(t3, t5);
+            // Z3 = Z1 * Z2 * h
+            z.multiply(z, q.z).multiply(z, t4);
+            return this;
+        }
 
-            Point result = infinity;
-            Point twice = this;
-            int bitN = 0;
-            int stop = r.bitLength();
-            do {
-                if (r.testBit(bitN)) {
-                    result = result.add(twice);
-                }
-                twice = twice.getTwice();
-                bitN++;
-            } while (bitN != stop);
-            return result;
+        // this = this * 2
+        private Jacobian getTwice() {
+            if (isInfinity() || y.isZero()) {
+                return set(infinity);
+            }
+            // a = 0, s = 4 * X * Y**2, m = 3 * X**2
+            t1.square(y);
+            t2.multiply(x, t1).multiply(t2, 4);
+            t3.square(x).multiply(t3, 3);
+            // X3 = m**2 - 2 * s
+            x.square(t3).subtract(x, t2).subtract(x, t2);
+            // Z3 = 2 * Y * Z
+            z.multiply(y, z).multiply(z, 2);
+            // Y3 = m * (s - X3) - 8 * Y**4
+            t2.subtract(t2, x).multiply(t2, t3);
+            t1.square(t1).multiply(t1, 8);
+            y.subtract(t2, t1);
+            return this;
         }
 
-        // returns this * 2
-        private Point getTwice() {
-            // tangent slope m = (3 * x**2 + a) / (2 * y), a = 0
-            BigInteger m = three.multiply(x.pow(2)).multiply(two.multiply(y).modInverse(p));
-            // rx = m**2 - px - px
-            BigInteger rx = m.pow(2).subtract(x).subtract(x).mod(p);
-            // ry = m * (rx - px) + py
-            BigInteger ry = m.multiply(rx.subtract(x)).add(y).mod(p);
-            return new Point(rx, p.subtract(ry));
+        // returns true if X / Z**2 == affineX, this is not the infinity
+        private boolean hasX(FieldElement affineX) {
+            return t1.square(z).multiply(t1, affineX).isEqual(x);
+        }
+
+        // returns the point in the affine coordinates
+        private Point toPoint() {
+            if (isInfinity()) {
+                return infinity;
+            }
+            t1.inverse(z);
+            t2.square(t1);
+            t3.multiply(x, t2);
+            t2.multiply(t2, t1);
+            t4.multiply(y, t2);
+            return new Point(t3, t4);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,304 @@
+// element of the secp256k1 field, integer mod p = 2**256 - 2**32 - 977
+// usage:
+//    FieldElement a = new FieldElement().set(aBigInteger);
+//    FieldElement b = new FieldElement().set(a);
+//    a.multiply(a, b).add(a, b).subtract(a, b).square(a).multiply(a, 3).negate(a).inverse(a);
+//    BigInteger value = a.toBigInteger();
+//    boolean zero = a.isZero();
+// mutable, the result is written to this, the arguments can be this,
+// value is 8 little-endian 32-bit limbs always reduced to [0, p), arithmetic does not allocate
+package com.bluzelle.crypto;
+
+import java.math.BigInteger;
+
+final class FieldElement {
+    static final BigInteger p = new BigInteger(
+            "fffffffffffffffffffffffffffffffffffffffffffffffffffffffefffffc2f", 16
+    );
+    private static final long mask = 0xffffffffL;
+    // 2**256 % p = 2**32 + 977
+    private static final long c0 = 977;
+    private static final int[] pLimbs = {0xfffffc2f, 0xfffffffe, -1, -1, -1, -1, -1, -1};
+    final int[] limbs = new int[8];
+    private final int[] wide = new int[16]; // product before the reduction
+
+    /**
+     * @param value integer
+     * @return this = value % p
+     * @throws NullPointerException if value == null
+     */
+    FieldElement set(BigInteger value) {
+        if (value.signum() < 0 || value.compareTo(p) >= 0) {
+            value = value.mod(p);
+        }
+        byte[] bytes = value.toByteArray();
+        for (int i = 0; i < 8; i++) {
+            int limb = 0;
+            for (int j = 3; j >= 0; j--) {
+                int pos = bytes.length - 1 - i * 4 - j;
+                limb = limb << 8 | (pos >= 0 ? bytes[pos] & 0xff : 0);
+            }
+            limbs[i] = limb;
+        }
+        return this;
+    }
+
+    /**
+     * @return this = a
+     */
+    FieldElement set(FieldElement a) {
+        System.arraycopy(a.limbs, 0, limbs, 0, 8);
+        return this;
+    }
+
+    /**
+     * @param value 0 <= value
+     * @return this = value
+     */
+    FieldElement set(int value) {
+        limbs[0] = value;
+        for (int i = 1; i < 8; i++) {
+            limbs[i] = 0;
+        }
+        return this;
+    }
+
+    BigInteger toBigInteger() {
+        byte[] bytes = new byte[32];
+        toBytes(bytes, 0);
+        return new BigInteger(1, bytes);
+    }
+
+    /**
+     * writes 32 bytes big endian
+     */
+    void toBytes(byte[] bytes, int offset) {
+        for (int i = 0; i < 8; i++) {
+            int limb = limbs[7 - i];
+            bytes[offset + i * 4] = (byte) (limb >>> 24);
+            bytes[offset + i * 4 + 1] = (byte) (limb >>> 16);
+            bytes[offset + i * 4 + 2] = (byte) (limb >>> 8);
+            bytes[offset + i * 4 + 3] = (byte) limb;
+        }
+    }
+
+    boolean isZero() {
+        int or = 0;
+        for (int limb : limbs) {
+            or |= limb;
+        }
+        return or == 0;
+    }
+
+    boolean isOdd() {
+        return (limbs[0] & 1) != 0;
+    }
+
+    boolean isEqual(FieldElement a) {
+        for (int i = 0; i < 8; i++) {
+            if (limbs[i] != a.limbs[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return this = (a + b) % p
+     */
+    FieldElement add(FieldElement a, FieldElement b) {
+        long carry = 0;
+        for (int i = 0; i < 8; i++) {
+            carry += (a.limbs[i] & mask) + (b.limbs[i] & mask);
+            limbs[i] = (int) carry;
+            carry >>>= 32;
+        }
+        reduce(carry);
+        return this;
+    }
+
+    /**
+     * @return this = (a - b) % p
+     */
+    FieldElement subtract(FieldElement a, FieldElement b) {
+        long borrow = 0;
+        for (int i = 0; i < 8; i++) {
+            borrow += (a.limbs[i] & mask) - (b.limbs[i] & mask);
+            limbs[i] = (int) borrow;
+            borrow >>= 32;
+        }
+        if (borrow != 0) {
+            // this = a - b + 2**256, a - b + p = this - 2**32 - 977
+            borrow = (limbs[0] & mask) - c0;
+            limbs[0] = (int) borrow;
+            borrow = (borrow >> 32) + (limbs[1] & mask) - 1;
+            limbs[1] = (int) borrow;
+            borrow >>= 32;
+            for (int i = 2; i < 8 && borrow != 0; i++) {
+                borrow += limbs[i] & mask;
+                limbs[i] = (int) borrow;
+                borrow >>= 32;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return this = (p - a) % p
+     */
+    FieldElement negate(FieldElement a) {
+        if (a.isZero()) {
+            return set(0);
+        }
+        long borrow = 0;
+        for (int i = 0; i < 8; i++) {
+            borrow += (pLimbs[i] & mask) - (a.limbs[i] & mask);
+            limbs[i] = (int) borrow;
+            borrow >>= 32;
+        }
+        return this;
+    }
+
+    /**
+     * @param k 0 <= k < 2**30
+     * @return this = (a * k) % p
+     */
+    FieldElement multiply(FieldElement a, int k) {
+        long carry = 0;
+        for (int i = 0; i < 8; i++) {
+            carry += (a.limbs[i] & mask) * k;
+            limbs[i] = (int) carry;
+            carry >>>= 32;
+        }
+        reduce(carry);
+        return this;
+    }
+
+    /**
+     * @return this = (a * b) % p
+     */
+    FieldElement multiply(FieldElement a, FieldElement b) {
+        // 512-bit product, (2**32 - 1)**2 + 2 * (2**32 - 1) = 2**64 - 1 fits the unsigned long
+        int[] w = wide;
+        long bi = b.limbs[0] & mask;
+        long carry = 0;
+        for (int j = 0; j < 8; j++) {
+            carry += (a.limbs[j] & mask) * bi;
+            w[j] = (int) carry;
+            carry >>>= 32;
+        }
+        w[8] = (int) carry;
+        for (int i = 1; i < 8; i++) {
+            bi = b.limbs[i] & mask;
+            carry = 0;
+            for (int j = 0; j < 8; j++) {
+                carry += (a.limbs[j] & mask) * bi + (w[i + j] & mask);
+                w[i + j] = (int) carry;
+                carry >>>= 32;
+            }
+            w[i + 8] = (int) carry;
+        }
+        // lo + hi * 2**256 = lo + hi * (2**32 + 977)
+        carry = 0;
+        for (int i = 0; i < 8; i++) {
+            carry += (w[i] & mask) + (w[i + 8] & mask) * c0;
+            if (i > 0) {
+                carry += w[i + 7] & mask;
+            }
+            limbs[i] = (int) carry;
+            carry >>>= 32;
+        }
+        reduce(carry + (w[15] & mask));
+        return this;
+    }
+
+    /**
+     * @return this = (a * a) % p
+     */
+    FieldElement square(FieldElement a) {
+        return multiply(a, a);
+    }
+
+    /**
+     * @return this = a**(-1) % p = a**(p - 2) % p, 0 for a == 0
+     */
+    FieldElement inverse(FieldElement a) {
+        // addition chain with 255 squarings and 15 multiplications, xk = a**(2**k - 1),
+        // p - 2 = (2**223 - 1) * 2**33 + (2**22 - 1) * 2**10 + 0b101101
+        // temporary elements are the only allocation, inversion is used once per scalar multiplication
+        FieldElement x2 = new FieldElement().square(a);
+        x2.multiply(x2, a);
+        FieldElement x3 = new FieldElement().square(x2);
+        x3.multiply(x3, a);
+        FieldElement x11 = new FieldElement().set(x3).squareTimes(3);
+        x11.multiply(x11, x3); // x6
+        x11.squareTimes(3).multiply(x11, x3); // x9
+        x11.squareTimes(2).multiply(x11, x2);
+        FieldElement x22 = new FieldElement().set(x11).squareTimes(11);
+        x22.multiply(x22, x11);
+        FieldElement x44 = new FieldElement().set(x22).squareTimes(22);
+        x44.multiply(x44, x22);
+        FieldElement x88 = new FieldElement().set(x44).squareTimes(44);
+        x88.multiply(x88, x44);
+        FieldElement t = new FieldElement().set(x88).squareTimes(88);
+        t.multiply(t, x88); // x176
+        t.squareTimes(44).multiply(t, x44); // x220
+        t.squareTimes(3).multiply(t, x3); // x223
+        t.squareTimes(23).multiply(t, x22);
+        t.squareTimes(5).multiply(t, a);
+        t.squareTimes(3).multiply(t, x2);
+        t.squareTimes(2);
+        return multiply(t, a);
+    }
+
+    // this = this**(2**times)
+    private FieldElement squareTimes(int times) {
+        for (int i = 0; i < times; i++) {
+            square(this);
+        }
+        return this;
+    }
+
+    // adds top * 2**256 to this and reduces to [0, p), top < 2**34
+    private void reduce(long top) {
+        while (top != 0) {
+            // top * 2**256 = top * (2**32 + 977)
+            long carry = (limbs[0] & mask) + top * c0;
+            limbs[0] = (int) carry;
+            carry = (carry >>> 32) + (limbs[1] & mask) + top;
+            limbs[1] = (int) carry;
+            carry >>>= 32;
+            for (int i = 2; i < 8 && carry != 0; i++) {
+                carry += limbs[i] & mask;
+                limbs[i] = (int) carry;
+                carry >>>= 32;
+            }
+            top = carry;
+        }
+        if (isNotLessThanP()) {
+            // this - p = this + 2**32 + 977 - 2**256
+            long carry = (limbs[0] & mask) + c0;
+            limbs[0] = (int) carry;
+            carry = (carry >>> 32) + (limbs[1] & mask) + 1;
+            limbs[1] = (int) carry;
+            carry >>>= 32;
+            for (int i = 2; i < 8; i++) {
+                carry += limbs[i] & mask;
+                limbs[i] = (int) carry;
+                carry >>>= 32;
+            }
+        }
+    }
+
+    private boolean isNotLessThanP() {
+        for (int i = 7; i >= 2; i--) {
+            if (limbs[i] != -1) {
+                return false;
+            }
+        }
+        if (limbs[1] != 0xfffffffe) {
+            return (limbs[1] & mask) > 0xfffffffeL;
+        }
+        return (limbs[0] & mask) >= 0xfffffc2fL;
+    }
+}
@@ -0,0 +1,93 @@
+// hash functions with the thread-local instances
+// usage:
+//    byte[] hash = Hashes.sha256(messageBytes);
+//    MessageDigest sha256 = Hashes.sha256Digest();
+//    byte[] hash = Hashes.hash160(messageBytes);
+//    byte[] mac = Hashes.hmacSha512(keyBytes, messageBytes);
+// the provider lookup and the digest objects are created once for each thread
+package com.bluzelle.crypto;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.DigestException;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+@SuppressWarnings("WeakerAccess")
+public class Hashes {
+    private static final ThreadLocal<Instances> instances = ThreadLocal.withInitial(Instances::new);
+
+    /**
+     * @param message array containing message to be hashed
+     * @return 32-bytes hash
+     * @throws NullPointerException if message == null
+     */
+    public static byte[] sha256(byte[] message) {
+        return instances.get().sha256.digest(message);
+    }
+
+    /**
+     * @return reset sha-256 MessageDigest of the current thread, it is reused by the next call in this thread
+     */
+    public static MessageDigest sha256Digest() {
+        MessageDigest sha256 = instances.get().sha256;
+        sha256.reset();
+        return sha256;
+    }
+
+    /**
+     * @param message array containing message to be hashed
+     * @return 20-bytes ripemd160(sha256(message))
+     * @throws NullPointerException if message == null
+     */
+    public static byte[] hash160(byte[] message) {
+        Instances instances = Hashes.instances.get();
+        instances.sha256.update(message);
+        try {
+            instances.sha256.digest(instances.sha256Hash, 0, 32);
+        } catch (DigestException e) {
+            throw new RuntimeException(e);
+        }
+        return instances.ripemd160.update(instances.sha256Hash).digest();
+    }
+
+    /**
+     * @param key     key of the hmac
+     * @param message array containing message
+     * @return 64-bytes hmac-sha512
+     * @throws NullPointerException     if key == null or message == null
+     * @throws IllegalArgumentException if key is empty
+     */
+    public static byte[] hmacSha512(byte[] key, byte[] message) {
+        if (key == null) {
+            throw new NullPointerException("null key");
+        }
+        if (message == null) {
+            throw new NullPointerException("null message");
+        }
+        Mac mac = instances.get().hmacSha512;
+        try {
+            mac.init(new SecretKeySpec(key, "HmacSHA512"));
+        } catch (InvalidKeyException e) {
+            throw new RuntimeException(e);
+        }
+        return mac.doFinal(message);
+    }
+
+    private static class Instances {
+        private final MessageDigest sha256;
+        private final Mac hmacSha512;
+        private final Ripemd160 ripemd160 = new Ripemd160();
+        private final byte[] sha256Hash = new byte[32];
+
+        private Instances() {
+            try {
+                sha256 = MessageDigest.getInstance("SHA-256");
+                hmacSha512 = Mac.getInstance("HmacSHA512");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
@@ -2,32 +2,44 @@
 // usage:
 //    HdKeyPair hdKeyPair = HdKeyPair.createMaster(seedBytes);
 //    HdKeyPair hdKeyPair = hdKeyPair.generateChild(pathString);
+//    HdKeyPair[] children = hdKeyPair.generateChildren(fromIndex, count, isHardened);
 //    BigInteger privateKey = hdKeyPair.d;
 //    byte[] publicKey = hdKeyPair.publicKeyToByteArray();
+// public key is computed on the first use, the last cacheSize derived descendants are kept by their path,
+// so the keys with the common path prefix derive only the different part
 //
 // public key bytes:
 //    1 byte, even - 0x02, odd - 0x03
 //    byte[32], x
 package com.bluzelle.crypto;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import java.math.BigInteger;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class HdKeyPair {
+    static final int cacheSize = 64;
+    private static final byte[] bitcoinSeed = "Bitcoin seed".getBytes(StandardCharsets.US_ASCII);
     public final BigInteger d; // private key as a number
-    private final Ecc.Point point;
     private final byte[] chainCode; // 32-bytes chain code
+    private volatile Ecc.Point point = null; // g * d
+    // <canonical relative path as 0'/1/, descendant>, lru
+    private final LinkedHashMap<String, HdKeyPair> descendants = new LinkedHashMap<String, HdKeyPair>(
+            16, 0.75f, true
+    ) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, HdKeyPair> eldest) {
+            return size() > cacheSize;
+        }
+    };
 
     private HdKeyPair(BigInteger privateKey, byte[] chainCode) {
         if (privateKey.compareTo(Ecc.ecc.n) >= 0) {
             throw new UnsupportedOperationException("private key is too big, requires d < n");
         }
         d = privateKey;
-        point = Ecc.ecc.gMultiply(d);
         this.chainCode = chainCode;
     }
 
@@ -38,15 +50,7 @@ public class HdKeyPair {
      */
     public static HdKeyPair createMaster(byte[] seed) {
         // data = hmac-sha512(key = "Bitcoin seed", data = seed);
-        Mac mac;
-        try {
-            mac = Mac.getInstance("HmacSHA512");
-            mac.init(new SecretKeySpec("Bitcoin seed".getBytes(), "HmacSHA512"));
-        } catch (InvalidKeyException | NoSuchAlgorithmException e) {
-            e.printStackTrace();
-            throw new RuntimeException(e);
-        }
-        byte[] data = mac.doFinal(seed);
+        byte[] data = Hashes.hmacSha512(bitcoinSeed, seed);
 
         // the first 32 bytes is the private key, the last 32 bytes is the chain code
         BigInteger privateKey = new BigInteger(1, Arrays.copyOfRange(data, 0, 32));
@@ -58,6 +62,7 @@ public class HdKeyPair {
      * @return 33-bytes array containing this public key in compressed form
      */
     public byte[] publicKeyToByteArray() {
+        Ecc.Point point = getPoint();
         byte[] bytes = new byte[33];
         bytes[0] = (byte) (point.y.testBit(0) ? 0x03 : 0x02);
         byte[] x = point.x.toByteArray();
@@ -68,6 +73,8 @@ public class HdKeyPair {
     }
 
     /**
+     * returns the cached descendant if the path was derived recently
+     *
      * @param path String containing relative path of this child as /11/3' or 11/0h/12'/
      * @return child HdKeyPair created from this HdKeyPair
      * @throws NullPointerException          if path == null
@@ -77,6 +84,7 @@ public class HdKeyPair {
     public HdKeyPair generateChild(String path) {
         try {
             HdKeyPair keyPair = this;
+            StringBuilder prefix = new StringBuilder();
             int pos = path.charAt(0) == '/' ? 1 : 0;
             boolean theLast = false;
             do {
@@ -91,7 +99,19 @@ public class HdKeyPair {
                 }
                 boolean hardened = lastChar == '\'' || lastChar == 'h';
                 int keyNumber = Integer.parseInt(path.substring(pos, hardened ? stopPos - 1 : stopPos));
-                keyPair = keyPair.generateChild(keyNumber, hardened);
+                prefix.append(keyNumber).append(hardened ? "'/" : "/");
+                String key = prefix.toString();
+                HdKeyPair descendant;
+                synchronized (descendants) {
+                    descendant = descendants.get(key);
+                }
+                if (descendant == null) {
+                    descendant = keyPair.generateChild(keyNumber, hardened);
+                    synchronized (descendants) {
+                        descendants.put(key, descendant);
+                    }
+                }
+                keyPair = descendant;
                 pos = stopPos + 1;
             } while (!theLast);
             return keyPair;
@@ -100,6 +120,59 @@ public class HdKeyPair {
         }
     }
 
+    /**
+     * derives the children with the indexes [from, from + count) of this,
+     * their public keys are computed together with one inversion, the children are not cached
+     *
+     * @param from     index of the first child
+     * @param count    number of the children
+     * @param hardened true for the hardened children
+     * @return children in order of the index
+     * @throws IllegalArgumentException      if from < 0 or count < 0 or from + count > 2**31
+     * @throws UnsupportedOperationException if created private key is not valid
+     */
+    public HdKeyPair[] generateChildren(int from, int count, boolean hardened) {
+        if (from < 0) {
+            throw new IllegalArgumentException("negative from");
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("negative count");
+        }
+        if ((long) from + count > 0x80000000L) {
+            throw new IllegalArgumentException("from + count > 2**31");
+        }
+        HdKeyPair[] children = new HdKeyPair[count];
+        BigInteger[] privateKeys = new BigInteger[count];
+        for (int i = 0; i < count; i++) {
+            children[i] = generateChild(from + i, hardened);
+            privateKeys[i] = children[i].d;
+        }
+        Ecc.Point[] points = Ecc.ecc.gMultiplyAll(privateKeys);
+        for (int i = 0; i < count; i++) {
+            children[i].point = points[i];
+        }
+        return children;
+    }
+
+    /**
+     * @return number of the cached descendants
+     */
+    int cached() {
+        synchronized (descendants) {
+            return descendants.size();
+        }
+    }
+
+    private Ecc.Point getPoint() {
+        Ecc.Point point = this.point;
+        if (point == null) {
+            // the race computes the same immutable point
+            point = Ecc.ecc.gMultiply(d);
+            this.point = point;
+        }
+        return point;
+    }
+
     private HdKeyPair generateChild(int keyNumber, boolean isHardened) {
         if (keyNumber < 0) {
             throw new IllegalArgumentException("negative keyNumber");
@@ -125,14 +198,7 @@ public class HdKeyPair {
         }
 
         // data = hmac-sha512(key = parent chain code, data);
-        Mac mac;
-        try {
-            mac = Mac.getInstance("HmacSHA512");
-            mac.init(new SecretKeySpec(chainCode, "HmacSHA512"));
-        } catch (InvalidKeyException | NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
-        }
-        data = mac.doFinal(data);
+        data = Hashes.hmacSha512(chainCode, data);
 
         // child chain code is the last 32 bytes of the data
         byte[] chainCode = Arrays.copyOfRange(data, 32, 64);
@@ -141,10 +207,11 @@ public class HdKeyPair {
         if (privateKey.compareTo(Ecc.ecc.n) >= 0) {
             throw new UnsupportedOperationException("private key is not less than n");
         }
-        privateKey = d.add(privateKey).mod(Ecc.ecc.n);
-        if (privateKey.signum() <= 0) {
+        Scalar childKey = new Scalar().set(data, 0);
+        childKey.add(childKey, new Scalar().set(d));
+        if (childKey.isZero()) {
             throw new UnsupportedOperationException("private key is zero");
         }
-        return new HdKeyPair(privateKey, chainCode);
+        return new HdKeyPair(childKey.toBigInteger(), chainCode);
     }
 }
\ No newline at end of file
@@ -0,0 +1,192 @@
+// password-based key derivation function 2 with the pseudo-random function hmac-sha512, see rfc 8018
+// usage:
+//    byte[] key = Pbkdf2.hmacSha512(passwordBytes, saltBytes, iterationsInt);
+//    byte[] hash = Pbkdf2.sha512(messageBytes);
+// the key is one block of 64 bytes, hmac keeps the states after the inner and the outer pads,
+// so every iteration is two sha-512 compressions without the allocations
+package com.bluzelle.crypto;
+
+final class Pbkdf2 {
+    private static final long[] k = {
+            0x428a2f98d728ae22L, 0x7137449123ef65cdL, 0xb5c0fbcfec4d3b2fL, 0xe9b5dba58189dbbcL,
+            0x3956c25bf348b538L, 0x59f111f1b605d019L, 0x923f82a4af194f9bL, 0xab1c5ed5da6d8118L,
+            0xd807aa98a3030242L, 0x12835b0145706fbeL, 0x243185be4ee4b28cL, 0x550c7dc3d5ffb4e2L,
+            0x72be5d74f27b896fL, 0x80deb1fe3b1696b1L, 0x9bdc06a725c71235L, 0xc19bf174cf692694L,
+            0xe49b69c19ef14ad2L, 0xefbe4786384f25e3L, 0x0fc19dc68b8cd5b5L, 0x240ca1cc77ac9c65L,
+            0x2de92c6f592b0275L, 0x4a7484aa6ea6e483L, 0x5cb0a9dcbd41fbd4L, 0x76f988da831153b5L,
+            0x983e5152ee66dfabL, 0xa831c66d2db43210L, 0xb00327c898fb213fL, 0xbf597fc7beef0ee4L,
+            0xc6e00bf33da88fc2L, 0xd5a79147930aa725L, 0x06ca6351e003826fL, 0x142929670a0e6e70L,
+            0x27b70a8546d22ffcL, 0x2e1b21385c26c926L, 0x4d2c6dfc5ac42aedL, 0x53380d139d95b3dfL,
+            0x650a73548baf63deL, 0x766a0abb3c77b2a8L, 0x81c2c92e47edaee6L, 0x92722c851482353bL,
+            0xa2bfe8a14cf10364L, 0xa81a664bbc423001L, 0xc24b8b70d0f89791L, 0xc76c51a30654be30L,
+            0xd192e819d6ef5218L, 0xd69906245565a910L, 0xf40e35855771202aL, 0x106aa07032bbd1b8L,
+            0x19a4c116b8d2d0c8L, 0x1e376c085141ab53L, 0x2748774cdf8eeb99L, 0x34b0bcb5e19b48a8L,
+            0x391c0cb3c5c95a63L, 0x4ed8aa4ae3418acbL, 0x5b9cca4f7763e373L, 0x682e6ff3d6b2b8a3L,
+            0x748f82ee5defb2fcL, 0x78a5636f43172f60L, 0x84c87814a1f0ab72L, 0x8cc702081a6439ecL,
+            0x90befffa23631e28L, 0xa4506cebde82bde9L, 0xbef9a3f7b2c67915L, 0xc67178f2e372532bL,
+            0xca273eceea26619cL, 0xd186b8c721c0c207L, 0xeada7dd6cde0eb1eL, 0xf57d4f7fee6ed178L,
+            0x06f067aa72176fbaL, 0x0a637dc5a2c898a6L, 0x113f9804bef90daeL, 0x1b710b35131c471bL,
+            0x28db77f523047d84L, 0x32caab7b40c72493L, 0x3c9ebe0a15c9bebcL, 0x431d67c49c100d4cL,
+            0x4cc5d4becb3e42b6L, 0x597f299cfc657e2aL, 0x5fcb6fab3ad6faecL, 0x6c44198c4a475817L
+    };
+    private static final long[] initialHash = {
+            0x6a09e667f3bcc908L, 0xbb67ae8584caa73bL, 0x3c6ef372fe94f82bL, 0xa54ff53a5f1d36f1L,
+            0x510e527fade682d1L, 0x9b05688c2b3e6c1fL, 0x1f83d9abfb41bd6bL, 0x5be0cd19137e2179L
+    };
+
+    /**
+     * @param password   key of the hmac
+     * @param salt       salt
+     * @param iterations number of the iterations, at least 1
+     * @return 64-bytes derived key
+     * @throws NullPointerException     if password == null or salt == null
+     * @throws IllegalArgumentException if iterations < 1
+     */
+    static byte[] hmacSha512(byte[] password, byte[] salt, int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("iterations < 1");
+        }
+        byte[] key = password.length > 128 ? sha512(password) : password;
+        long[] w = new long[80]; // block and the message schedule
+        // states after the first block key ^ ipad and key ^ opad
+        long[] innerPad = initialHash.clone();
+        long[] outerPad = initialHash.clone();
+        byte[] pad = new byte[128];
+        for (int i = 0; i < 128; i++) {
+            pad[i] = (byte) ((i < key.length ? key[i] : 0) ^ 0x36);
+        }
+        getWords(pad, 0, w);
+        compress(innerPad, w);
+        for (int i = 0; i < 128; i++) {
+            pad[i] ^= 0x36 ^ 0x5c;
+        }
+        getWords(pad, 0, w);
+        compress(outerPad, w);
+
+        // u1 = hmac(salt || 0x00000001)
+        byte[] message = new byte[salt.length + 4];
+        System.arraycopy(salt, 0, message, 0, salt.length);
+        message[message.length - 1] = 0x01;
+        long[] inner = new long[8];
+        hash(innerPad, 128, message, inner, w);
+        long[] u = new long[8];
+        long[] result = new long[8];
+        for (int i = 0; i < iterations; i++) {
+            if (i > 0) {
+                // inner = sha512(key ^ ipad || u)
+                System.arraycopy(u, 0, w, 0, 8);
+                setPadding(w);
+                System.arraycopy(innerPad, 0, inner, 0, 8);
+                compress(inner, w);
+            }
+            // u = sha512(key ^ opad || inner)
+            System.arraycopy(inner, 0, w, 0, 8);
+            setPadding(w);
+            System.arraycopy(outerPad, 0, u, 0, 8);
+            compress(u, w);
+            for (int j = 0; j < 8; j++) {
+                result[j] ^= u[j];
+            }
+        }
+        return toBytes(result);
+    }
+
+    /**
+     * @param message array containing message to be hashed
+     * @return 64-bytes hash
+     * @throws NullPointerException if message == null
+     */
+    static byte[] sha512(byte[] message) {
+        long[] hash = new long[8];
+        hash(initialHash, 0, message, hash, new long[80]);
+        return toBytes(hash);
+    }
+
+    // hash = sha512 of the message after prefixLength bytes processed into the state
+    private static void hash(long[] state, int prefixLength, byte[] message, long[] hash, long[] w) {
+        System.arraycopy(state, 0, hash, 0, 8);
+        int pos = 0;
+        for (; pos + 128 <= message.length; pos += 128) {
+            getWords(message, pos, w);
+            compress(hash, w);
+        }
+        // the rest, 0x80, zeros and 128-bit length in bits
+        byte[] last = new byte[message.length - pos < 112 ? 128 : 256];
+        System.arraycopy(message, pos, last, 0, message.length - pos);
+        last[message.length - pos] = (byte) 0x80;
+        long bits = ((long) prefixLength + message.length) * 8;
+        for (int i = 0; i < 8; i++) {
+            last[last.length - 1 - i] = (byte) (bits >>> (i * 8));
+        }
+        for (pos = 0; pos < last.length; pos += 128) {
+            getWords(last, pos, w);
+            compress(hash, w);
+        }
+    }
+
+    // padding of the 64-bytes message after the 128-bytes pad
+    private static void setPadding(long[] w) {
+        w[8] = 0x8000000000000000L;
+        for (int i = 9; i < 15; i++) {
+            w[i] = 0;
+        }
+        w[15] = (128 + 64) * 8;
+    }
+
+    private static void getWords(byte[] bytes, int offset, long[] w) {
+        for (int i = 0; i < 16; i++) {
+            long word = 0;
+            for (int j = 0; j < 8; j++) {
+                word = word << 8 | (bytes[offset + i * 8 + j] & 0xff);
+            }
+            w[i] = word;
+        }
+    }
+
+    private static byte[] toBytes(long[] hash) {
+        byte[] bytes = new byte[64];
+        for (int i = 0; i < 64; i++) {
+            bytes[i] = (byte) (hash[i >>> 3] >>> (56 - (i & 7) * 8));
+        }
+        return bytes;
+    }
+
+    // processes the block w[0, 16) into the state, w[16, 80) is overwritten
+    private static void compress(long[] state, long[] w) {
+        for (int i = 16; i < 80; i++) {
+            long s0 = Long.rotateRight(w[i - 15], 1) ^ Long.rotateRight(w[i - 15], 8) ^ (w[i - 15] >>> 7);
+            long s1 = Long.rotateRight(w[i - 2], 19) ^ Long.rotateRight(w[i - 2], 61) ^ (w[i - 2] >>> 6);
+            w[i] = w[i - 16] + s0 + w[i - 7] + s1;
+        }
+        long a = state[0];
+        long b = state[1];
+        long c = state[2];
+        long d = state[3];
+        long e = state[4];
+        long f = state[5];
+        long g = state[6];
+        long h = state[7];
+        for (int i = 0; i < 80; i++) {
+            long s1 = Long.rotateRight(e, 14) ^ Long.rotateRight(e, 18) ^ Long.rotateRight(e, 41);
+            long t1 = h + s1 + ((e & f) ^ (~e & g)) + k[i] + w[i];
+            long s0 = Long.rotateRight(a, 28) ^ Long.rotateRight(a, 34) ^ Long.rotateRight(a, 39);
+            long t2 = s0 + ((a & b) ^ (a & c) ^ (b & c));
+            h = g;
+            g = f;
+            f = e;
+            e = d + t1;
+            d = c;
+            c = b;
+            b = a;
+            a = t1 + t2;
+        }
+        state[0] += a;
+        state[1] += b;
+        state[2] += c;
+        state[3] += d;
+        state[4] += e;
+        state[5] += f;
+        state[6] += g;
+        state[7] += h;
+    }
+}
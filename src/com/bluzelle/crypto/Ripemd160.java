@@ -2,6 +2,12 @@
 // usage:
 //    byte[] hash = Ripemd160.getHash(messageBytes);
 //    byte[] hash = Ripemd160.getHash(messageBytes, messageStart, messageLength);
+//    Ripemd160 ripemd160 = new Ripemd160();
+//    ripemd160.update(messageBytes).update(messageBytes, messageStart, messageLength);
+//    byte[] hash = ripemd160.digest();
+//    ripemd160.digest(outBytes, outStart);
+//    ripemd160.reset();
+// the instance is not thread-safe, it reuses the state and the block, digest resets it
 package com.bluzelle.crypto;
 
 public class Ripemd160 {
@@ -35,6 +41,12 @@ public class Ripemd160 {
             {15, 5, 8, 11, 14, 14, 6, 14, 6, 9, 12, 9, 12, 5, 15, 8},
             {8, 5, 12, 9, 12, 5, 14, 6, 8, 13, 6, 5, 15, 13, 11, 11}
     };
+    private static final int[] initialHash = {0x67452301, 0xEFCDAB89, 0x98BADCFE, 0x10325476, 0xC3D2E1F0};
+    private final int[] hash = initialHash.clone(); // 160-bit hash
+    private final int[] block = new int[16]; // 512-bit block, contain 16 words * 32 bits
+    private final byte[] buffer = new byte[64]; // the rest of the message, less than a block
+    private int bufferLength = 0;
+    private long length = 0; // bytes
 
     /**
      * @param message array containing message to be hashed
@@ -55,59 +67,121 @@ public class Ripemd160 {
      */
     @SuppressWarnings("WeakerAccess")
     public static byte[] getHash(byte[] message, int messageStart, int messageLength) {
-        int[] hash = {0x67452301, 0xEFCDAB89, 0x98BADCFE, 0x10325476, 0xC3D2E1F0}; // 160-bit hash
-        int[] block = new int[16]; // 512-bit block, contain 16 words * 32 bits
-        int blockPos = 0; // current position in the block
-        int messagePos = messageStart; // current position in the message
-        // process 32-bits words from message
-        int stop = messageStart + messageLength - 3;
-        while (messagePos < stop) {
-            block[blockPos++] = getWord(message, messagePos);
-            messagePos += 4;
-            if (blockPos == 16) {
-                blockPos = 0;
-                hashBlock(block, hash);
+        return new Ripemd160().update(message, messageStart, messageLength).digest();
+    }
+
+    /**
+     * @param message array containing the next part of the message
+     * @return this
+     * @throws NullPointerException if message == null
+     */
+    public Ripemd160 update(byte[] message) {
+        return update(message, 0, message.length);
+    }
+
+    /**
+     * @param message       array containing the next part of the message
+     * @param messageStart  starting position in the message array
+     * @param messageLength the number of the bytes containing message
+     * @return this
+     * @throws NullPointerException           if message == null
+     * @throws ArrayIndexOutOfBoundsException if incorrect messageStart or messageLength
+     */
+    @SuppressWarnings("WeakerAccess")
+    public Ripemd160 update(byte[] message, int messageStart, int messageLength) {
+        if (messageStart < 0 || messageLength < 0 || messageStart > message.length - messageLength) {
+            throw new ArrayIndexOutOfBoundsException("incorrect messageStart or messageLength");
+        }
+        int messagePos = messageStart;
+        int messageEnd = messageStart + messageLength;
+        length += messageLength;
+        // fill the started block
+        while (bufferLength > 0 && messagePos < messageEnd) {
+            buffer[bufferLength++] = message[messagePos++];
+            if (bufferLength == 64) {
+                bufferLength = 0;
+                hashBlock(buffer, 0);
             }
         }
-        // create buffer word and fill it with the rest of the message
-        byte[] buffer = new byte[4];
-        int bufferPos = 0; // current position in the buffer
-        while (messagePos < messageStart + messageLength) {
-            buffer[bufferPos++] = message[messagePos++];
+        // process the whole blocks directly from the message
+        while (messageEnd - messagePos >= 64) {
+            hashBlock(message, messagePos);
+            messagePos += 64;
         }
-        // add 0b10000000 in the end of the message
-        buffer[bufferPos] = (byte) 0b10000000;
-        // put buffer word in the block
-        block[blockPos++] = getWord(buffer, 0);
-        if (blockPos == 16) {
-            blockPos = 0;
-            hashBlock(block, hash);
+        while (messagePos < messageEnd) {
+            buffer[bufferLength++] = message[messagePos++];
         }
+        return this;
+    }
+
+    /**
+     * @return 20-bytes hash of the message, this is reset
+     */
+    public byte[] digest() {
+        byte[] out = new byte[20];
+        digest(out, 0);
+        return out;
+    }
+
+    /**
+     * writes 20-bytes hash of the message, this is reset
+     *
+     * @param out      array for the hash
+     * @param outStart starting position in the out array
+     * @throws NullPointerException           if out == null
+     * @throws ArrayIndexOutOfBoundsException if out is too short
+     */
+    @SuppressWarnings("WeakerAccess")
+    public void digest(byte[] out, int outStart) {
+        if (outStart < 0 || outStart > out.length - 20) {
+            throw new ArrayIndexOutOfBoundsException("out is too short");
+        }
+        long bitLength = length << 3;
+        // add 0b10000000 in the end of the message
+        buffer[bufferLength++] = (byte) 0b10000000;
         // 2 last words in the block is for the length of the message
         // if they are not empty, process this block and create new one
-        if (blockPos == 15) {
-            block[15] = 0;
-            blockPos = 0;
-            hashBlock(block, hash);
+        if (bufferLength > 56) {
+            while (bufferLength < 64) {
+                buffer[bufferLength++] = 0;
+            }
+            hashBlock(buffer, 0);
+            bufferLength = 0;
         }
-        for (int i = blockPos; i < 14; i++) {
-            block[i] = 0;
+        while (bufferLength < 56) {
+            buffer[bufferLength++] = 0;
         }
         // put length in the end of the last block, little-endian
-        long bitLength = messageLength << 3;
-        block[14] = (int) (bitLength);
-        block[15] = (int) (bitLength >>> 32);
-        hashBlock(block, hash);
+        for (int i = 0; i < 8; i++) {
+            buffer[56 + i] = (byte) (bitLength >>> (i * 8));
+        }
+        hashBlock(buffer, 0);
         // return hash, 32-bit words are little-endian
-        byte[] out = new byte[20];
-        int outPos = 0;
+        int outPos = outStart;
         for (int word : hash) {
             out[outPos++] = (byte) word;
             out[outPos++] = (byte) (word >>> 8);
             out[outPos++] = (byte) (word >>> 16);
             out[outPos++] = (byte) (word >>> 24);
         }
-        return out;
+        reset();
+    }
+
+    /**
+     * discards the message
+     */
+    @SuppressWarnings("WeakerAccess")
+    public void reset() {
+        System.arraycopy(initialHash, 0, hash, 0, 5);
+        bufferLength = 0;
+        length = 0;
+    }
+
+    private void hashBlock(byte[] bytes, int bytesStart) {
+        for (int i = 0; i < 16; i++) {
+            block[i] = getWord(bytes, bytesStart + i * 4);
+        }
+        hashBlock(block, hash);
     }
 
     // returns 32-bit word, little-endian
@@ -0,0 +1,295 @@
+// integer mod n, the secp256k1 subgroup order, for the private keys, nonces and signatures
+// usage:
+//    Scalar a = new Scalar().set(aBigInteger);
+//    Scalar b = new Scalar().set(bytes, offset);
+//    a.multiply(a, b).add(a, b).inverse(a).negate(a);
+//    boolean high = a.isHigh();
+//    a.toBytes(bytes, offset);
+//    BigInteger value = a.toBigInteger();
+// mutable, the result is written to this, the arguments can be this,
+// value is 8 little-endian 32-bit limbs always reduced to [0, n), arithmetic does not allocate
+package com.bluzelle.crypto;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+final class Scalar {
+    static final BigInteger n = new BigInteger(
+            "fffffffffffffffffffffffffffffffebaaedce6af48a03bbfd25e8cd0364141", 16
+    );
+    private static final long mask = 0xffffffffL;
+    private static final int[] nLimbs = {
+            0xd0364141, 0xbfd25e8c, 0xaf48a03b, 0xbaaedce6, 0xfffffffe, 0xffffffff, 0xffffffff, 0xffffffff
+    };
+    // 2**256 - n, 129 bits
+    private static final int[] c = {0x2fc9bebf, 0x402da173, 0x50b75fc4, 0x45512319, 1};
+    // n / 2
+    private static final int[] halfN = {
+            0x681b20a0, 0xdfe92f46, 0x57a4501d, 0x5d576e73, 0xffffffff, 0xffffffff, 0xffffffff, 0x7fffffff
+    };
+    final int[] limbs = new int[8];
+    private final int[] wide = new int[16]; // product before the reduction
+    private final int[] folded = new int[16];
+
+    /**
+     * @param value integer
+     * @return this = value % n
+     * @throws NullPointerException if value == null
+     */
+    Scalar set(BigInteger value) {
+        if (value.signum() < 0 || value.compareTo(n) >= 0) {
+            value = value.mod(n);
+        }
+        byte[] bytes = value.toByteArray();
+        for (int i = 0; i < 8; i++) {
+            int limb = 0;
+            for (int j = 3; j >= 0; j--) {
+                int pos = bytes.length - 1 - i * 4 - j;
+                limb = limb << 8 | (pos >= 0 ? bytes[pos] & 0xff : 0);
+            }
+            limbs[i] = limb;
+        }
+        return this;
+    }
+
+    /**
+     * @param bytes  contains 32 bytes big endian
+     * @param offset position of the first byte
+     * @return this = value % n
+     */
+    Scalar set(byte[] bytes, int offset) {
+        for (int i = 0; i < 8; i++) {
+            int pos = offset + 28 - i * 4;
+            limbs[i] = (bytes[pos] & 0xff) << 24 | (bytes[pos + 1] & 0xff) << 16
+                    | (bytes[pos + 2] & 0xff) << 8 | bytes[pos + 3] & 0xff;
+        }
+        reduce();
+        return this;
+    }
+
+    /**
+     * @param a field element, a < p < 2 * n
+     * @return this = a % n
+     */
+    Scalar set(FieldElement a) {
+        System.arraycopy(a.limbs, 0, limbs, 0, 8);
+        reduce();
+        return this;
+    }
+
+    /**
+     * @return this = a
+     */
+    Scalar set(Scalar a) {
+        System.arraycopy(a.limbs, 0, limbs, 0, 8);
+        return this;
+    }
+
+    BigInteger toBigInteger() {
+        byte[] bytes = new byte[32];
+        toBytes(bytes, 0);
+        return new BigInteger(1, bytes);
+    }
+
+    /**
+     * writes 32 bytes big endian
+     */
+    void toBytes(byte[] bytes, int offset) {
+        for (int i = 0; i < 8; i++) {
+            int limb = limbs[7 - i];
+            bytes[offset + i * 4] = (byte) (limb >>> 24);
+            bytes[offset + i * 4 + 1] = (byte) (limb >>> 16);
+            bytes[offset + i * 4 + 2] = (byte) (limb >>> 8);
+            bytes[offset + i * 4 + 3] = (byte) limb;
+        }
+    }
+
+    boolean isZero() {
+        int or = 0;
+        for (int limb : limbs) {
+            or |= limb;
+        }
+        return or == 0;
+    }
+
+    boolean isEqual(Scalar a) {
+        for (int i = 0; i < 8; i++) {
+            if (limbs[i] != a.limbs[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if this > n / 2
+     */
+    boolean isHigh() {
+        return compare(limbs, halfN) > 0;
+    }
+
+    boolean testBit(int i) {
+        return (limbs[i >>> 5] >>> (i & 31) & 1) != 0;
+    }
+
+    /**
+     * @return this = (a + b) % n
+     */
+    Scalar add(Scalar a, Scalar b) {
+        long carry = 0;
+        for (int i = 0; i < 8; i++) {
+            carry += (a.limbs[i] & mask) + (b.limbs[i] & mask);
+            limbs[i] = (int) carry;
+            carry >>>= 32;
+        }
+        if (carry != 0) {
+            // a + b - n = this + 2**256 - n, a + b < 2 * n
+            addC();
+        } else {
+            reduce();
+        }
+        return this;
+    }
+
+    /**
+     * @return this = (n - a) % n
+     */
+    Scalar negate(Scalar a) {
+        if (a.isZero()) {
+            return set(a);
+        }
+        // n - a = (2**256 - 1 - a) + 1 - c
+        long borrow = 0;
+        for (int i = 0; i < 8; i++) {
+            borrow += (~a.limbs[i] & mask) - (i < c.length ? c[i] & mask : 0) + (i == 0 ? 1 : 0);
+            limbs[i] = (int) borrow;
+            borrow >>= 32;
+        }
+        return this;
+    }
+
+    /**
+     * @return this = (a * b) % n
+     */
+    Scalar multiply(Scalar a, Scalar b) {
+        int[] w = wide;
+        long bi = b.limbs[0] & mask;
+        long carry = 0;
+        for (int j = 0; j < 8; j++) {
+            carry += (a.limbs[j] & mask) * bi;
+            w[j] = (int) carry;
+            carry >>>= 32;
+        }
+        w[8] = (int) carry;
+        for (int i = 1; i < 8; i++) {
+            bi = b.limbs[i] & mask;
+            carry = 0;
+            for (int j = 0; j < 8; j++) {
+                carry += (a.limbs[j] & mask) * bi + (w[i + j] & mask);
+                w[i + j] = (int) carry;
+                carry >>>= 32;
+            }
+            w[i + 8] = (int) carry;
+        }
+        reduceWide();
+        return this;
+    }
+
+    /**
+     * @return this = a**(-1) % n = a**(n - 2) % n, 0 for a == 0
+     */
+    Scalar inverse(Scalar a) {
+        // fixed window of 4 bits, 252 squarings and at most 78 multiplications
+        // the table is the only allocation, inversion is used once per signature
+        Scalar[] powers = new Scalar[16]; // powers[i] = a**i
+        powers[1] = new Scalar().set(a);
+        for (int i = 2; i < 16; i++) {
+            powers[i] = new Scalar().multiply(powers[i - 1], powers[1]);
+        }
+        // n - 2 differs from n in the lowest limb only, 0xd036413f
+        set(powers[nLimbs[7] >>> 28]);
+        for (int i = 62; i >= 0; i--) {
+            for (int j = 0; j < 4; j++) {
+                multiply(this, this);
+            }
+            int limb = i < 8 ? 0xd036413f : nLimbs[i >>> 3];
+            int window = limb >>> ((i & 7) << 2) & 0xf;
+            if (window != 0) {
+                multiply(this, powers[window]);
+            }
+        }
+        return this;
+    }
+
+    // reduces wide to this, lo + hi * 2**256 = lo + hi * c mod n, c < 2**129
+    private void reduceWide() {
+        int[] w = wide;
+        int[] f = folded;
+        // f = lo + hi * c < 2**386
+        System.arraycopy(w, 0, f, 0, 8);
+        Arrays.fill(f, 8, 14, 0);
+        addProduct(f, w, 8);
+        // w = lo + hi * c < 2**260
+        System.arraycopy(f, 0, w, 0, 8);
+        Arrays.fill(w, 8, 14, 0);
+        addProduct(w, f, 5);
+        // f = lo + hi * c < 2**257
+        System.arraycopy(w, 0, f, 0, 8);
+        Arrays.fill(f, 8, 14, 0);
+        addProduct(f, w, 1);
+        System.arraycopy(f, 0, limbs, 0, 8);
+        if (f[8] != 0) {
+            // this + 2**256 - n = this + c
+            addC();
+        } else {
+            reduce();
+        }
+    }
+
+    // to += from[8, 8 + count) * c
+    private static void addProduct(int[] to, int[] from, int count) {
+        for (int i = 0; i < count; i++) {
+            long hi = from[i + 8] & mask;
+            if (hi == 0) {
+                continue;
+            }
+            long carry = 0;
+            for (int j = 0; j < c.length; j++) {
+                carry += hi * (c[j] & mask) + (to[i + j] & mask);
+                to[i + j] = (int) carry;
+                carry >>>= 32;
+            }
+            for (int k = i + c.length; carry != 0; k++) {
+                carry += to[k] & mask;
+                to[k] = (int) carry;
+                carry >>>= 32;
+            }
+        }
+    }
+
+    // this < 2**256 to [0, n)
+    private void reduce() {
+        if (compare(limbs, nLimbs) >= 0) {
+            addC();
+        }
+    }
+
+    // this = this + c - 2**256
+    private void addC() {
+        long carry = 0;
+        for (int i = 0; i < 8; i++) {
+            carry += (limbs[i] & mask) + (i < c.length ? c[i] & mask : 0);
+            limbs[i] = (int) carry;
+            carry >>>= 32;
+        }
+    }
+
+    private static int compare(int[] a, int[] b) {
+        for (int i = 7; i >= 0; i--) {
+            if (a[i] != b[i]) {
+                return (a[i] & mask) > (b[i] & mask) ? 1 : -1;
+            }
+        }
+        return 0;
+    }
+}
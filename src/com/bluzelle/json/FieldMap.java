@@ -0,0 +1,179 @@
+// fields of the JsonObject in the parallel arrays
+// usage:
+//    FieldMap map = new FieldMap();
+//    map.put(keyString, value);
+//    Object value = map.get(keyString);
+//    boolean contains = map.containsKey(keyString);
+//    map.remove(keyString);
+//    map.sort();
+//    int[] order = map.order(); // positions in the order of the keys or null if sorted
+//    for (int i = 0; i < map.size(); i++) handle(map.key(i), map.value(i));
+// small maps are searched linearly, the hash index is built after hashThreshold fields,
+// keys are sorted in place once after the parsing, the unsorted map is iterated by the sorted copy of the positions
+package com.bluzelle.json;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+class FieldMap {
+    static final int hashThreshold = 8;
+    private static final String[] emptyKeys = {};
+    private static final Object[] emptyValues = {};
+    private String[] keys = emptyKeys;
+    private Object[] values = emptyValues;
+    private int size = 0;
+    private boolean sorted = true;
+    private HashMap<String, Integer> index; // <key, position> if size > hashThreshold or null
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @throws NullPointerException if key == null
+     */
+    boolean containsKey(String key) {
+        return position(key) >= 0;
+    }
+
+    /**
+     * @return value or null if there is no such key
+     * @throws NullPointerException if key == null
+     */
+    Object get(String key) {
+        int position = position(key);
+        return position < 0 ? null : values[position];
+    }
+
+    /**
+     * @throws NullPointerException if key == null
+     */
+    void put(String key, Object value) {
+        int position = position(key);
+        if (position >= 0) {
+            values[position] = value;
+            return;
+        }
+        if (size == keys.length) {
+            int capacity = size == 0 ? hashThreshold : size * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        if (sorted && size > 0 && keys[size - 1].compareTo(key) > 0) {
+            sorted = false;
+        }
+        keys[size] = key;
+        values[size] = value;
+        size++;
+        if (index != null) {
+            index.put(key, size - 1);
+        } else if (size > hashThreshold) {
+            index = new HashMap<>(size * 4);
+            for (int i = 0; i < size; i++) {
+                index.put(keys[i], i);
+            }
+        }
+    }
+
+    /**
+     * @throws NullPointerException if key == null
+     */
+    void remove(String key) {
+        int position = position(key);
+        if (position < 0) {
+            return;
+        }
+        size--;
+        System.arraycopy(keys, position + 1, keys, position, size - position);
+        System.arraycopy(values, position + 1, values, position, size - position);
+        keys[size] = null;
+        values[size] = null;
+        if (index != null) {
+            index.remove(key);
+            for (int i = position; i < size; i++) {
+                index.put(keys[i], i);
+            }
+        }
+    }
+
+    // sorts the keys in the order of String.compareTo
+    void sort() {
+        if (sorted) {
+            return;
+        }
+        if (index == null) {
+            // insertion sort of the few fields
+            for (int i = 1; i < size; i++) {
+                String key = keys[i];
+                Object value = values[i];
+                int j = i - 1;
+                for (; j >= 0 && keys[j].compareTo(key) > 0; j--) {
+                    keys[j + 1] = keys[j];
+                    values[j + 1] = values[j];
+                }
+                keys[j + 1] = key;
+                values[j + 1] = value;
+            }
+        } else {
+            String[] sortedKeys = Arrays.copyOf(keys, size);
+            Arrays.sort(sortedKeys);
+            Object[] sortedValues = new Object[keys.length];
+            for (int i = 0; i < size; i++) {
+                sortedValues[i] = values[index.put(sortedKeys[i], i)];
+            }
+            System.arraycopy(sortedKeys, 0, keys, 0, size);
+            values = sortedValues;
+        }
+        sorted = true;
+    }
+
+    // positions in the order of String.compareTo or null if the keys are sorted, does not change the map
+    int[] order() {
+        if (sorted) {
+            return null;
+        }
+        int[] order = new int[size];
+        if (index == null) {
+            // insertion sort of the few fields
+            for (int i = 0; i < size; i++) {
+                int j = i - 1;
+                for (; j >= 0 && keys[order[j]].compareTo(keys[i]) > 0; j--) {
+                    order[j + 1] = order[j];
+                }
+                order[j + 1] = i;
+            }
+        } else {
+            String[] sortedKeys = Arrays.copyOf(keys, size);
+            Arrays.sort(sortedKeys);
+            for (int i = 0; i < size; i++) {
+                order[i] = index.get(sortedKeys[i]);
+            }
+        }
+        return order;
+    }
+
+    String key(int position) {
+        return keys[position];
+    }
+
+    Object value(int position) {
+        return values[position];
+    }
+
+    // returns position of the key or -1
+    private int position(String key) {
+        if (key == null) {
+            throw new NullPointerException("null key");
+        }
+        if (index != null) {
+            Integer position = index.get(key);
+            return position == null ? -1 : position;
+        }
+        for (int i = 0; i < size; i++) {
+            if (keys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -19,7 +19,17 @@ package com.bluzelle.json;
 import java.util.ArrayList;
 
 public class JsonArray {
-    private final ArrayList<Object> list = new ArrayList<>();
+    final ArrayList<Object> list = new ArrayList<>();
+    private volatile Tape tape; // source of the values that are not decoded yet or null
+    private int entry;
+
+    public JsonArray() {
+    }
+
+    JsonArray(Tape tape, int entry) {
+        this.tape = tape;
+        this.entry = entry;
+    }
 
     static JsonArray parse(Parser parser) {
         JsonArray jsonArray = new JsonArray();
@@ -46,7 +56,7 @@ public class JsonArray {
      * @return number of values in this JsonArray
      */
     public int length() {
-        return list.size();
+        return values().size();
     }
 
     /**
@@ -56,7 +66,7 @@ public class JsonArray {
      * @throws ClassCastException        if value is not a JsonObject
      */
     public JsonObject getObject(int index) {
-        Object object = list.get(index);
+        Object object = values().get(index);
         if (object == null) {
             return null;
         } else if (object instanceof JsonObject) {
@@ -74,7 +84,7 @@ public class JsonArray {
      */
     @SuppressWarnings("WeakerAccess")
     public JsonArray getArray(int index) {
-        Object object = list.get(index);
+        Object object = values().get(index);
         if (object == null) {
             return null;
         } else if (object instanceof JsonArray) {
@@ -91,7 +101,7 @@ public class JsonArray {
      * @throws ClassCastException        if value is not an Integer
      */
     public Integer getInteger(int index) {
-        Object object = list.get(index);
+        Object object = values().get(index);
         if (object == null) {
             return null;
         } else if (object instanceof Integer) {
@@ -109,7 +119,7 @@ public class JsonArray {
      */
     @SuppressWarnings("WeakerAccess")
     public Boolean getBoolean(int index) {
-        Object object = list.get(index);
+        Object object = values().get(index);
         if (object == null) {
             return null;
         } else if (object instanceof Boolean) {
@@ -126,7 +136,7 @@ public class JsonArray {
      * @throws ClassCastException        if value is not a String
      */
     public String getString(int index) {
-        Object object = list.get(index);
+        Object object = values().get(index);
         if (object == null) {
             return null;
         } else if (object instanceof String) {
@@ -150,7 +160,7 @@ public class JsonArray {
                 !(value instanceof Boolean)) {
             value = value.toString();
         }
-        list.add(value);
+        values().add(value);
         return this;
     }
 
@@ -167,7 +177,7 @@ public class JsonArray {
     void write(StringBuilder builder, boolean sanitize) {
         builder.append("[");
         boolean first = true;
-        for (Object value : list) {
+        for (Object value : values()) {
             if (!first) {
                 builder.append(",");
             }
@@ -176,4 +186,37 @@ public class JsonArray {
         }
         builder.append("]");
     }
-}
\ No newline at end of file
+
+    void write(Utf8Writer writer) {
+        writer.write('[');
+        boolean first = true;
+        for (Object value : values()) {
+            if (!first) {
+                writer.write(',');
+            }
+            first = false;
+            writer.writeObject(value);
+        }
+        writer.write(']');
+    }
+
+    private ArrayList<Object> values() {
+        if (tape != null) {
+            decode();
+        }
+        return list;
+    }
+
+    // decodes the values of the lazy array once, the concurrent readers wait for it
+    private synchronized void decode() {
+        Tape source = tape;
+        if (source == null) {
+            return;
+        }
+        int end = source.end(entry);
+        for (int i = entry + 1; i < end; i = source.end(i)) {
+            list.add(source.value(i));
+        }
+        tape = null;
+    }
+}
@@ -2,6 +2,7 @@
 // usage:
 //    JsonObject jsonObject = new JsonObject();
 //    JsonObject jsonObject = JsonObject.parse(jsonString);
+//    JsonObject jsonObject = JsonObject.parseLazy(jsonString);
 //    jsonObject.put(keyString, null);
 //    jsonObject.put(keyString, jsonObject);
 //    jsonObject.put(keyString, jsonArray);
@@ -15,13 +16,23 @@
 //    String string = jsonObject.getString(keyString);
 //    String jsonString = jsonObject.toString();
 //    String sanitizedString = jsonObject.toSanitizeString();
+//    jsonObject.writeSanitized(messageDigest);
 package com.bluzelle.json;
 
-import java.util.Map;
-import java.util.TreeMap;
+import java.security.MessageDigest;
 
 public class JsonObject {
-    private final TreeMap<String, Object> map = new TreeMap<>(); // <key, value>
+    final FieldMap map = new FieldMap(); // <key, value>, sorted after the parsing
+    private volatile Tape tape; // source of the fields that are not decoded yet or null
+    private int entry;
+
+    public JsonObject() {
+    }
+
+    JsonObject(Tape tape, int entry) {
+        this.tape = tape;
+        this.entry = entry;
+    }
 
     /**
      * @param source String to be parsed
@@ -37,10 +48,24 @@ public class JsonObject {
         return parse(parser);
     }
 
+    /**
+     * checks the syntax and indexes the source, the fields of the nested objects and arrays
+     * are decoded on the first access of their object or array, the result can be read by several threads
+     *
+     * @param source String to be parsed
+     * @return JsonObject created from this source
+     * @throws NullPointerException     if source == null
+     * @throws IllegalArgumentException if source is incorrect, duplicate keys are reported on the first access
+     */
+    public static JsonObject parseLazy(String source) {
+        return new JsonObject(Tape.index(source), 0);
+    }
+
     static JsonObject parse(Parser parser) {
         JsonObject jsonObject = new JsonObject();
         while (true) {
             if (parser.nextChar() == '}') {
+                jsonObject.map.sort();
                 return jsonObject;
             }
             parser.moveBack();
@@ -60,6 +85,7 @@ public class JsonObject {
                 case ',':
                     break;
                 case '}':
+                    jsonObject.map.sort();
                     return jsonObject;
                 default:
                     throw parser.exception("unexpected symbol");
@@ -74,7 +100,7 @@ public class JsonObject {
      * @throws ClassCastException   if value is not a JsonObject
      */
     public JsonObject getObject(String key) {
-        Object object = map.get(key);
+        Object object = fields().get(key);
         if (object == null) {
             return null;
         } else if (object instanceof JsonObject) {
@@ -91,7 +117,7 @@ public class JsonObject {
      * @throws ClassCastException   if value is not a JsonArray
      */
     public JsonArray getArray(String key) {
-        Object object = map.get(key);
+        Object object = fields().get(key);
         if (object == null) {
             return null;
         } else if (object instanceof JsonArray) {
@@ -108,7 +134,7 @@ public class JsonObject {
      * @throws ClassCastException   if value is not an Integer
      */
     public Integer getInteger(String key) {
-        Object object = map.get(key);
+        Object object = fields().get(key);
         if (object == null) {
             return null;
         } else if (object instanceof Integer) {
@@ -125,7 +151,7 @@ public class JsonObject {
      * @throws ClassCastException   if value is not a Boolean
      */
     public Boolean getBoolean(String key) {
-        Object object = map.get(key);
+        Object object = fields().get(key);
         if (object == null) {
             return null;
         } else if (object instanceof Boolean) {
@@ -142,7 +168,7 @@ public class JsonObject {
      * @throws ClassCastException   if value is not a String
      */
     public String getString(String key) {
-        Object object = map.get(key);
+        Object object = fields().get(key);
         if (object == null) {
             return null;
         } else if (object instanceof String) {
@@ -162,6 +188,7 @@ public class JsonObject {
      * @throws NullPointerException if key == null
      */
     public JsonObject put(String key, Object value) {
+        fields();
         if (value == null) {
             map.remove(key);
         } else {
@@ -195,20 +222,78 @@ public class JsonObject {
         return builder.toString();
     }
 
+    /**
+     * updates the digest with the utf-8 bytes of toSanitizeString() without creating the String
+     *
+     * @param digest MessageDigest to be updated
+     * @throws NullPointerException if digest == null
+     */
+    public void writeSanitized(MessageDigest digest) {
+        if (digest == null) {
+            throw new NullPointerException("null digest");
+        }
+        new Utf8Writer(digest).writeObject(this).flush();
+    }
+
     void write(StringBuilder builder, boolean sanitize) {
         builder.append("{");
-        boolean first = true;
-        for (Map.Entry<String, Object> entry : map.entrySet()) {
-            if (!first) {
+        FieldMap fields = fields();
+        // the writing does not change the fields, the object can be written by several threads
+        int[] order = fields.order();
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
                 builder.append(",");
             }
-            first = false;
+            int position = order == null ? i : order[i];
             builder.append("\"");
-            Writer.writeString(builder, entry.getKey(), sanitize);
+            Writer.writeString(builder, fields.key(position), sanitize);
             builder.append("\"");
             builder.append(":");
-            Writer.writeObject(builder, entry.getValue(), sanitize);
+            Writer.writeObject(builder, fields.value(position), sanitize);
         }
         builder.append("}");
     }
-}
\ No newline at end of file
+
+    void write(Utf8Writer writer) {
+        writer.write('{');
+        FieldMap fields = fields();
+        int[] order = fields.order();
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            int position = order == null ? i : order[i];
+            writer.write('"');
+            writer.writeString(fields.key(position));
+            writer.write('"');
+            writer.write(':');
+            writer.writeObject(fields.value(position));
+        }
+        writer.write('}');
+    }
+
+    private FieldMap fields() {
+        if (tape != null) {
+            decode();
+        }
+        return map;
+    }
+
+    // decodes the fields of the lazy object once, the concurrent readers wait for it
+    private synchronized void decode() {
+        Tape source = tape;
+        if (source == null) {
+            return;
+        }
+        int end = source.end(entry);
+        for (int i = entry + 1; i < end; i = source.end(i + 1)) {
+            String key = source.key(i);
+            if (map.containsKey(key)) {
+                throw source.exception(i, "duplicate key " + key);
+            }
+            map.put(key, source.value(i + 1));
+        }
+        map.sort();
+        tape = null;
+    }
+}
@@ -0,0 +1,516 @@
+// pull parser, reads json from the stream token by token without building the whole tree
+// usage:
+//    JsonReader reader = new JsonReader(inputStream); // utf-8
+//    JsonReader reader = new JsonReader(reader);
+//    JsonReader.Token token = reader.peek();
+//    reader.beginObject();
+//    while (reader.hasNext()) {
+//        String name = reader.nextName();
+//        String string = reader.nextString();
+//        Integer integer = reader.nextInteger();
+//        Boolean bool = reader.nextBoolean();
+//        Object value = reader.nextValue(); // null, JsonObject, JsonArray, Boolean, Integer or String
+//        reader.skipValue();
+//    }
+//    reader.endObject();
+//    reader.beginArray();
+//    reader.endArray();
+//    reader.close();
+// accepts the same syntax as JsonObject.parse, the document is one object or array,
+// the chars after the end of the document are not read
+package com.bluzelle.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+@SuppressWarnings("WeakerAccess")
+public class JsonReader implements Closeable {
+    // scopes
+    private static final int documentEmpty = 0;
+    private static final int documentDone = 1;
+    private static final int objectEmpty = 2; // after '{' or ','
+    private static final int objectName = 3; // after the name
+    private static final int objectValue = 4; // after the value
+    private static final int arrayEmpty = 5; // after '[' or ','
+    private static final int arrayValue = 6; // after the value
+    private final Reader reader;
+    private final char[] buffer = new char[8192];
+    private int position = 0;
+    private int limit = 0;
+    private long offset = 0; // chars before the buffer
+    private final StringBuilder builder = new StringBuilder();
+    private int[] stack = new int[32];
+    private int depth = 1;
+    private Token peeked = null;
+    private Object peekedValue; // String of NAME and STRING, value of INTEGER and BOOLEAN
+
+    /**
+     * @param input stream with the utf-8 json
+     * @throws NullPointerException if input == null
+     */
+    public JsonReader(InputStream input) {
+        this(new InputStreamReader(input, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param reader source of the json
+     * @throws NullPointerException if reader == null
+     */
+    public JsonReader(Reader reader) {
+        if (reader == null) {
+            throw new NullPointerException("null reader");
+        }
+        this.reader = reader;
+        stack[0] = documentEmpty;
+    }
+
+    /**
+     * @return type of the next token without consuming it
+     * @throws IOException              if can not read the source
+     * @throws IllegalArgumentException if source is incorrect
+     */
+    public Token peek() throws IOException {
+        if (peeked != null) {
+            return peeked;
+        }
+        char c;
+        switch (stack[depth - 1]) {
+            case documentEmpty:
+                c = nextChar();
+                if (c != '{' && c != '[') {
+                    throw exception("incorrect first char");
+                }
+                moveBack();
+                stack[depth - 1] = documentDone;
+                return peekValue();
+            case documentDone:
+                return peeked = Token.END_DOCUMENT;
+            case objectValue:
+                c = nextChar();
+                if (c == '}') {
+                    return peeked = Token.END_OBJECT;
+                }
+                if (c != ',') {
+                    throw exception("unexpected symbol");
+                }
+                return peekName();
+            case objectEmpty:
+                return peekName();
+            case objectName:
+                if (nextChar() != ':') {
+                    throw exception("no ':' after key");
+                }
+                stack[depth - 1] = objectValue;
+                return peekValue();
+            case arrayValue:
+                c = nextChar();
+                if (c == ']') {
+                    return peeked = Token.END_ARRAY;
+                }
+                if (c != ',') {
+                    throw exception("unexpected symbol");
+                }
+                return peekElement();
+            default:
+                return peekElement();
+        }
+    }
+
+    /**
+     * @return true if the current object or array has more elements
+     * @throws IOException              if can not read the source
+     * @throws IllegalArgumentException if source is incorrect
+     */
+    public boolean hasNext() throws IOException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+
+    /**
+     * consumes '{'
+     *
+     * @throws IOException              if can not read the source
+     * @throws IllegalArgumentException if source is incorrect or the next token is not BEGIN_OBJECT
+     */
+    public void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+        push(objectEmpty);
+    }
+
+    /**
+     * consumes '}'
+     *
+     * @throws IOException              if can not read the source
+     * @throws IllegalArgumentException if source is incorrect or the next token is not END_OBJECT
+     */
+    public void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+        depth--;
+    }
+
+    /**
+     * consumes '['
+     *
+     * @throws IOException              if can not read the source
+     * @throws IllegalArgumentException if source is incorrect or the next token is not BEGIN_ARRAY
+     */
+    public void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+        push(arrayEmpty);
+    }
+
+    /**
+     * consumes ']'
+     *
+     * @throws IOException              if can not read the source
+     * @throws IllegalArgumentException if source is incorrect or the next token is not END_ARRAY
+     */
+    public void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+        depth--;
+    }
+
+    /**
+     * @return key of the next pair of the object
+     * @throws IOException              if can not read the source
+     * @throws IllegalArgumentException if source is incorrect or the next token is not NAME
+     */
+    public String nextName() throws IOException {
+        expect(Token.NAME);
+        return (String) peekedValue;
+    }
+
+    /**
+     * @return String value or null
+     * @throws IOException              if can not read the source
+     * @throws IllegalArgumentException if source is incorrect or the next token is not STRING or NULL
+     */
+    public String nextString() throws IOException {
+        return (String) nextPrimitive(Token.STRING);
+    }
+
+    /**
+     * @return Integer value or null
+     * @throws IOException              if can not read the source
+     * @throws IllegalArgumentException if source is incorrect or the next token is not INTEGER or NULL
+     */
+    public Integer nextInteger() throws IOException {
+        return (Integer) nextPrimitive(Token.INTEGER);
+    }
+
+    /**
+     * @return Boolean value or null
+     * @throws IOException              if can not read the source
+     * @throws IllegalArgumentException if source is incorrect or the next token is not BOOLEAN or NULL
+     */
+    public Boolean nextBoolean() throws IOException {
+        return (Boolean) nextPrimitive(Token.BOOLEAN);
+    }
+
+    /**
+     * reads the whole next value, objects and arrays are read with all nested values
+     *
+     * @return null, JsonObject, JsonArray, Boolean, Integer or String
+     * @throws IOException              if can not read the source
+     * @throws IllegalArgumentException if source is incorrect or the next token is not a value
+     */
+    public Object nextValue() throws IOException {
+        switch (peek()) {
+            case BEGIN_OBJECT:
+                beginObject();
+                JsonObject jsonObject = new JsonObject();
+                while (hasNext()) {
+                    String key = nextName();
+                    if (jsonObject.map.containsKey(key)) {
+                        throw exception("duplicate key " + key);
+                    }
+                    jsonObject.map.put(key, nextValue());
+                }
+                endObject();
+                jsonObject.map.sort();
+                return jsonObject;
+            case BEGIN_ARRAY:
+                beginArray();
+                JsonArray jsonArray = new JsonArray();
+                while (hasNext()) {
+                    jsonArray.list.add(nextValue());
+                }
+                endArray();
+                return jsonArray;
+            case STRING:
+            case INTEGER:
+            case BOOLEAN:
+            case NULL:
+                peeked = null;
+                return peekedValue;
+            default:
+                throw exception("expected value but was " + peeked);
+        }
+    }
+
+    /**
+     * skips the next value with all nested values without creating them
+     *
+     * @throws IOException              if can not read the source
+     * @throws IllegalArgumentException if source is incorrect or the next token is not a value
+     */
+    public void skipValue() throws IOException {
+        int nesting = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_OBJECT:
+                    beginObject();
+                    nesting++;
+                    break;
+                case BEGIN_ARRAY:
+                    beginArray();
+                    nesting++;
+                    break;
+                case END_OBJECT:
+                    if (nesting == 0) {
+                        throw exception("expected value but was " + peeked);
+                    }
+                    endObject();
+                    nesting--;
+                    break;
+                case END_ARRAY:
+                    if (nesting == 0) {
+                        throw exception("expected value but was " + peeked);
+                    }
+                    endArray();
+                    nesting--;
+                    break;
+                case NAME:
+                    if (nesting == 0) {
+                        throw exception("expected value but was " + peeked);
+                    }
+                    peeked = null;
+                    break;
+                case END_DOCUMENT:
+                    throw exception("expected value but was " + peeked);
+                default:
+                    peeked = null;
+            }
+        } while (nesting > 0);
+    }
+
+    /**
+     * closes the source
+     *
+     * @throws IOException if can not close the source
+     */
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void expect(Token token) throws IOException {
+        if (peek() != token) {
+            throw exception("expected " + token + " but was " + peeked);
+        }
+        peeked = null;
+    }
+
+    private Object nextPrimitive(Token token) throws IOException {
+        Token next = peek();
+        if (next != token && next != Token.NULL) {
+            throw exception("expected " + token + " but was " + next);
+        }
+        peeked = null;
+        return peekedValue;
+    }
+
+    private void push(int scope) {
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = scope;
+    }
+
+    // after '{' or ',' of the object
+    private Token peekName() throws IOException {
+        if (nextChar() == '}') {
+            return peeked = Token.END_OBJECT;
+        }
+        moveBack();
+        stack[depth - 1] = objectName;
+        peekedValue = nextKey();
+        return peeked = Token.NAME;
+    }
+
+    // after '[' or ',' of the array
+    private Token peekElement() throws IOException {
+        if (nextChar() == ']') {
+            return peeked = Token.END_ARRAY;
+        }
+        moveBack();
+        stack[depth - 1] = arrayValue;
+        return peekValue();
+    }
+
+    // reads the value token after the whitespaces
+    private Token peekValue() throws IOException {
+        char c = nextChar();
+        switch (c) {
+            case '"':
+            case '\'':
+                peekedValue = parseString(c);
+                return peeked = Token.STRING;
+            case '{':
+                return peeked = Token.BEGIN_OBJECT;
+            case '[':
+                return peeked = Token.BEGIN_ARRAY;
+            default:
+                moveBack();
+                peekedValue = Parser.unquotedValue(parseUnquotedString());
+                if (peekedValue == null) {
+                    return peeked = Token.NULL;
+                } else if (peekedValue instanceof Boolean) {
+                    return peeked = Token.BOOLEAN;
+                } else if (peekedValue instanceof Integer) {
+                    return peeked = Token.INTEGER;
+                }
+                return peeked = Token.STRING;
+        }
+    }
+
+    private String nextKey() throws IOException {
+        String key;
+        char c = nextChar();
+        if (c == '"' || c == '\'') {
+            key = parseString(c);
+        } else {
+            moveBack();
+            key = parseUnquotedString();
+        }
+        if (key.isEmpty()) {
+            throw exception("empty key");
+        }
+        return key;
+    }
+
+    // returns next non-whitespace char
+    private char nextChar() throws IOException {
+        while (true) {
+            char c = read();
+            // skip space ' ' (32), new line '\n' (10), carriage return '\r' (13), horizontal tab '\t' (9)
+            if (c != 32 && c != 10 && c != 13 && c != 9) {
+                return c;
+            }
+        }
+    }
+
+    // returns next char
+    private char read() throws IOException {
+        if (position == limit && !fill()) {
+            throw exception("unclosed");
+        }
+        return buffer[position++];
+    }
+
+    // the char was read from the buffer just now, so it is still there
+    private void moveBack() {
+        position--;
+    }
+
+    // reads more chars into the empty buffer, returns false at the end of the source
+    private boolean fill() throws IOException {
+        offset += limit;
+        position = 0;
+        limit = 0;
+        int read;
+        do {
+            read = reader.read(buffer, 0, buffer.length);
+        } while (read == 0);
+        if (read < 0) {
+            return false;
+        }
+        limit = read;
+        return true;
+    }
+
+    private String parseString(char openChar) throws IOException {
+        // without the escapes the string is copied from the buffer at once
+        for (int i = position; i < limit; i++) {
+            char c = buffer[i];
+            if (c == openChar) {
+                String string = new String(buffer, position, i - position);
+                position = i + 1;
+                return string;
+            } else if (c == '\\') {
+                break;
+            }
+        }
+        builder.setLength(0);
+        while (true) {
+            char c = read();
+            if (c == openChar) {
+                return builder.toString();
+            } else if (c == '\\') {
+                c = read();
+                switch (c) {
+                    case 'n':
+                        builder.append('\n');
+                        break;
+                    case 'r':
+                        builder.append('\r');
+                        break;
+                    case 't':
+                        builder.append('\t');
+                        break;
+                    case 'b':
+                        builder.append('\b');
+                        break;
+                    case 'f':
+                        builder.append('\f');
+                        break;
+                    case 'u':
+                        int code = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int digit = Character.digit(read(), 16);
+                            if (digit < 0) {
+                                throw exception("incorrect char \\u");
+                            }
+                            code = code << 4 | digit;
+                        }
+                        builder.append((char) code);
+                        break;
+                    default:
+                        builder.append(c);
+                }
+            } else {
+                builder.append(c);
+            }
+        }
+    }
+
+    private String parseUnquotedString() throws IOException {
+        builder.setLength(0);
+        while (true) {
+            char c = read();
+            switch (c) {
+                case ':':
+                case ',':
+                case ']':
+                case '}':
+                    moveBack();
+                    return builder.toString().trim();
+                default:
+                    builder.append(c);
+            }
+        }
+    }
+
+    private IllegalArgumentException exception(String message) {
+        return new IllegalArgumentException("json at index " + (offset + position - 1) + ": " + message);
+    }
+
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, INTEGER, BOOLEAN, NULL, END_DOCUMENT
+    }
+}
@@ -2,10 +2,15 @@ package com.bluzelle.json;
 
 class Parser {
     private final String source;
-    private int index = 0;
+    int index;
 
     Parser(String source) {
+        this(source, 0);
+    }
+
+    Parser(String source, int index) {
         this.source = source;
+        this.index = index;
     }
 
     // returns next non-whitespace char
@@ -57,30 +62,124 @@ class Parser {
                 return JsonArray.parse(this);
             default:
                 moveBack();
-                String value = parseUnquotedString();
-                switch (value) {
-                    case "null":
-                        return null;
-                    case "true":
-                        return Boolean.TRUE;
-                    case "false":
-                        return Boolean.FALSE;
-                    default:
-                        try {
-                            return Integer.parseInt(value);
-                        } catch (NumberFormatException ignored) {
-                            return value;
-                        }
+                return unquotedValue(parseUnquotedString());
+        }
+    }
+
+    // returns null, Boolean, Integer or String, classified by the first char
+    static Object unquotedValue(String value) {
+        if (value.isEmpty()) {
+            return value;
+        }
+        char c = value.charAt(0);
+        switch (c) {
+            case 'n':
+                return value.equals("null") ? null : value;
+            case 't':
+                return value.equals("true") ? Boolean.TRUE : value;
+            case 'f':
+                return value.equals("false") ? Boolean.FALSE : value;
+            case '-':
+            case '+':
+                return parseInteger(value);
+            default:
+                return Character.digit(c, 10) >= 0 ? parseInteger(value) : value;
+        }
+    }
+
+    // moves after the closing char without decoding, returns true if the string is empty
+    boolean skipString(char openChar) {
+        int start = index;
+        try {
+            while (true) {
+                char c = source.charAt(index++);
+                if (c == openChar) {
+                    return index - 1 == start;
+                } else if (c == '\\' && source.charAt(index++) == 'u') {
+                    try {
+                        Integer.parseInt(source.substring(index, index + 4), 16);
+                    } catch (NumberFormatException e) {
+                        index += 4;
+                        throw exception("incorrect char \\u");
+                    }
+                    index += 4;
                 }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            index = source.length() + 1;
+            throw exception("unclosed");
         }
     }
 
+    // moves to the delimiter, returns true if the string is empty after trim
+    boolean skipUnquotedString() {
+        boolean empty = true;
+        int length = source.length();
+        for (; index < length; index++) {
+            char c = source.charAt(index);
+            switch (c) {
+                case ':':
+                case ',':
+                case ']':
+                case '}':
+                    return empty;
+                default:
+                    if (c > ' ') {
+                        empty = false;
+                    }
+            }
+        }
+        index = length + 1;
+        throw exception("unclosed");
+    }
+
     IllegalArgumentException exception(String message) {
         return new IllegalArgumentException(source + " at index " + (index - 1) + ": " + message);
     }
 
+    // returns Integer as Integer.parseInt(value) or value itself if it is not an int
+    private static Object parseInteger(String value) {
+        boolean negative = value.charAt(0) == '-';
+        int i = negative || value.charAt(0) == '+' ? 1 : 0;
+        if (i == value.length()) {
+            return value;
+        }
+        long result = 0;
+        for (; i < value.length(); i++) {
+            int digit = Character.digit(value.charAt(i), 10);
+            if (digit < 0) {
+                return value;
+            }
+            result = result * 10 + digit;
+            if (result > 0x80000000L) {
+                return value;
+            }
+        }
+        if (negative) {
+            return (int) -result;
+        }
+        return result > Integer.MAX_VALUE ? value : (Object) (int) result;
+    }
+
     private String parseString(char openChar) {
-        StringBuilder builder = new StringBuilder();
+        // most strings have no escapes, they are sliced from the source
+        int start = index;
+        int length = source.length();
+        for (int i = start; i < length; i++) {
+            char c = source.charAt(i);
+            if (c == openChar) {
+                index = i + 1;
+                return source.substring(start, i);
+            } else if (c == '\\') {
+                index = i;
+                return parseEscapedString(openChar, new StringBuilder(i - start + 16).append(source, start, i));
+            }
+        }
+        index = length + 1;
+        throw exception("unclosed");
+    }
+
+    private String parseEscapedString(char openChar, StringBuilder builder) {
         try {
             while (true) {
                 char c = source.charAt(index++);
@@ -128,23 +227,19 @@ class Parser {
     }
 
     private String parseUnquotedString() {
-        StringBuilder builder = new StringBuilder();
-        try {
-            while (true) {
-                char c = source.charAt(index++);
-                switch (c) {
-                    case ':':
-                    case ',':
-                    case ']':
-                    case '}':
-                        moveBack();
-                        return builder.toString().trim();
-                    default:
-                        builder.append(c);
-                }
+        int start = index;
+        int length = source.length();
+        for (int i = start; i < length; i++) {
+            switch (source.charAt(i)) {
+                case ':':
+                case ',':
+                case ']':
+                case '}':
+                    index = i;
+                    return source.substring(start, i).trim();
             }
-        } catch (IndexOutOfBoundsException e) {
-            throw exception("unclosed");
         }
+        index = length + 1;
+        throw exception("unclosed");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,155 @@
+// structural index of the json source for the lazy JsonObject
+// usage:
+//    Tape tape = Tape.index(sourceString);
+//    int next = tape.end(entry);
+//    String key = tape.key(entry);
+//    Object value = tape.value(entry);
+// one pass checks the syntax and records the offsets of all keys and values in the order of the source,
+// entry 0 is the root object, the children of the object are the pairs key, value,
+// end of the entry is the entry after its last child, the strings are decoded only on request
+package com.bluzelle.json;
+
+import java.util.Arrays;
+
+class Tape {
+    final String source;
+    private int[] offsets; // offset of the first char of the entry in the source
+    private int[] ends; // entry after the last child
+    private int size = 0;
+
+    private Tape(String source) {
+        this.source = source;
+        int capacity = Math.max(16, source.length() / 16);
+        offsets = new int[capacity];
+        ends = new int[capacity];
+    }
+
+    /**
+     * @param source String to be indexed
+     * @return Tape of this source
+     * @throws NullPointerException     if source == null
+     * @throws IllegalArgumentException if source is incorrect
+     */
+    static Tape index(String source) {
+        Tape tape = new Tape(source);
+        Parser parser = new Parser(source);
+        if (parser.nextChar() != '{') {
+            throw parser.exception("incorrect first char");
+        }
+        parser.moveBack();
+        tape.value(parser);
+        return tape;
+    }
+
+    int end(int entry) {
+        return ends[entry];
+    }
+
+    String key(int entry) {
+        return new Parser(source, offsets[entry]).nextKey();
+    }
+
+    // returns null, lazy JsonObject, lazy JsonArray, Boolean, Integer or String
+    Object value(int entry) {
+        switch (source.charAt(offsets[entry])) {
+            case '{':
+                return new JsonObject(this, entry);
+            case '[':
+                return new JsonArray(this, entry);
+            default:
+                return new Parser(source, offsets[entry]).nextValue();
+        }
+    }
+
+    IllegalArgumentException exception(int entry, String message) {
+        return new Parser(source, offsets[entry] + 1).exception(message);
+    }
+
+    private void value(Parser parser) {
+        char c = parser.nextChar();
+        int entry = add(parser.index - 1);
+        switch (c) {
+            case '"':
+            case '\'':
+                parser.skipString(c);
+                break;
+            case '{':
+                object(parser);
+                break;
+            case '[':
+                array(parser);
+                break;
+            default:
+                parser.moveBack();
+                parser.skipUnquotedString();
+        }
+        ends[entry] = size;
+    }
+
+    private void object(Parser parser) {
+        while (true) {
+            if (parser.nextChar() == '}') {
+                return;
+            }
+            parser.moveBack();
+
+            char c = parser.nextChar();
+            int entry = add(parser.index - 1);
+            boolean empty;
+            if (c == '"' || c == '\'') {
+                empty = parser.skipString(c);
+            } else {
+                parser.moveBack();
+                empty = parser.skipUnquotedString();
+            }
+            if (empty) {
+                throw parser.exception("empty key");
+            }
+            ends[entry] = size;
+
+            if (parser.nextChar() != ':') {
+                throw parser.exception("no ':' after key");
+            }
+
+            value(parser);
+
+            switch (parser.nextChar()) {
+                case ',':
+                    break;
+                case '}':
+                    return;
+                default:
+                    throw parser.exception("unexpected symbol");
+            }
+        }
+    }
+
+    private void array(Parser parser) {
+        while (true) {
+            if (parser.nextChar() == ']') {
+                return;
+            }
+            parser.moveBack();
+
+            value(parser);
+
+            switch (parser.nextChar()) {
+                case ',':
+                    break;
+                case ']':
+                    return;
+                default:
+                    throw parser.exception("unexpected symbol");
+            }
+        }
+    }
+
+    private int add(int offset) {
+        if (size == offsets.length) {
+            offsets = Arrays.copyOf(offsets, size * 2);
+            ends = Arrays.copyOf(ends, size * 2);
+        }
+        offsets[size] = offset;
+        return size++;
+    }
+}
@@ -0,0 +1,97 @@
+// writes the sanitized json as utf-8 bytes into the MessageDigest
+// usage:
+//    new Utf8Writer(messageDigest).writeObject(jsonObject).flush();
+// bytes are the same as toSanitizeString().getBytes(UTF_8), they are collected in the small buffer,
+// the full copy of the payload is never created
+package com.bluzelle.json;
+
+import java.security.MessageDigest;
+
+class Utf8Writer {
+    // escape sequences of the ascii chars, null if the char is written as is
+    private static final byte[][] escapes = new byte[128][];
+    private final MessageDigest digest;
+    private final byte[] buffer = new byte[4096];
+    private int length = 0;
+
+    static {
+        for (int c = 0; c < 128; c++) {
+            String escape = Writer.escape((char) c, true);
+            if (escape != null) {
+                escapes[c] = escape.getBytes();
+            }
+        }
+    }
+
+    Utf8Writer(MessageDigest digest) {
+        this.digest = digest;
+    }
+
+    Utf8Writer writeObject(Object value) {
+        if (value == null) {
+            writeAscii("null");
+        } else if (value instanceof JsonObject) {
+            ((JsonObject) value).write(this);
+        } else if (value instanceof JsonArray) {
+            ((JsonArray) value).write(this);
+        } else if (value instanceof Boolean || value instanceof Integer) {
+            writeAscii(value.toString());
+        } else {
+            write('"');
+            writeString((String) value);
+            write('"');
+        }
+        return this;
+    }
+
+    void writeString(String string) {
+        int length = string.length();
+        for (int i = 0; i < length; i++) {
+            char c = string.charAt(i);
+            if (c < 0x80) {
+                byte[] escape = escapes[c];
+                if (escape == null) {
+                    write(c);
+                } else {
+                    for (byte b : escape) {
+                        write(b);
+                    }
+                }
+            } else if (c < 0x800) {
+                write(0xc0 | c >> 6);
+                write(0x80 | c & 0x3f);
+            } else if (!Character.isSurrogate(c)) {
+                write(0xe0 | c >> 12);
+                write(0x80 | c >> 6 & 0x3f);
+                write(0x80 | c & 0x3f);
+            } else if (Character.isHighSurrogate(c)
+                    && i + 1 < length && Character.isLowSurrogate(string.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, string.charAt(++i));
+                write(0xf0 | codePoint >> 18);
+                write(0x80 | codePoint >> 12 & 0x3f);
+                write(0x80 | codePoint >> 6 & 0x3f);
+                write(0x80 | codePoint & 0x3f);
+            } else {
+                write('?'); // malformed, as String.getBytes
+            }
+        }
+    }
+
+    void writeAscii(String ascii) {
+        for (int i = 0; i < ascii.length(); i++) {
+            write(ascii.charAt(i));
+        }
+    }
+
+    void write(int b) {
+        if (length == buffer.length) {
+            flush();
+        }
+        buffer[length++] = (byte) b;
+    }
+
+    void flush() {
+        digest.update(buffer, 0, length);
+        length = 0;
+    }
+}
@@ -1,6 +1,16 @@
 package com.bluzelle.json;
 
 class Writer {
+    // escape sequences of the ascii chars, null if the char is written as is
+    private static final String[] escapes = new String[128];
+    private static final String[] sanitizeEscapes = new String[128];
+
+    static {
+        for (char c = 0; c < 128; c++) {
+            escapes[c] = escape(c, false);
+            sanitizeEscapes[c] = escape(c, true);
+        }
+    }
 
     static void writeObject(StringBuilder builder, Object value, boolean sanitize) {
         if (value == null) {
@@ -19,44 +29,45 @@ class Writer {
     }
 
     static void writeString(StringBuilder builder, String string, boolean sanitize) {
+        String[] table = sanitize ? sanitizeEscapes : escapes;
         int length = string.length();
-        int i = 0;
-        while (i < length) {
-            char c = string.charAt(i++);
-            if (sanitize) {
-                switch (c) {
-                    case '&':
-                    case '<':
-                    case '>':
-                        builder.append("\\u00");
-                        builder.append(String.format("%02x", (int) c)); // lowercase!
-                        continue;
-                }
-            }
-            switch (c) {
-                // case '\'': // non-canonical
-                case '"':
-                case '\\':
-                    builder.append('\\').append(c);
-                    break;
-                case '\n':
-                    builder.append('\\').append('n');
-                    break;
-                case '\r':
-                    builder.append('\\').append('r');
-                    break;
-                case '\t':
-                    builder.append('\\').append('t');
-                    break;
-                case '\b':
-                    builder.append('\\').append('b');
-                    break;
-                case '\f':
-                    builder.append('\\').append('f');
-                    break;
-                default:
-                    builder.append(c);
+        int start = 0; // first char that is not appended yet
+        for (int i = 0; i < length; i++) {
+            char c = string.charAt(i);
+            if (c < 128 && table[c] != null) {
+                builder.append(string, start, i).append(table[c]);
+                start = i + 1;
             }
         }
+        builder.append(string, start, length);
+    }
+
+    // returns escape sequence of the char or null if the char is written as is
+    static String escape(char c, boolean sanitize) {
+        switch (c) {
+            case '&':
+                return sanitize ? "\\u0026" : null;
+            case '<':
+                return sanitize ? "\\u003c" : null; // lowercase!
+            case '>':
+                return sanitize ? "\\u003e" : null;
+            // case '\'': // non-canonical
+            case '"':
+                return "\\\"";
+            case '\\':
+                return "\\\\";
+            case '\n':
+                return "\\n";
+            case '\r':
+                return "\\r";
+            case '\t':
+                return "\\t";
+            case '\b':
+                return "\\b";
+            case '\f':
+                return "\\f";
+            default:
+                return null;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,55 @@
+package com.bluzelle;
+
+import com.bluzelle.crypto.HdKeyPair;
+import com.bluzelle.crypto.Mnemonic;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountDeriverTest {
+    private static final String mnemonic = "around buzz diagram captain obtain detail salon mango muffin brother" +
+            " morning jeans display attend knife carry green dwarf vendor hungry fan route pumpkin car";
+
+    @Test
+    void deriveTest() {
+        assertThrows(NullPointerException.class, () -> new AccountDeriver(null));
+        AccountDeriver deriver = new AccountDeriver(mnemonic);
+        assertThrows(NullPointerException.class, () -> deriver.derive(0, 1, null));
+        assertThrows(NullPointerException.class, () -> deriver.derive(0, 1, null, account -> {
+        }));
+        assertThrows(IllegalArgumentException.class, () -> deriver.derive(-1, 1, account -> {
+        }));
+        assertThrows(IllegalArgumentException.class, () -> deriver.derive(0, -1, account -> {
+        }));
+        assertThrows(IllegalArgumentException.class, () -> deriver.derive(Integer.MAX_VALUE, 2, account -> {
+        }));
+        assertThrows(IllegalArgumentException.class, () -> deriver.derive(-1));
+
+        HdKeyPair master = HdKeyPair.createMaster(Mnemonic.createSeed(mnemonic, "mnemonic"));
+        AccountDeriver.Account first = deriver.derive(0);
+        assertEquals(0, first.index);
+        assertEquals(Utils.getAddress(master.generateChild("44'/118'/0'/0/0")), first.address);
+
+        int from = 3;
+        int count = AccountDeriver.chunkSize * 3 + 5;
+        ConcurrentHashMap<Integer, AccountDeriver.Account> accounts = new ConcurrentHashMap<>();
+        deriver.derive(from, count, new ForkJoinPool(3), account -> assertNull(accounts.put(account.index, account)));
+        assertEquals(count, accounts.size());
+        for (int i = from; i < from + count; i += 17) {
+            AccountDeriver.Account account = accounts.get(i);
+            HdKeyPair expected = master.generateChild("44'/118'/0'/0/" + i);
+            assertEquals(expected.d, account.keyPair.d);
+            assertArrayEquals(expected.publicKeyToByteArray(), account.publicKey);
+            assertEquals(Utils.getAddress(expected), account.address);
+        }
+
+        AtomicInteger next = new AtomicInteger(10);
+        deriver.derive(10, AccountDeriver.chunkSize, account -> assertEquals(next.getAndIncrement(), account.index));
+        assertEquals(10 + AccountDeriver.chunkSize, next.get());
+        deriver.derive(10, 0, account -> fail());
+    }
+}
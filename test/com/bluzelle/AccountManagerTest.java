@@ -0,0 +1,99 @@
+package com.bluzelle;
+
+import com.bluzelle.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountManagerTest {
+    private static final String mnemonic = "around buzz diagram captain obtain detail salon mango muffin brother" +
+            " morning jeans display attend knife carry green dwarf vendor hungry fan route pumpkin car";
+    private static final String success = "{\"height\":\"1\",\"txhash\":\"hash\",\"gas_used\":\"1\"}";
+    private static final String signatureFailed = "{\"height\":\"0\",\"code\":4,\"raw_log\":\"unauthorized: " +
+            "signature verification failed; verify correct account sequence and chain-id\"}";
+    private final AtomicInteger serverSequence = new AtomicInteger(5);
+    private final List<String> sequences = Collections.synchronizedList(new ArrayList<>());
+
+    private final MemoryTransport transport = new MemoryTransport((method, url, body) -> {
+        if (url.contains("/auth/accounts/")) {
+            return "{\"result\":{\"value\":{\"account_number\":\"7\",\"sequence\":\"" + serverSequence.get() + "\"}}}";
+        } else if (url.endsWith("/txs")) {
+            JsonObject signature = JsonObject.parse(body).getObject("tx").getArray("signatures").getObject(0);
+            assertEquals("7", signature.getString("account_number"));
+            String sequence = signature.getString("sequence");
+            synchronized (serverSequence) {
+                if (!sequence.equals(String.valueOf(serverSequence.get()))) {
+                    return signatureFailed;
+                }
+                serverSequence.incrementAndGet();
+            }
+            sequences.add(sequence);
+            return success;
+        }
+        throw new FileNotFoundException(url);
+    });
+
+    @Test
+    void sequenceTest() {
+        Bluzelle bluzelle = Bluzelle.connect(mnemonic, "http://localhost", "uuid", null, transport);
+        GasInfo gasInfo = new GasInfo(0, 0, 0);
+        bluzelle.create("a", "1", gasInfo, null);
+        bluzelle.update("a", "2", gasInfo, null);
+        bluzelle.delete("a", gasInfo);
+        assertEquals(1, bluzelle.accountManager.fetches());
+        assertEquals(4, transport.requests());
+        assertEquals(Arrays.asList("5", "6", "7"), sequences);
+
+        // sequence changed by the other client
+        serverSequence.addAndGet(3);
+        bluzelle.create("b", "1", gasInfo, null);
+        assertEquals(2, bluzelle.accountManager.fetches());
+        assertEquals("11", sequences.get(3));
+    }
+
+    @Test
+    void pendingTest() {
+        Bluzelle bluzelle = Bluzelle.connect(mnemonic, "http://localhost", "uuid", null, transport);
+        GasInfo gasInfo = new GasInfo(0, 0, 0);
+        PendingTx pending = bluzelle.createMessage().create("a", "1", gasInfo, null).send(Message.modeSync);
+        assertFalse(pending.response.isDone());
+
+        // the node is ahead, the local sequence is kept while the other transaction is pending
+        serverSequence.incrementAndGet();
+        bluzelle.create("b", "1", gasInfo, null);
+        assertEquals(1, bluzelle.accountManager.fetches());
+        assertEquals(Arrays.asList("5", "7"), sequences);
+    }
+
+    @Test
+    void concurrentTest() throws InterruptedException {
+        Bluzelle bluzelle = Bluzelle.connect(mnemonic, "http://localhost", "uuid", null, transport);
+        GasInfo gasInfo = new GasInfo(0, 0, 0);
+        ArrayList<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            String key = "key" + i;
+            threads.add(new Thread(() -> {
+                for (int j = 0; j < 5; j++) {
+                    bluzelle.create(key + j, "value", gasInfo, null);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(20, sequences.size());
+        assertEquals(20, new HashSet<>(sequences).size());
+        assertEquals(25, serverSequence.get());
+    }
+}
@@ -0,0 +1,78 @@
+package com.bluzelle;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.FileNotFoundException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncBluzelleTest {
+    private static final String mnemonic = "around buzz diagram captain obtain detail salon mango muffin brother" +
+            " morning jeans display attend knife carry green dwarf vendor hungry fan route pumpkin car";
+    // nothing listens on this port
+    private static final String endpoint = "http://localhost:1";
+
+    @Test
+    void test() throws InterruptedException {
+        Bluzelle bluzelle = Bluzelle.connect(mnemonic, endpoint, null, null);
+        assertThrows(NullPointerException.class, () -> bluzelle.async(null));
+        assertThrows(NullPointerException.class, () -> bluzelle.async().send(null));
+        assertSame(bluzelle, bluzelle.async().bluzelle);
+
+        AtomicInteger calls = new AtomicInteger();
+        Executor executor = runnable -> {
+            calls.incrementAndGet();
+            runnable.run();
+        };
+        AsyncBluzelle async = bluzelle.async(executor);
+
+        assertCause(IllegalArgumentException.class, async.read("", false));
+        assertCause(IllegalArgumentException.class, async.getNShortestLeases(-1));
+        assertCause(ConnectionException.class, async.read("key", false));
+        assertCause(ConnectionException.class, async.has("key"));
+        assertCause(ConnectionException.class, async.keys());
+        assertCause(NullPointerException.class, async.create("key", null, new GasInfo(10, 0, 0), null));
+        assertTrue(calls.get() > 0);
+
+        assertCause(ConnectionException.class, bluzelle.async().count());
+    }
+
+    @Test
+    void memoryTransport() throws Exception {
+        MemoryTransport transport = new MemoryTransport((method, url, body) -> {
+            assertEquals("GET", method);
+            assertNull(body);
+            if (url.endsWith("/crud/read/uuid/key")) {
+                return "{\"result\":{\"value\":\"value\"}}";
+            } else if (url.endsWith("/crud/count/uuid")) {
+                return "{\"result\":{\"count\":\"2\"}}";
+            }
+            throw new FileNotFoundException(url);
+        });
+        assertThrows(NullPointerException.class, () -> Bluzelle.connect(mnemonic, endpoint, "uuid", null, null));
+        Bluzelle bluzelle = Bluzelle.connect(mnemonic, endpoint, "uuid", null, transport);
+        AsyncBluzelle async = bluzelle.async(Runnable::run);
+
+        assertEquals("value", async.read("key", false).get());
+        assertEquals(2, (int) async.count().get());
+        assertCause(KeyNotFoundException.class, async.read("missing", false));
+        assertCause(ConnectionException.class, async.has("missing"));
+        assertEquals("value", bluzelle.read("key", false));
+        assertThrows(KeyNotFoundException.class, () -> bluzelle.read("missing", false));
+        assertEquals(6, transport.requests());
+    }
+
+    private static void assertCause(Class<? extends Throwable> expected, CompletableFuture<?> future)
+            throws InterruptedException {
+        try {
+            future.get();
+            fail("no exception");
+        } catch (ExecutionException e) {
+            assertEquals(expected, e.getCause().getClass());
+        }
+    }
+}
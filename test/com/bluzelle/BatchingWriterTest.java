@@ -0,0 +1,110 @@
+package com.bluzelle;
+
+import com.bluzelle.json.JsonArray;
+import com.bluzelle.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchingWriterTest {
+    private static final String mnemonic = "around buzz diagram captain obtain detail salon mango muffin brother" +
+            " morning jeans display attend knife carry green dwarf vendor hungry fan route pumpkin car";
+    private final AtomicInteger sequence = new AtomicInteger(1);
+    private final List<Integer> sizes = Collections.synchronizedList(new ArrayList<>());
+
+    private final MemoryTransport transport = new MemoryTransport((method, url, body) -> {
+        if (url.contains("/auth/accounts/")) {
+            return "{\"result\":{\"value\":{\"account_number\":\"1\",\"sequence\":\"" + sequence.get() + "\"}}}";
+        } else if (url.endsWith("/txs")) {
+            JsonArray msg = JsonObject.parse(body).getObject("tx").getArray("msg");
+            for (int i = 0; i < msg.length(); i++) {
+                if (msg.getObject(i).getObject("value").getString("Key").equals("bad")) {
+                    return "{\"height\":\"0\",\"code\":18,\"raw_log\":\"unauthorized: Key already exists: failed\"}";
+                }
+            }
+            sizes.add(msg.length());
+            return "{\"height\":\"1\",\"txhash\":\"hash" + sequence.getAndIncrement() + "\",\"gas_used\":\"1\"}";
+        } else if (url.contains("/txs/")) {
+            // polled transaction of the rejected batch
+            String txhash = url.substring(url.lastIndexOf('/') + 1);
+            return "{\"height\":\"2\",\"txhash\":\"" + txhash + "\",\"gas_used\":\"1\"}";
+        }
+        throw new FileNotFoundException(url);
+    });
+
+    @Test
+    void test() throws InterruptedException, ExecutionException {
+        Bluzelle bluzelle = Bluzelle.connect(mnemonic, "http://localhost", "uuid", null, transport);
+        GasInfo gasInfo = new GasInfo(0, 0, 0);
+        assertThrows(IllegalArgumentException.class, () -> bluzelle.batchingWriter(-1, 10));
+        assertThrows(IllegalArgumentException.class, () -> bluzelle.batchingWriter(10, 0));
+
+        BatchingWriter writer = bluzelle.batchingWriter(10000, 3);
+        assertThrows(IllegalArgumentException.class, () -> writer.create("", "value", gasInfo, null));
+        assertThrows(NullPointerException.class, () -> writer.update("key", null, gasInfo, null));
+        CompletableFuture<Response> a = writer.create("a", "1", gasInfo, null);
+        CompletableFuture<Response> b = writer.update("b", "2", gasInfo, null);
+        assertFalse(a.isDone());
+        CompletableFuture<Response> c = writer.delete("c", gasInfo);
+        assertEquals("hash1", a.get().txHash);
+        assertSame(a.get(), b.get());
+        assertSame(a.get(), c.get());
+
+        CompletableFuture<Response> d = writer.rename("d", "e", gasInfo);
+        writer.flush();
+        assertEquals("hash2", d.get().txHash);
+        assertEquals(Arrays.asList(3, 1), sizes);
+    }
+
+    @Test
+    void delayTest() throws InterruptedException, ExecutionException {
+        Bluzelle bluzelle = Bluzelle.connect(mnemonic, "http://localhost", "uuid", null, transport);
+        GasInfo gasInfo = new GasInfo(0, 0, 0);
+        BatchingWriter writer = bluzelle.batchingWriter(50, 1000);
+        ArrayList<Thread> threads = new ArrayList<>();
+        List<CompletableFuture<Response>> futures = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 10; i++) {
+            String key = "key" + i;
+            threads.add(new Thread(() -> futures.add(writer.renewLease(key, gasInfo, null))));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (CompletableFuture<Response> future : futures) {
+            assertEquals("hash1", future.get().txHash);
+        }
+        assertEquals(Collections.singletonList(10), sizes);
+    }
+
+    @Test
+    void rejectedTest() throws InterruptedException {
+        Bluzelle bluzelle = Bluzelle.connect(mnemonic, "http://localhost", "uuid", null, transport);
+        GasInfo gasInfo = new GasInfo(0, 0, 0);
+        BatchingWriter writer = bluzelle.batchingWriter(10000, 3);
+        CompletableFuture<Response> a = writer.create("a", "1", gasInfo, null);
+        CompletableFuture<Response> bad = writer.create("bad", "1", gasInfo, null);
+        CompletableFuture<Response> c = writer.create("c", "1", gasInfo, null);
+        try {
+            bad.get();
+            fail("no exception");
+        } catch (ExecutionException e) {
+            assertEquals(ServerException.class, e.getCause().getClass());
+        }
+        assertEquals("hash1", a.join().txHash);
+        assertEquals("hash2", c.join().txHash);
+        assertEquals(2, a.join().height);
+    }
+
+}
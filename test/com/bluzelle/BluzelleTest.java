@@ -2,6 +2,7 @@ package com.bluzelle;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.FileNotFoundException;
 import java.util.ArrayList;
 import java.util.HashMap;
 
@@ -110,6 +111,31 @@ class BluzelleTest {
         );
     }
 
+    @Test
+    void streamTest() {
+        MemoryTransport transport = new MemoryTransport((method, url, body) -> {
+            if (url.contains("/crud/keys/")) {
+                return "{\"height\":\"1\",\"result\":{\"uuid\":\"u\",\"keys\":[\"a\",\"b\\\"\",\"c\"]}}";
+            } else if (url.contains("/crud/keyvalues/")) {
+                return "{\"result\":{\"keyvalues\":[{\"key\":\"a\",\"value\":\"1\"},"
+                        + "{\"value\":\"\\u0414\",\"key\":\"b\"}],\"uuid\":\"u\"}}";
+            }
+            throw new FileNotFoundException(url);
+        });
+        Bluzelle bluzelle = Bluzelle.connect(mnemonic, "http://localhost", "u", null, transport);
+        assertThrows(NullPointerException.class, () -> bluzelle.keys(null));
+        assertThrows(NullPointerException.class, () -> bluzelle.keyValues(null));
+
+        ArrayList<String> keys = new ArrayList<>();
+        bluzelle.keys(keys::add);
+        assertEquals(bluzelle.keys(), keys);
+        assertEquals("[a, b\", c]", keys.toString());
+        HashMap<String, String> keyValues = new HashMap<>();
+        bluzelle.keyValues(keyValues::put);
+        assertEquals(bluzelle.keyValues(), keyValues);
+        assertEquals("\u0414", keyValues.get("b"));
+    }
+
     @Test
     void test2() {
         Bluzelle bluzelle = Bluzelle.connect(mnemonic, endpoint, "9", chain_id);
@@ -0,0 +1,258 @@
+package com.bluzelle;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolTest {
+    private final AtomicInteger accepted = new AtomicInteger();
+    private ServerSocket server;
+    private String endpoint;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = new ServerSocket(0);
+        endpoint = "http://localhost:" + server.getLocalPort();
+        Thread thread = new Thread(() -> {
+            while (true) {
+                try {
+                    Socket socket = server.accept();
+                    accepted.incrementAndGet();
+                    new Thread(() -> serve(socket)).start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        server.close();
+    }
+
+    @Test
+    void constructorTest() {
+        assertThrows(IllegalArgumentException.class, () -> new ConnectionPool(0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new ConnectionPool(1, -1));
+    }
+
+    @Test
+    void reuseTest() throws IOException {
+        ConnectionPool pool = new ConnectionPool(2, 10000);
+        assertThrows(NullPointerException.class, () -> pool.post(endpoint + "/txs", null));
+        assertThrows(IOException.class, () -> pool.get("ftp://localhost/"));
+
+        assertEquals("{\"path\":\"/node_info\"}", pool.get(endpoint + "/node_info"));
+        assertEquals("{\"path\":\"/crud/read/u/k\"}", pool.get(endpoint + "/crud/read/u/k"));
+        assertEquals("{\"post\":\"data\"}", pool.post(endpoint + "/txs", "data"));
+        assertEquals("chunked body", pool.get(endpoint + "/chunked"));
+        assertEquals(1, accepted.get());
+        assertEquals(1, pool.idleConnections());
+
+        assertThrows(FileNotFoundException.class, () -> pool.get(endpoint + "/missing"));
+        assertThrows(IOException.class, () -> pool.get(endpoint + "/error"));
+        assertEquals(1, accepted.get());
+
+        // server closes connection after response
+        assertEquals("closed", pool.get(endpoint + "/close"));
+        assertEquals(0, pool.idleConnections());
+        assertEquals("{\"path\":\"/\"}", pool.get(endpoint));
+        assertEquals(2, accepted.get());
+
+        pool.close();
+        assertEquals(0, pool.idleConnections());
+        // no new connections after close
+        assertThrows(IOException.class, () -> pool.get(endpoint + "/a"));
+        assertThrows(IOException.class, () -> pool.get(endpoint + "/a", InputStream::read));
+        assertEquals(2, accepted.get());
+    }
+
+    @Test
+    void streamTest() throws IOException {
+        ConnectionPool pool = new ConnectionPool(2, 10000);
+        // the reader reads only the beginning, the rest is skipped and the connection is reused
+        assertEquals('{', (char) pool.get(endpoint + "/node_info", InputStream::read).intValue());
+        assertEquals("chunked", pool.get(endpoint + "/chunked", body -> {
+            byte[] bytes = new byte[7];
+            assertEquals(7, body.read(bytes));
+            return new String(bytes, "utf-8");
+        }));
+        assertEquals("{\"path\":\"/a\"}", pool.get(endpoint + "/a", body -> {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            int b;
+            while ((b = body.read()) != -1) {
+                output.write(b);
+            }
+            return output.toString("utf-8");
+        }));
+        assertEquals(1, accepted.get());
+        assertEquals(1, pool.idleConnections());
+
+        // the reader is not called on the error
+        assertThrows(FileNotFoundException.class, () -> pool.get(endpoint + "/missing", body -> {
+            throw new AssertionError();
+        }));
+        assertEquals(1, accepted.get());
+
+        // the connection is closed if the reader throws
+        assertThrows(IOException.class, () -> pool.get(endpoint + "/b", body -> {
+            throw new IOException("reader");
+        }));
+        assertEquals(0, pool.idleConnections());
+        assertEquals("{\"path\":\"/c\"}", pool.get(endpoint + "/c"));
+        assertEquals(2, accepted.get());
+    }
+
+    @Test
+    void idleTest() throws IOException, InterruptedException {
+        ConnectionPool pool = new ConnectionPool(2, 50);
+        pool.get(endpoint + "/a");
+        assertEquals(1, pool.idleConnections());
+        Thread.sleep(100);
+        pool.get(endpoint + "/b");
+        assertEquals(2, accepted.get());
+    }
+
+    @Test
+    void staleTest() throws IOException, InterruptedException {
+        ConnectionPool pool = new ConnectionPool(1, 10000);
+        // server drops the connection without a response on the next request
+        pool.get(endpoint + "/drop");
+        assertEquals("{\"path\":\"/a\"}", pool.get(endpoint + "/a"));
+        assertEquals(2, accepted.get());
+
+        // the idle connection closed by the server is not used for the post
+        pool.get(endpoint + "/idle-close");
+        assertEquals(1, pool.idleConnections());
+        Thread.sleep(50);
+        assertEquals("{\"post\":\"data\"}", pool.post(endpoint + "/txs", "data"));
+        assertEquals(3, accepted.get());
+
+        // the post without the response is not sent again
+        pool.get(endpoint + "/drop");
+        assertThrows(IOException.class, () -> pool.post(endpoint + "/txs", "data"));
+        assertEquals(3, accepted.get());
+    }
+
+    @Test
+    void urlConnectionTest() throws IOException {
+        UrlConnectionTransport transport = new UrlConnectionTransport();
+        assertEquals("{\"path\":\"/a\"}", transport.get(endpoint + "/a"));
+        assertThrows(FileNotFoundException.class, () -> transport.get(endpoint + "/missing"));
+        HttpStatusException e = assertThrows(HttpStatusException.class, () -> transport.get(endpoint + "/error"));
+        assertEquals(500, e.code);
+        e = assertThrows(HttpStatusException.class, () -> transport.get(endpoint + "/unavailable"));
+        assertEquals(503, e.code);
+    }
+
+    @Test
+    void proxyTest() throws IOException {
+        ProxySelector selector = ProxySelector.getDefault();
+        ProxySelector.setDefault(new ProxySelector() {
+            @Override
+            public List<Proxy> select(URI uri) {
+                if (uri.getHost().equals("proxied.invalid")) {
+                    return Collections.singletonList(new Proxy(Proxy.Type.HTTP, server.getLocalSocketAddress()));
+                }
+                return Collections.singletonList(Proxy.NO_PROXY);
+            }
+
+            @Override
+            public void connectFailed(URI uri, SocketAddress address, IOException e) {
+            }
+        });
+        try {
+            ConnectionPool pool = new ConnectionPool(2, 10000);
+            // the test server answers with the absolute url of the proxied request
+            assertEquals("{\"path\":\"http://proxied.invalid/a\"}", pool.get("http://proxied.invalid/a"));
+            assertEquals(0, pool.idleConnections());
+            assertEquals("{\"path\":\"/b\"}", pool.get(endpoint + "/b"));
+            assertEquals(1, pool.idleConnections());
+        } finally {
+            ProxySelector.setDefault(selector);
+        }
+    }
+
+    // answers with the path of the request or with the posted body, the special paths simulate server behavior,
+    // /idle-close closes the connection after the keep-alive response
+    static void serve(Socket socket) {
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "utf-8"));
+            OutputStream output = socket.getOutputStream();
+            boolean drop = false;
+            while (true) {
+                String requestLine = reader.readLine();
+                if (requestLine == null) {
+                    break;
+                }
+                if (drop) {
+                    break;
+                }
+                int length = 0;
+                String line;
+                while (!(line = reader.readLine()).isEmpty()) {
+                    if (line.toLowerCase().startsWith("content-length:")) {
+                        length = Integer.parseInt(line.substring(15).trim());
+                    }
+                }
+                char[] body = new char[length];
+                int read = 0;
+                while (read < length) {
+                    read += reader.read(body, read, length - read);
+                }
+                String path = requestLine.split(" ")[1];
+                if (path.equals("/drop")) {
+                    drop = true;
+                }
+                String response;
+                switch (path) {
+                    case "/missing":
+                        response = "HTTP/1.1 404 Not Found\r\nContent-Length: 2\r\n\r\n{}";
+                        break;
+                    case "/error":
+                        response = "HTTP/1.1 500 Internal Server Error\r\nContent-Length: 2\r\n\r\n{}";
+                        break;
+                    case "/unavailable":
+                        response = "HTTP/1.1 503 Service Unavailable\r\nContent-Length: 0\r\n\r\n";
+                        break;
+                    case "/chunked":
+                        response = "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n"
+                                + "8\r\nchunked \r\n4;ext=1\r\nbody\r\n0\r\n\r\n";
+                        break;
+                    case "/close":
+                        response = "HTTP/1.1 200 OK\r\nConnection: close\r\n\r\nclosed";
+                        break;
+                    default:
+                        String json = requestLine.startsWith("POST")
+                                ? "{\"post\":\"" + new String(body) + "\"}"
+                                : "{\"path\":\"" + path + "\"}";
+                        response = "HTTP/1.1 200 OK\r\nContent-Length: " + json.getBytes("utf-8").length
+                                + "\r\n\r\n" + json;
+                }
+                output.write(response.getBytes("utf-8"));
+                output.flush();
+                if (path.equals("/close") || path.equals("/idle-close")) {
+                    break;
+                }
+            }
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
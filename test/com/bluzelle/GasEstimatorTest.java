@@ -0,0 +1,113 @@
+package com.bluzelle;
+
+import com.bluzelle.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GasEstimatorTest {
+    private static final String mnemonic = "around buzz diagram captain obtain detail salon mango muffin brother" +
+            " morning jeans display attend knife carry green dwarf vendor hungry fan route pumpkin car";
+
+    @Test
+    void modelTest() {
+        assertThrows(NullPointerException.class, () -> new GasEstimator(null, 1.5));
+        assertThrows(IllegalArgumentException.class, () -> new GasEstimator((type, value) -> 1, 0.5));
+
+        GasEstimator estimator = new GasEstimator((type, value) -> 30000 + 10 * value.toString().length(), 1.5);
+        for (int i = 1; i <= GasEstimator.minSamples; i++) {
+            estimator.estimate("crud/create", value(i * 100));
+        }
+        assertEquals(GasEstimator.minSamples, estimator.simulations());
+
+        JsonObject value = value(250);
+        int expected = (int) Math.ceil((30000 + 10 * value.toString().length()) * 1.5);
+        assertEquals(expected, estimator.estimate("crud/create", value), 2);
+        assertEquals(GasEstimator.minSamples, estimator.simulations());
+
+        // the other type and too large value are simulated
+        estimator.estimate("crud/update", value);
+        estimator.estimate("crud/create", value(10000));
+        assertEquals(GasEstimator.minSamples + 2, estimator.simulations());
+
+        // observed samples build the model without simulation
+        GasEstimator observed = new GasEstimator((type, v) -> {
+            throw new ServerException("no simulation");
+        }, 1);
+        observed.observe("crud/delete", value(10), 1000);
+        observed.observe("crud/delete", value(20), 1000);
+        observed.observe("crud/delete", value(30), 1000);
+        assertEquals(1000, observed.estimate("crud/delete", value(15)));
+
+        // the fixed size is simulated once, the sample without gas is ignored
+        GasEstimator fixed = new GasEstimator((type, v) -> 5000, 1);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(5000, fixed.estimate("crud/update", value(8)));
+        }
+        assertEquals(1, fixed.simulations());
+        observed.observe("crud/update", value(8), 0);
+        assertThrows(ServerException.class, () -> observed.estimate("crud/update", value(8)));
+    }
+
+    @Test
+    void clientTest() {
+        AtomicInteger simulations = new AtomicInteger();
+        MemoryTransport transport = new MemoryTransport((method, url, body) -> {
+            if (url.contains("/auth/accounts/")) {
+                return "{\"result\":{\"value\":{\"account_number\":\"1\",\"sequence\":\"1\"}}}";
+            } else if (url.endsWith("/crud/create")) {
+                JsonObject request = JsonObject.parse(body);
+                assertEquals("true", String.valueOf(request.getObject("BaseReq").getBoolean("simulate")));
+                assertEquals("key", request.getString("Key"));
+                simulations.incrementAndGet();
+                return "{\"gas_estimate\":\"50000\"}";
+            } else if (url.endsWith("/txs")) {
+                JsonObject fee = JsonObject.parse(body).getObject("tx").getObject("fee");
+                assertEquals("60000", fee.getString("gas"));
+                assertEquals("60000", fee.getArray("amount").getObject(0).getString("amount"));
+                return "{\"height\":\"1\",\"txhash\":\"hash\",\"gas_used\":\"48000\"}";
+            }
+            throw new FileNotFoundException(url);
+        });
+        Bluzelle bluzelle = Bluzelle.connect(mnemonic, "http://localhost", "uuid", null, transport);
+        bluzelle.enableGasEstimation(1.2);
+        bluzelle.create("key", "value", new GasInfo(1, 0, 0), null);
+        assertEquals(1, simulations.get());
+        bluzelle.enableGasEstimation(null);
+        assertEquals(200000, bluzelle.defaultGas("crud/create", new JsonObject()));
+    }
+
+    @Test
+    void failedSimulationTest() {
+        MemoryTransport transport = new MemoryTransport((method, url, body) -> {
+            if (url.contains("/auth/accounts/")) {
+                return "{\"result\":{\"value\":{\"account_number\":\"1\",\"sequence\":\"1\"}}}";
+            } else if (url.endsWith("/crud/create")) {
+                throw new IOException("connection reset");
+            } else if (url.endsWith("/txs")) {
+                JsonObject tx = JsonObject.parse(body).getObject("tx");
+                assertEquals(1, tx.getArray("msg").length());
+                assertEquals("200000", tx.getObject("fee").getString("gas"));
+                return "{\"height\":\"1\",\"txhash\":\"hash\",\"gas_used\":\"48000\"}";
+            }
+            throw new FileNotFoundException(url);
+        });
+        Bluzelle bluzelle = Bluzelle.connect(mnemonic, "http://localhost", "uuid", null, transport);
+        bluzelle.enableGasEstimation(1.2);
+        GasInfo gasInfo = new GasInfo(1, 0, 0);
+        for (int i = 0; i <= Router.failureThreshold; i++) {
+            assertEquals(200000, bluzelle.createMessage().create("key" + i, "value", gasInfo, null).gas());
+        }
+        // the failed simulations do not eject the node
+        assertFalse(bluzelle.router.nodes.get(0).isEjected());
+        bluzelle.create("key", "value", gasInfo, null);
+    }
+
+    private static JsonObject value(int length) {
+        return new JsonObject().put("Key", "key").put("Value", new String(new char[length]).replace('\0', 'a'));
+    }
+}
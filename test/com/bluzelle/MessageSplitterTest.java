@@ -0,0 +1,133 @@
+package com.bluzelle;
+
+import com.bluzelle.json.JsonArray;
+import com.bluzelle.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageSplitterTest {
+    private static final String mnemonic = "around buzz diagram captain obtain detail salon mango muffin brother" +
+            " morning jeans display attend knife carry green dwarf vendor hungry fan route pumpkin car";
+    private static final int maxBytes = 20000;
+    private final AtomicInteger sequence = new AtomicInteger(1);
+    private final List<String> keys = Collections.synchronizedList(new ArrayList<>());
+    private final List<Integer> gas = Collections.synchronizedList(new ArrayList<>());
+
+    private final MemoryTransport transport = new MemoryTransport((method, url, body) -> {
+        if (url.contains("/auth/accounts/")) {
+            return "{\"result\":{\"value\":{\"account_number\":\"1\",\"sequence\":\"" + sequence.get() + "\"}}}";
+        } else if (url.endsWith("/txs")) {
+            assertTrue(body.length() <= maxBytes);
+            JsonObject tx = JsonObject.parse(body).getObject("tx");
+            gas.add(Integer.parseInt(tx.getObject("fee").getString("gas")));
+            assertTrue(gas.get(gas.size() - 1) <= 1000000);
+            JsonArray msg = tx.getArray("msg");
+            for (int i = 0; i < msg.length(); i++) {
+                JsonObject value = msg.getObject(i).getObject("value");
+                JsonArray keyValues = value.getArray("KeyValues");
+                if (keyValues == null) {
+                    keys.add(value.getString("Key"));
+                } else {
+                    for (int j = 0; j < keyValues.length(); j++) {
+                        keys.add(keyValues.getObject(j).getString("key"));
+                    }
+                }
+            }
+            return "{\"height\":\"0\",\"txhash\":\"hash" + sequence.getAndIncrement() + "\"}";
+        } else if (url.contains("/txs/hash")) {
+            String hash = url.substring(url.lastIndexOf('/') + 1);
+            return "{\"height\":\"2\",\"txhash\":\"" + hash + "\",\"gas_used\":\"10\"}";
+        }
+        throw new FileNotFoundException(url);
+    });
+
+    @Test
+    void test() {
+        Bluzelle bluzelle = Bluzelle.connect(mnemonic, "http://localhost", "uuid", null, transport);
+        GasInfo gasInfo = new GasInfo(0, 0, 0);
+        assertThrows(IllegalArgumentException.class, () -> bluzelle.messageSplitter(0, maxBytes));
+        assertThrows(IllegalArgumentException.class, () -> bluzelle.messageSplitter(1000000, 100));
+
+        MessageSplitter splitter = bluzelle.messageSplitter(1000000, maxBytes);
+        assertThrows(IllegalArgumentException.class, () -> splitter.create("", "value", gasInfo, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> splitter.create("key", new String(new char[maxBytes]), gasInfo, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> splitter.delete("key", new GasInfo(0, 2000000, 0)));
+        assertEquals(0, splitter.transactions());
+
+        // 5 writes of 200000 gas fit one transaction
+        for (int i = 0; i < 7; i++) {
+            splitter.create("key" + i, "value", gasInfo, null);
+        }
+        assertEquals(2, splitter.transactions());
+        HashMap<String, String> keyValues = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            keyValues.put("multi" + i, "value\"" + i);
+        }
+        splitter.multiUpdate(keyValues, gasInfo);
+        splitter.delete("last", gasInfo);
+        int transactions = splitter.transactions();
+        assertTrue(transactions > 3);
+
+        MultiResponse response = splitter.send();
+        assertEquals(transactions, response.responses.size());
+        assertEquals(10 * transactions, response.gasUsed);
+        assertEquals("hash1", response.txHashes().get(0));
+        assertEquals(3008, keys.size());
+        assertEquals(3008, new HashSet<>(keys).size());
+        assertEquals("key0", keys.get(0));
+        assertEquals("last", keys.get(3007));
+    }
+
+    @Test
+    void gasTest() {
+        Bluzelle bluzelle = Bluzelle.connect(mnemonic, "http://localhost", "uuid", null, transport);
+        AtomicInteger simulations = new AtomicInteger();
+        bluzelle.enableGasEstimation(new GasEstimator((type, value) -> {
+            simulations.incrementAndGet();
+            return 1000 + value.toString().length();
+        }, 1));
+        MessageSplitter splitter = bluzelle.messageSplitter(1000000, maxBytes);
+        HashMap<String, String> keyValues = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            keyValues.put("key" + i, "value");
+        }
+        // the validation error is not retried with the smaller chunks
+        keyValues.put("", "value");
+        assertThrows(IllegalArgumentException.class, () -> splitter.multiUpdate(keyValues, new GasInfo(0, 0, 0)));
+        assertEquals(0, simulations.get());
+
+        // the writes are estimated once
+        splitter.create("a", "1", new GasInfo(0, 0, 0), null);
+        splitter.create("b", "22", new GasInfo(0, 0, 0), null);
+        assertEquals(1, splitter.transactions());
+        assertEquals(1, splitter.transactions());
+        assertEquals(2, simulations.get());
+
+        // maxGas of the large multiUpdate is shared by its msgs
+        keyValues.remove("");
+        for (int i = 0; i < 3000; i++) {
+            keyValues.put("multi" + i, "value" + i);
+        }
+        splitter.multiUpdate(keyValues, new GasInfo(1, 900000, 900));
+        int transactions = splitter.transactions();
+        assertTrue(transactions > 2);
+        splitter.send();
+        assertEquals(transactions, gas.size());
+        int total = 0;
+        for (int g : gas) {
+            total += g;
+        }
+        assertTrue(total <= 900000 + 2 * 2000);
+    }
+}
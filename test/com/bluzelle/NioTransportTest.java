@@ -0,0 +1,136 @@
+package com.bluzelle;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NioTransportTest {
+    private final AtomicInteger accepted = new AtomicInteger();
+    private ServerSocket server;
+    private String endpoint;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = new ServerSocket(0);
+        endpoint = "http://localhost:" + server.getLocalPort();
+        Thread thread = new Thread(() -> {
+            while (true) {
+                try {
+                    Socket socket = server.accept();
+                    accepted.incrementAndGet();
+                    new Thread(() -> ConnectionPoolTest.serve(socket)).start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        server.close();
+    }
+
+    @Test
+    void constructorTest() {
+        assertThrows(IllegalArgumentException.class, () -> new NioTransport(0, 1, 10));
+        assertThrows(IllegalArgumentException.class, () -> new NioTransport(1, 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new NioTransport(1, 1, -1));
+    }
+
+    @Test
+    void reuseTest() throws IOException {
+        NioTransport transport = new NioTransport(1, 2, 10000);
+        assertThrows(NullPointerException.class, () -> transport.post(endpoint + "/txs", null));
+        assertThrows(IOException.class, () -> transport.get("https://localhost/"));
+
+        assertEquals("{\"path\":\"/node_info\"}", transport.get(endpoint + "/node_info"));
+        assertEquals("{\"path\":\"/crud/read/u/k\"}", transport.get(endpoint + "/crud/read/u/k"));
+        assertEquals("{\"post\":\"data\"}", transport.post(endpoint + "/txs", "data"));
+        assertEquals("chunked body", transport.get(endpoint + "/chunked"));
+        assertEquals(1, accepted.get());
+
+        assertThrows(FileNotFoundException.class, () -> transport.get(endpoint + "/missing"));
+        assertThrows(IOException.class, () -> transport.get(endpoint + "/error"));
+        assertEquals(1, accepted.get());
+
+        // server closes connection after response
+        assertEquals("closed", transport.get(endpoint + "/close"));
+        assertEquals("{\"path\":\"/\"}", transport.get(endpoint));
+        assertEquals(2, accepted.get());
+
+        transport.close();
+        assertThrows(IOException.class, () -> transport.get(endpoint));
+    }
+
+    @Test
+    void concurrentTest() throws Exception {
+        NioTransport transport = new NioTransport(2, 3, 10000);
+        ArrayList<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(transport.getAsync(endpoint + "/" + i));
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals("{\"path\":\"/" + i + "\"}", futures.get(i).get());
+        }
+        assertTrue(accepted.get() <= 6);
+        transport.close();
+    }
+
+    @Test
+    void idleTest() throws IOException, InterruptedException {
+        NioTransport transport = new NioTransport(1, 2, 50);
+        transport.get(endpoint + "/a");
+        Thread.sleep(100);
+        transport.get(endpoint + "/b");
+        assertEquals(2, accepted.get());
+        transport.close();
+    }
+
+    @Test
+    void staleTest() throws IOException {
+        NioTransport transport = new NioTransport(1, 1, 10000);
+        // server drops the connection without a response on the next request
+        transport.get(endpoint + "/drop");
+        assertEquals("{\"path\":\"/a\"}", transport.get(endpoint + "/a"));
+        assertEquals(2, accepted.get());
+        transport.close();
+    }
+
+    @Test
+    void connectionErrorTest() throws InterruptedException {
+        NioTransport transport = new NioTransport(1, 1, 10000);
+        try {
+            // nothing listens on this port
+            transport.getAsync("http://localhost:1/").get();
+            fail("no exception");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        // resolved on the calling thread
+        CompletableFuture<String> future = transport.getAsync("http://unknown.invalid/");
+        assertTrue(future.isCompletedExceptionally());
+        try {
+            future.get();
+            fail("no exception");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof UnknownHostException);
+        }
+        transport.close();
+        assertThrows(IOException.class, () -> transport.get(endpoint + "/a"));
+    }
+}
@@ -0,0 +1,126 @@
+package com.bluzelle;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.FileNotFoundException;
+import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadCacheTest {
+    private static final String mnemonic = "around buzz diagram captain obtain detail salon mango muffin brother" +
+            " morning jeans display attend knife carry green dwarf vendor hungry fan route pumpkin car";
+
+    @Test
+    void cacheTest() throws InterruptedException {
+        assertThrows(IllegalArgumentException.class, () -> new ReadCache(0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new ReadCache(10, 0));
+
+        ReadCache cache = new ReadCache(1000, 10000);
+        assertNull(cache.get(ReadCache.read, "key"));
+        cache.put(ReadCache.read, "key", "value", cache.generation());
+        cache.put(ReadCache.has, "key", true, cache.generation());
+        assertEquals("value", cache.get(ReadCache.read, "key"));
+        assertEquals(true, cache.get(ReadCache.has, "key"));
+        assertEquals(2, cache.hits());
+        assertEquals(1, cache.misses());
+
+        // stale put after invalidation
+        long generation = cache.generation();
+        cache.invalidate("key");
+        cache.put(ReadCache.read, "key", "old", generation);
+        assertNull(cache.get(ReadCache.read, "key"));
+        assertNull(cache.get(ReadCache.has, "key"));
+        assertEquals(0, cache.bytes());
+
+        // lease bounds the entries
+        cache.put(ReadCache.read, "key", "value", cache.generation());
+        cache.put(ReadCache.lease, "key", 0, cache.generation());
+        assertNull(cache.get(ReadCache.read, "key"));
+        cache.put(ReadCache.lease, "key2", 100, cache.generation());
+        cache.put(ReadCache.read, "key2", "value", cache.generation());
+        assertEquals(99, (int) cache.get(ReadCache.lease, "key2"), 1);
+
+        cache.clear();
+        assertEquals(0, cache.bytes());
+        assertNull(cache.get(ReadCache.read, "key2"));
+
+        cache = new ReadCache(1000, 20);
+        cache.put(ReadCache.read, "key", "value", cache.generation());
+        Thread.sleep(30);
+        assertNull(cache.get(ReadCache.read, "key"));
+    }
+
+    @Test
+    void evictionTest() {
+        ReadCache cache = new ReadCache(1000, 10000);
+        for (int i = 0; i < 100; i++) {
+            cache.put(ReadCache.read, "key" + i, "value", cache.generation());
+            assertTrue(cache.bytes() <= 1000);
+        }
+        assertNull(cache.get(ReadCache.read, "key0"));
+        assertEquals("value", cache.get(ReadCache.read, "key99"));
+        // too big
+        cache.put(ReadCache.read, "big", new String(new char[1000]), cache.generation());
+        assertNull(cache.get(ReadCache.read, "big"));
+        assertEquals("value", cache.get(ReadCache.read, "key99"));
+    }
+
+    @Test
+    void clientTest() throws InterruptedException, ExecutionException {
+        AtomicInteger reads = new AtomicInteger();
+        HashMap<String, String> values = new HashMap<>();
+        values.put("key", "value");
+        MemoryTransport transport = new MemoryTransport((method, url, body) -> {
+            if (url.contains("/auth/accounts/")) {
+                return "{\"result\":{\"value\":{\"account_number\":\"1\",\"sequence\":\"1\"}}}";
+            } else if (url.endsWith("/txs")) {
+                values.put("key", "new");
+                return "{\"height\":\"1\",\"txhash\":\"hash\",\"gas_used\":\"1\"}";
+            }
+            reads.incrementAndGet();
+            String key = url.substring(url.lastIndexOf('/') + 1);
+            if (url.contains("/crud/read/") || url.contains("/crud/pread/")) {
+                if (!values.containsKey(key)) {
+                    throw new FileNotFoundException(url);
+                }
+                return "{\"result\":{\"value\":\"" + values.get(key) + "\"}}";
+            } else if (url.contains("/crud/has/")) {
+                return "{\"result\":{\"has\":" + values.containsKey(key) + "}}";
+            } else if (url.contains("/crud/getlease/")) {
+                return "{\"result\":{\"lease\":\"100\"}}";
+            }
+            throw new FileNotFoundException(url);
+        });
+        Bluzelle bluzelle = Bluzelle.connect(mnemonic, "http://localhost", "uuid", null, transport);
+        assertThrows(IllegalArgumentException.class, () -> bluzelle.enableCache(0, 10));
+        bluzelle.enableCache(100000, 60000);
+
+        assertEquals("value", bluzelle.read("key", false));
+        assertEquals("value", bluzelle.read("key", false));
+        assertEquals("value", bluzelle.async(Runnable::run).read("key", false).get());
+        assertTrue(bluzelle.has("key"));
+        assertTrue(bluzelle.has("key"));
+        assertEquals(500, bluzelle.getLease("key"));
+        assertTrue(bluzelle.getLease("key") >= 499);
+        assertEquals(3, reads.get());
+        // proof is always read from the server
+        assertEquals("value", bluzelle.read("key", true));
+        assertEquals(4, reads.get());
+        // not found is not cached
+        assertThrows(KeyNotFoundException.class, () -> bluzelle.read("missing", false));
+        assertThrows(KeyNotFoundException.class, () -> bluzelle.read("missing", false));
+        assertEquals(6, reads.get());
+
+        bluzelle.update("key", "new", new GasInfo(0, 0, 0), null);
+        assertEquals("new", bluzelle.read("key", false));
+        assertEquals("new", bluzelle.read("key", false));
+        assertEquals(7, reads.get());
+
+        bluzelle.disableCache();
+        assertEquals("new", bluzelle.read("key", false));
+        assertEquals(8, reads.get());
+    }
+}
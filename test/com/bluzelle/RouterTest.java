@@ -0,0 +1,192 @@
+package com.bluzelle;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouterTest {
+    private final AtomicInteger slow = new AtomicInteger();
+    private final AtomicInteger fast = new AtomicInteger();
+    private final AtomicInteger down = new AtomicInteger();
+    private volatile boolean downIsUp = false;
+    private final MemoryTransport transport = new MemoryTransport((method, url, body) -> {
+        if (url.startsWith("http://slow")) {
+            slow.incrementAndGet();
+            sleep(20);
+        } else if (url.startsWith("http://fast")) {
+            fast.incrementAndGet();
+        } else if (url.startsWith("http://down")) {
+            down.incrementAndGet();
+            if (!downIsUp) {
+                throw new IOException("connection refused");
+            }
+        }
+        if (url.endsWith("/missing")) {
+            throw new FileNotFoundException(url);
+        }
+        if (url.endsWith("/bad")) {
+            throw new HttpStatusException(400, url);
+        }
+        if (url.endsWith("/unavailable")) {
+            throw new HttpStatusException(503, url);
+        }
+        return url.substring(7, url.indexOf('/', 7));
+    });
+
+    @Test
+    void constructorTest() {
+        assertThrows(IllegalArgumentException.class, () -> new Router(Collections.emptyList()));
+        String mnemonic = Bluzelle.createMnemonic(256);
+        assertThrows(IllegalArgumentException.class,
+                () -> Bluzelle.connect(mnemonic, Arrays.asList("http://a", ""), null, null));
+        Bluzelle bluzelle = Bluzelle.connect(mnemonic, Collections.emptyList(), null, null);
+        assertEquals("http://localhost:1317", bluzelle.endpoint);
+        bluzelle = Bluzelle.connect(mnemonic, Arrays.asList("http://a", "http://b"), null, null);
+        assertEquals("http://a", bluzelle.endpoint);
+        assertEquals(2, bluzelle.router.nodes.size());
+    }
+
+    @Test
+    void latencyTest() {
+        Router router = new Router(Arrays.asList("http://slow", "http://fast"));
+        // both are probed first
+        assertEquals("slow", router.get(transport, "/a", null));
+        assertEquals("fast", router.get(transport, "/a", null));
+        for (int i = 0; i < 10; i++) {
+            assertEquals("fast", router.get(transport, "/a", null));
+        }
+        assertEquals(1, slow.get());
+        assertThrows(KeyNotFoundException.class, () -> router.get(transport, "/missing", "key"));
+        assertThrows(ConnectionException.class, () -> router.get(transport, "/missing", null));
+    }
+
+    @Test
+    void failoverTest() throws InterruptedException, ExecutionException {
+        Router router = new Router(Arrays.asList("http://down", "http://fast"), 50, 10000);
+        for (int i = 0; i < 10; i++) {
+            assertEquals("fast", router.get(transport, "/a", null));
+            assertEquals("fast", router.getAsync(transport, "/a", null).get());
+        }
+        assertTrue(down.get() >= 1 && down.get() <= Router.failureThreshold);
+        assertEquals(20, fast.get());
+    }
+
+    @Test
+    void ejectionTest() throws InterruptedException {
+        Router router = new Router(Arrays.asList("http://down", "http://fast"), 50, 10000);
+        Router.Node node = router.nodes.get(0);
+        for (int i = 0; i < Router.failureThreshold; i++) {
+            node.failure(0);
+        }
+        assertTrue(node.isEjected());
+        assertEquals("fast", router.get(transport, "/a", null));
+        assertEquals("fast", router.post(transport, "tx"));
+        assertEquals(0, down.get());
+
+        // the only trial request after the ejection
+        Thread.sleep(60);
+        assertEquals("fast", router.get(transport, "/a", null));
+        assertEquals(1, down.get());
+        assertTrue(node.isEjected());
+        Thread.sleep(60);
+        downIsUp = true;
+        assertEquals("down", router.get(transport, "/a", null));
+        assertFalse(node.isEjected());
+    }
+
+    @Test
+    void readerTest() {
+        Router router = new Router(Arrays.asList("http://down", "http://fast"), 50, 10000);
+        // can not connect, the reader has not started, the next node is tried
+        for (int i = 0; i < 3; i++) {
+            assertEquals("fast", router.get(transport, "/a", null, body -> {
+                byte[] bytes = new byte[4];
+                assertEquals(4, body.read(bytes));
+                return new String(bytes, "utf-8");
+            }));
+        }
+        assertEquals(3, fast.get());
+
+        // the reader has started, no retries
+        AtomicInteger calls = new AtomicInteger();
+        assertThrows(ConnectionException.class, () -> router.get(transport, "/a", null, body -> {
+            calls.incrementAndGet();
+            throw new IOException("broken body");
+        }));
+        assertEquals(1, calls.get());
+        assertThrows(KeyNotFoundException.class, () -> router.get(transport, "/missing", "key", body -> {
+            throw new AssertionError();
+        }));
+    }
+
+    @Test
+    void trialReaderTest() throws InterruptedException {
+        Router router = new Router(Arrays.asList("http://down", "http://fast"), 50, 10000);
+        Router.Node node = router.nodes.get(0);
+        for (int i = 0; i < Router.failureThreshold; i++) {
+            node.failure(0);
+        }
+        downIsUp = true;
+        Thread.sleep(60);
+        // the incorrect body ends the trial without the result, the next request is the trial again
+        assertThrows(IllegalArgumentException.class, () -> router.get(transport, "/a", null, body -> {
+            throw new IllegalArgumentException("incorrect body");
+        }));
+        assertEquals(1, down.get());
+        assertEquals("down", router.get(transport, "/a", null));
+        assertFalse(node.isEjected());
+    }
+
+    @Test
+    void applicationErrorTest() {
+        Router router = new Router(Arrays.asList("http://fast", "http://slow"), 50, 10000);
+        // the endpoint has answered, no retries and no ejection
+        for (int i = 0; i < Router.failureThreshold + 1; i++) {
+            assertThrows(ConnectionException.class, () -> router.get(transport, "/bad", null));
+            assertThrows(ConnectionException.class, () -> router.post(transport, "/bad", "tx"));
+            assertThrows(ConnectionException.class, () -> router.get(transport, "/missing", null));
+        }
+        assertFalse(router.nodes.get(0).isEjected());
+        assertFalse(router.nodes.get(1).isEjected());
+        assertEquals(3 * (Router.failureThreshold + 1), fast.get() + slow.get());
+
+        // gateway errors are the failures of the endpoint, retried on the other one
+        assertThrows(ConnectionException.class, () -> router.get(transport, "/unavailable", null));
+        assertEquals(3 * (Router.failureThreshold + 1) + 2, fast.get() + slow.get());
+        assertTrue(Router.isNodeFailure(new IOException("connection refused")));
+        assertTrue(Router.isNodeFailure(new SocketTimeoutException("read timed out")));
+        assertFalse(Router.isNodeFailure(new InterruptedIOException("interrupted")));
+        assertFalse(Router.isNodeFailure(new HttpStatusException(500, "http://a")));
+    }
+
+    @Test
+    void allDownTest() {
+        Router router = new Router(Arrays.asList("http://down", "http://down2"));
+        downIsUp = false;
+        assertThrows(ConnectionException.class, () -> router.get(transport, "/a", null));
+        assertEquals(2, down.get());
+        try {
+            router.getAsync(transport, "/a", null).get();
+            fail("no exception");
+        } catch (Exception e) {
+            assertEquals(ConnectionException.class, e.getCause().getClass());
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
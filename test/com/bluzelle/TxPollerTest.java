@@ -0,0 +1,114 @@
+package com.bluzelle;
+
+import com.bluzelle.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TxPollerTest {
+    private static final String mnemonic = "around buzz diagram captain obtain detail salon mango muffin brother" +
+            " morning jeans display attend knife carry green dwarf vendor hungry fan route pumpkin car";
+    private final AtomicInteger posts = new AtomicInteger();
+    private final AtomicInteger polls = new AtomicInteger();
+
+    private final MemoryTransport transport = new MemoryTransport((method, url, body) -> {
+        if (url.contains("/auth/accounts/")) {
+            return "{\"result\":{\"value\":{\"account_number\":\"1\",\"sequence\":\"1\"}}}";
+        } else if (url.endsWith("/txs")) {
+            String mode = JsonObject.parse(body).getString("mode");
+            assertNotEquals("block", mode);
+            return "{\"height\":\"0\",\"txhash\":\"hash" + posts.incrementAndGet() + "\",\"raw_log\":\"[]\"}";
+        } else if (url.contains("/txs/")) {
+            // in the block after the second poll
+            if (polls.incrementAndGet() % 2 == 1) {
+                throw new FileNotFoundException(url);
+            }
+            if (url.endsWith("hash2")) {
+                return "{\"height\":\"5\",\"txhash\":\"hash2\",\"code\":12,\"gas_used\":\"1\"," +
+                        "\"raw_log\":\"out of gas: out of gas in location: WritePerByte\"}";
+            }
+            if (url.endsWith("hash3")) {
+                return "{\"height\":\"5\",\"txhash\":";
+            }
+            return "{\"height\":\"5\",\"txhash\":\"hash1\",\"gas_used\":\"10\"}";
+        }
+        throw new FileNotFoundException(url);
+    });
+
+    @Test
+    void test() {
+        Bluzelle bluzelle = Bluzelle.connect(mnemonic, "http://localhost", "uuid", null, transport);
+        GasInfo gasInfo = new GasInfo(0, 0, 0);
+        assertThrows(IllegalArgumentException.class,
+                () -> bluzelle.createMessage().delete("key", gasInfo).send("block"));
+        assertThrows(NullPointerException.class,
+                () -> bluzelle.createMessage().delete("key", gasInfo).send(null));
+
+        PendingTx pending = bluzelle.createMessage().create("key", "value", gasInfo, null)
+                .send(Message.modeSync);
+        assertEquals("hash1", pending.txhash);
+        assertFalse(pending.response.isDone());
+        assertEquals(1, bluzelle.txPoller.pending());
+
+        Response response = pending.await();
+        assertEquals("hash1", response.txHash);
+        assertEquals(5, response.height);
+        assertEquals(0, bluzelle.txPoller.pending());
+
+        PendingTx failed = bluzelle.createMessage().delete("key", gasInfo).send(Message.modeAsync);
+        assertEquals("hash2", failed.txhash);
+        assertThrows(ServerException.class, failed::await);
+        assertEquals(0, bluzelle.txPoller.pending());
+
+        // the truncated response is not polled again
+        PendingTx truncated = bluzelle.createMessage().delete("key", gasInfo).send(Message.modeSync);
+        assertEquals("hash3", truncated.txhash);
+        assertThrows(IllegalArgumentException.class, truncated::await);
+        assertEquals(0, bluzelle.txPoller.pending());
+    }
+
+    @Test
+    void failedPollTest() {
+        AtomicInteger failures = new AtomicInteger();
+        // the first poll throws before the request is sent
+        Transport failing = new Transport() {
+            @Override
+            public String get(String url) throws IOException {
+                return transport.get(url);
+            }
+
+            @Override
+            public String post(String url, String body) throws IOException {
+                return transport.post(url, body);
+            }
+
+            @Override
+            public CompletableFuture<String> getAsync(String url) {
+                if (failures.getAndIncrement() == 0) {
+                    throw new IllegalStateException("failed poll");
+                }
+                return transport.getAsync(url);
+            }
+
+            @Override
+            public CompletableFuture<String> postAsync(String url, String body) {
+                return transport.postAsync(url, body);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Bluzelle bluzelle = Bluzelle.connect(mnemonic, "http://localhost", "uuid", null, failing);
+        PendingTx pending = bluzelle.createMessage().create("key", "value", new GasInfo(0, 0, 0), null)
+                .send(Message.modeSync);
+        assertEquals("hash1", pending.await().txHash);
+        assertEquals(3, failures.get());
+        assertEquals(0, bluzelle.txPoller.pending());
+    }
+}
@@ -3,6 +3,12 @@ package com.bluzelle.crypto;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -106,6 +112,93 @@ class EccTest {
         );
     }
 
+    @Test
+    void gMultiplyTable() {
+        Ecc ecc = Ecc.ecc;
+        Ecc.Point g = ecc.gMultiply(BigInteger.ONE);
+        assertTrue(ecc.gMultiply(ecc.n).x.signum() < 0);
+        Random random = new Random();
+        for (int i = 0; i < 20; i++) {
+            BigInteger r = new BigInteger(256, random);
+            Ecc.Point expected = ecc.multiply(g, r.mod(ecc.n));
+            Ecc.Point point = ecc.gMultiply(r);
+            assertEquals(expected.x, point.x);
+            assertEquals(expected.y, point.y);
+        }
+    }
+
+    @Test
+    void gMultiplyAll() {
+        Ecc ecc = Ecc.ecc;
+        assertEquals(0, ecc.gMultiplyAll(new BigInteger[0]).length);
+        Random random = new Random();
+        BigInteger[] r = new BigInteger[20];
+        for (int i = 0; i < r.length; i++) {
+            r[i] = new BigInteger(256, random);
+        }
+        r[0] = ecc.n;
+        r[7] = BigInteger.ZERO;
+        r[19] = ecc.n.shiftLeft(1);
+        Ecc.Point[] points = ecc.gMultiplyAll(r);
+        for (int i = 0; i < r.length; i++) {
+            Ecc.Point expected = ecc.gMultiply(r[i]);
+            assertEquals(expected.x, points[i].x);
+            assertEquals(expected.y, points[i].y);
+        }
+        assertTrue(points[7].x.signum() < 0);
+    }
+
+    @Test
+    void multiply() {
+        Ecc ecc = Ecc.ecc;
+        Ecc.Point g = ecc.gMultiply(BigInteger.ONE);
+        assertTrue(ecc.multiply(g, ecc.n).x.signum() < 0);
+        Ecc.Point point = ecc.multiply(g, ecc.n.add(BigInteger.ONE));
+        assertEquals(g.x, point.x);
+        assertEquals(g.y, point.y);
+        point = ecc.multiply(g, ecc.n.subtract(BigInteger.ONE));
+        assertEquals(g.x, point.x);
+        assertEquals(g.y.negate(), point.y.subtract(new BigInteger(
+                "fffffffffffffffffffffffffffffffffffffffffffffffffffffffefffffc2f", 16)));
+        point = ecc.multiply(ecc.gMultiply(BigInteger.valueOf(3)), BigInteger.valueOf(5));
+        Ecc.Point expected = ecc.gMultiply(BigInteger.valueOf(15));
+        assertEquals(expected.x, point.x);
+        assertEquals(expected.y, point.y);
+    }
+
+    @Test
+    void gMultiplyAdd() {
+        Ecc ecc = Ecc.ecc;
+        Ecc.Point g = ecc.gMultiply(BigInteger.ONE);
+        // endomorphism, (x, y) * lambda = (x * beta, y)
+        BigInteger lambda = new BigInteger("5363ad4cc05c30e0a5261c028812645a122e22ea20816678df02967c1b23bd72", 16);
+        BigInteger beta = new BigInteger("7ae96a2b657c07106e64479eac3434e99cf0497512f58995c1396c28719501ee", 16);
+        Ecc.Point point = ecc.multiply(g, lambda);
+        assertEquals(g.x.multiply(beta).mod(FieldElement.p), point.x);
+        assertEquals(g.y, point.y);
+
+        Random random = new Random();
+        BigInteger bound = BigInteger.ONE.shiftLeft(129);
+        BigInteger[] edges = {BigInteger.ZERO, BigInteger.ONE, ecc.n.subtract(BigInteger.ONE), lambda};
+        for (int i = 0; i < 50; i++) {
+            BigInteger k = i < edges.length ? edges[i] : new BigInteger(256, random).mod(ecc.n);
+            BigInteger[] halves = ecc.split(k);
+            assertEquals(k, halves[0].add(halves[1].multiply(lambda)).mod(ecc.n));
+            assertTrue(halves[0].abs().compareTo(bound) < 0);
+            assertTrue(halves[1].abs().compareTo(bound) < 0);
+
+            BigInteger d = i < edges.length ? edges[edges.length - 1 - i] : new BigInteger(256, random);
+            Ecc.Point q = ecc.gMultiply(d);
+            BigInteger u = new BigInteger(256, random);
+            Ecc.Point expected = ecc.gMultiply(k.add(u.multiply(d)));
+            point = ecc.gMultiplyAdd(k, q, u);
+            assertEquals(expected.x, point.x);
+            assertEquals(expected.y, point.y);
+        }
+        // g * 1 + g * (n - 1) = infinity
+        assertTrue(ecc.gMultiplyAdd(BigInteger.ONE, g, ecc.n.subtract(BigInteger.ONE)).x.signum() < 0);
+    }
+
     @Test
     void signVerify() {
         assertThrows(NullPointerException.class, () -> Ecc.ecc.sign(null, BigInteger.ONE));
@@ -153,6 +246,78 @@ class EccTest {
         assertTrue(Ecc.ecc.verify(message, publicKey, signature));
     }
 
+    @Test
+    void rfc6979() throws NoSuchAlgorithmException {
+        BigInteger n = Ecc.ecc.n;
+        isTheSameNonce("8f8a276c19f4149656b280621e358cce24f5f52542772691ee69063b74f15d15",
+                BigInteger.ONE, "Satoshi Nakamoto");
+        isTheSameNonce("38aa22d72376b4dbc472e06c3ba403ee0a394da63fc58d88686c611aba98d6b3",
+                BigInteger.ONE, "All those moments will be lost in time, like tears in rain. Time to die...");
+        isTheSameNonce("33a19b60e25fb6f4435af53a3d42d493644827367e6453928554f43e49aa6f90",
+                n.subtract(BigInteger.ONE), "Satoshi Nakamoto");
+        isTheSameNonce("525a82b70e67874398067543fd84c83d30c175fdc45fdeee082fe13b1d7cfdf1",
+                new BigInteger("f8b8af8ce3c7cca5e300d33939540c10d45ce001b8f252bfbc57ba0342904181", 16), "Alan Turing");
+
+        byte[] message = MessageDigest.getInstance("SHA-256").digest("Satoshi Nakamoto".getBytes());
+        byte[] signature = Ecc.ecc.sign(message, BigInteger.ONE);
+        assertEquals(
+                "934b1ea10a4b3c1757e2b0c017d0b6143ce3c9a7e6a4a49860d7a6ab210ee3d8"
+                        + "2442ce9d2b916064108014783e923ec36b49743e2ffa1c4496f01a512aafd9e5",
+                String.format("%0128x", new BigInteger(1, signature))
+        );
+        assertArrayEquals(signature, Ecc.ecc.sign(message, BigInteger.ONE, null));
+        byte[] withEntropy = Ecc.ecc.sign(message, BigInteger.ONE, new byte[]{1, 2, 3});
+        assertFalse(Arrays.equals(signature, withEntropy));
+        assertArrayEquals(withEntropy, Ecc.ecc.sign(message, BigInteger.ONE, new byte[]{1, 2, 3}));
+        assertTrue(Ecc.ecc.verify(message, Ecc.ecc.gMultiply(BigInteger.ONE), withEntropy));
+    }
+
+    @Test
+    void verifyBatch() {
+        Ecc ecc = Ecc.ecc;
+        assertThrows(NullPointerException.class, () -> ecc.verifyBatch(null, new ArrayList<>(), new ArrayList<>()));
+        assertThrows(IllegalArgumentException.class,
+                () -> ecc.verifyBatch(new ArrayList<>(), new ArrayList<>(), Collections.singletonList(new byte[64])));
+        assertEquals(0, ecc.verifyBatch(new ArrayList<>(), new ArrayList<>(), new ArrayList<>()).length);
+
+        Random random = new Random();
+        BigInteger[] privateKeys = {BigInteger.valueOf(7), new BigInteger(255, random), new BigInteger(255, random)};
+        List<byte[]> messages = new ArrayList<>();
+        List<Ecc.Point> publicKeys = new ArrayList<>();
+        List<byte[]> signatures = new ArrayList<>();
+        // larger than batchChunk, verified in parallel
+        int size = Ecc.batchChunk * 2 + 5;
+        for (int i = 0; i < size; i++) {
+            byte[] message = new byte[32];
+            random.nextBytes(message);
+            BigInteger privateKey = privateKeys[i % privateKeys.length];
+            messages.add(message);
+            publicKeys.add(ecc.gMultiply(privateKey));
+            signatures.add(ecc.sign(message, privateKey));
+        }
+        signatures.get(3)[40] ^= 1;
+        messages.get(100)[0] ^= 1;
+        publicKeys.set(200, ecc.gMultiply(BigInteger.TEN));
+        signatures.set(201, new byte[13]);
+        signatures.set(202, new byte[64]);
+        boolean[] verified = ecc.verifyBatch(messages, publicKeys, signatures);
+        for (int i = 0; i < size; i++) {
+            boolean expected = i != 3 && i != 100 && i != 200 && i != 201 && i != 202;
+            assertEquals(expected, verified[i], "item " + i);
+            if (i != 201) {
+                assertEquals(expected, ecc.verify(messages.get(i), publicKeys.get(i), signatures.get(i)));
+            }
+        }
+        publicKeys.set(0, null);
+        assertThrows(NullPointerException.class, () -> ecc.verifyBatch(messages, publicKeys, signatures));
+    }
+
+    private static void isTheSameNonce(String k, BigInteger d, String message) throws NoSuchAlgorithmException {
+        byte[] hash = MessageDigest.getInstance("SHA-256").digest(message.getBytes());
+        Ecc.Nonce nonce = new Ecc.Nonce(new Scalar().set(d), new Scalar().set(new BigInteger(1, hash)), null);
+        assertEquals(new BigInteger(k, 16), nonce.next());
+    }
+
     private static void areTheSamePoint(Ecc.Point point, String x, String y) {
         assertEquals(x, point.x.toString(16).toUpperCase());
         assertEquals(y, point.y.toString(16).toUpperCase());
@@ -0,0 +1,54 @@
+package com.bluzelle.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FieldElementTest {
+    private static final BigInteger p = FieldElement.p;
+
+    @Test
+    void set() {
+        assertThrows(NullPointerException.class, () -> new FieldElement().set((BigInteger) null));
+        assertEquals(BigInteger.ZERO, new FieldElement().set(p).toBigInteger());
+        assertEquals(p.subtract(BigInteger.ONE), new FieldElement().set(BigInteger.valueOf(-1)).toBigInteger());
+        assertEquals(BigInteger.valueOf(5), new FieldElement().set(p.add(BigInteger.valueOf(5))).toBigInteger());
+        assertTrue(new FieldElement().set(p).isZero());
+        assertTrue(new FieldElement().set(3).isOdd());
+        assertTrue(new FieldElement().set(7).isEqual(new FieldElement().set(BigInteger.valueOf(7))));
+    }
+
+    @Test
+    void arithmetic() {
+        Random random = new Random();
+        BigInteger[] edges = {
+                BigInteger.ZERO,
+                BigInteger.ONE,
+                p.subtract(BigInteger.ONE),
+                p.subtract(BigInteger.valueOf(2)),
+                BigInteger.ONE.shiftLeft(255),
+                BigInteger.ONE.shiftLeft(32).subtract(BigInteger.ONE)
+        };
+        for (int i = 0; i < 1000; i++) {
+            BigInteger a = i < edges.length ? edges[i] : new BigInteger(256, random).mod(p);
+            BigInteger b = i < edges.length ? edges[edges.length - 1 - i] : new BigInteger(256, random).mod(p);
+            FieldElement fa = new FieldElement().set(a);
+            FieldElement fb = new FieldElement().set(b);
+            assertEquals(a.add(b).mod(p), new FieldElement().add(fa, fb).toBigInteger());
+            assertEquals(a.subtract(b).mod(p), new FieldElement().subtract(fa, fb).toBigInteger());
+            assertEquals(a.multiply(b).mod(p), new FieldElement().multiply(fa, fb).toBigInteger());
+            assertEquals(a.multiply(a).mod(p), new FieldElement().square(fa).toBigInteger());
+            assertEquals(a.multiply(BigInteger.valueOf(8)).mod(p), new FieldElement().multiply(fa, 8).toBigInteger());
+            assertEquals(a.negate().mod(p), new FieldElement().negate(fa).toBigInteger());
+            if (a.signum() != 0) {
+                assertEquals(a.modInverse(p), new FieldElement().inverse(fa).toBigInteger());
+            }
+            // the result can be the argument
+            fa.multiply(fa, fb);
+            assertEquals(a.multiply(b).mod(p), fa.toBigInteger());
+        }
+    }
+}
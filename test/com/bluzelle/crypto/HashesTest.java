@@ -0,0 +1,63 @@
+package com.bluzelle.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.MessageDigest;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashesTest {
+
+    @Test
+    void test() throws Exception {
+        assertThrows(NullPointerException.class, () -> Hashes.sha256(null));
+        assertThrows(NullPointerException.class, () -> Hashes.hash160(null));
+        assertThrows(NullPointerException.class, () -> Hashes.hmacSha512(null, new byte[1]));
+        assertThrows(NullPointerException.class, () -> Hashes.hmacSha512(new byte[1], null));
+        assertThrows(IllegalArgumentException.class, () -> Hashes.hmacSha512(new byte[0], new byte[1]));
+
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        Mac hmacSha512 = Mac.getInstance("HmacSHA512");
+        Random random = new Random();
+        for (int i = 0; i < 10; i++) {
+            byte[] message = new byte[random.nextInt(200)];
+            random.nextBytes(message);
+            byte[] key = new byte[1 + random.nextInt(100)];
+            random.nextBytes(key);
+            assertArrayEquals(sha256.digest(message), Hashes.sha256(message));
+            assertArrayEquals(Ripemd160.getHash(sha256.digest(message)), Hashes.hash160(message));
+            hmacSha512.init(new SecretKeySpec(key, "HmacSHA512"));
+            assertArrayEquals(hmacSha512.doFinal(message), Hashes.hmacSha512(key, message));
+        }
+
+        MessageDigest digest = Hashes.sha256Digest();
+        digest.update(new byte[10]);
+        assertSame(digest, Hashes.sha256Digest());
+        digest.update(new byte[]{1, 2});
+        assertArrayEquals(sha256.digest(new byte[]{1, 2}), digest.digest());
+    }
+
+    @Test
+    void threads() throws Exception {
+        byte[] expected = Ripemd160.getHash(MessageDigest.getInstance("SHA-256").digest(new byte[33]));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        Future<?>[] futures = new Future<?>[8];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = executor.submit(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    assertArrayEquals(expected, Hashes.hash160(new byte[33]));
+                }
+            });
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+    }
+}
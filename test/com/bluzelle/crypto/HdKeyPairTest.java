@@ -4,8 +4,7 @@ import org.junit.jupiter.api.Test;
 
 import java.math.BigInteger;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.*;
 
 class HdKeyPairTest {
 
@@ -98,6 +97,49 @@ class HdKeyPairTest {
         );
     }
 
+    @Test
+    void cache() {
+        HdKeyPair master = HdKeyPair.createMaster(Mnemonic.createSeed("fury great shell", "mnemonic"));
+        HdKeyPair keyPair = master.generateChild("44'/118'/0'/0/0");
+        assertSame(keyPair, master.generateChild("/44h/118h/0'/0/0/"));
+        assertEquals(5, master.cached());
+        assertSame(master.generateChild("44'/118'/0'"), master.generateChild("44'/118'/0h"));
+        assertEquals(5, master.cached());
+        // nodes of the path created without the cache
+        HdKeyPair parent = HdKeyPair.createMaster(Mnemonic.createSeed("fury great shell", "mnemonic"))
+                .generateChild("44'/118'/0'").generateChild("0");
+        for (int i = 0; i < HdKeyPair.cacheSize * 2; i++) {
+            HdKeyPair child = master.generateChild("44'/118'/0'/0/" + i);
+            HdKeyPair expected = parent.generateChild(Integer.toString(i));
+            assertEquals(expected.d, child.d);
+            assertArrayEquals(expected.publicKeyToByteArray(), child.publicKeyToByteArray());
+        }
+        assertEquals(HdKeyPair.cacheSize, master.cached());
+        assertEquals(keyPair.d, master.generateChild("44'/118'/0'/0/0").d);
+    }
+
+    @Test
+    void generateChildren() {
+        HdKeyPair parent = HdKeyPair.createMaster(Mnemonic.createSeed("fury great shell", "mnemonic"))
+                .generateChild("44'/118'/0'/0");
+        assertThrows(IllegalArgumentException.class, () -> parent.generateChildren(-1, 2, false));
+        assertThrows(IllegalArgumentException.class, () -> parent.generateChildren(2, -1, false));
+        assertThrows(IllegalArgumentException.class, () -> parent.generateChildren(Integer.MAX_VALUE, 2, true));
+        assertEquals(0, parent.generateChildren(5, 0, false).length);
+        assertEquals(1, parent.generateChildren(Integer.MAX_VALUE, 1, false).length);
+
+        HdKeyPair[] children = parent.generateChildren(7, 20, false);
+        HdKeyPair[] hardened = parent.generateChildren(7, 20, true);
+        for (int i = 0; i < children.length; i++) {
+            HdKeyPair expected = parent.generateChild(Integer.toString(7 + i));
+            assertEquals(expected.d, children[i].d);
+            assertArrayEquals(expected.publicKeyToByteArray(), children[i].publicKeyToByteArray());
+            expected = parent.generateChild((7 + i) + "h");
+            assertEquals(expected.d, hardened[i].d);
+            assertArrayEquals(expected.publicKeyToByteArray(), hardened[i].publicKeyToByteArray());
+        }
+    }
+
     private void isEqual(HdKeyPair hdKeyPair, String publicKey) {
         byte[] publicKeyBytes = hdKeyPair.publicKeyToByteArray();
         StringBuilder stringBuilder = new StringBuilder();
@@ -0,0 +1,60 @@
+package com.bluzelle.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Pbkdf2Test {
+
+    @Test
+    void sha512() throws Exception {
+        assertThrows(NullPointerException.class, () -> Pbkdf2.sha512(null));
+        MessageDigest sha512 = MessageDigest.getInstance("SHA-512");
+        Random random = new Random();
+        // the lengths around the padding and the block boundaries
+        for (int length : new int[]{0, 1, 111, 112, 127, 128, 129, 239, 240, 256, 1000}) {
+            byte[] message = new byte[length];
+            random.nextBytes(message);
+            assertArrayEquals(sha512.digest(message), Pbkdf2.sha512(message));
+        }
+    }
+
+    @Test
+    void hmacSha512() throws Exception {
+        assertThrows(NullPointerException.class, () -> Pbkdf2.hmacSha512(null, new byte[1], 1));
+        assertThrows(NullPointerException.class, () -> Pbkdf2.hmacSha512(new byte[1], null, 1));
+        assertThrows(IllegalArgumentException.class, () -> Pbkdf2.hmacSha512(new byte[1], new byte[1], 0));
+
+        SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA512");
+        String[] passwords = {"p", "password", repeat("long password ", 12)};
+        String[] salts = {"s", "salt", repeat("long salt ", 14)};
+        for (String password : passwords) {
+            for (String salt : salts) {
+                for (int iterations : new int[]{1, 2, 2048}) {
+                    byte[] saltBytes = salt.getBytes(StandardCharsets.UTF_8);
+                    byte[] expected = factory.generateSecret(
+                            new PBEKeySpec(password.toCharArray(), saltBytes, iterations, 512)
+                    ).getEncoded();
+                    assertArrayEquals(
+                            expected,
+                            Pbkdf2.hmacSha512(password.getBytes(StandardCharsets.UTF_8), saltBytes, iterations)
+                    );
+                }
+            }
+        }
+    }
+
+    private static String repeat(String s, int times) {
+        StringBuilder stringBuilder = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            stringBuilder.append(s);
+        }
+        return stringBuilder.toString();
+    }
+}
@@ -4,8 +4,7 @@ import org.junit.jupiter.api.Test;
 
 import java.util.Arrays;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.*;
 
 class Ripemd160Test {
 
@@ -109,6 +108,43 @@ class Ripemd160Test {
         );
     }
 
+    @Test
+    void update() {
+        Ripemd160 ripemd160 = new Ripemd160();
+        assertThrows(NullPointerException.class, () -> ripemd160.update(null));
+        assertThrows(IndexOutOfBoundsException.class, () -> ripemd160.update(new byte[4], 2, 3));
+        assertThrows(IndexOutOfBoundsException.class, () -> ripemd160.update(new byte[4], -1, 2));
+        assertThrows(IndexOutOfBoundsException.class, () -> ripemd160.digest(new byte[20], 1));
+
+        areEquals("9c1185a5c5e9fc54612808977ee8f548b2258d31", ripemd160.digest());
+        areEquals("8eb208f7e05d987a9b044a8e98c6b087f15a0bfc", ripemd160.update("abc".getBytes()).digest());
+        // 1 million times "a"
+        byte[] a = new byte[1000];
+        Arrays.fill(a, (byte) 'a');
+        for (int i = 0; i < 1000; i++) {
+            ripemd160.update(a, 0, 1000);
+        }
+        areEquals("52783243c1697bdbe16d37f97f68f08325dc1528", ripemd160.digest());
+
+        // the parts of all sizes around the block
+        byte[] message = new byte[300];
+        for (int i = 0; i < message.length; i++) {
+            message[i] = (byte) (i * 7);
+        }
+        byte[] expected = Ripemd160.getHash(message);
+        for (int part = 1; part < 130; part++) {
+            for (int pos = 0; pos < message.length; pos += part) {
+                ripemd160.update(message, pos, Math.min(part, message.length - pos));
+            }
+            byte[] hash = new byte[25];
+            ripemd160.digest(hash, 5);
+            assertArrayEquals(expected, Arrays.copyOfRange(hash, 5, 25));
+        }
+        ripemd160.update(message);
+        ripemd160.reset();
+        areEquals("8eb208f7e05d987a9b044a8e98c6b087f15a0bfc", ripemd160.update("abc".getBytes()).digest());
+    }
+
     private static void areEquals(String correctHash, byte[] hash) {
         StringBuilder stringBuilder = new StringBuilder();
         for (byte b : hash) {
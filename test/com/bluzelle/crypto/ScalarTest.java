@@ -0,0 +1,61 @@
+package com.bluzelle.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScalarTest {
+    private static final BigInteger n = Scalar.n;
+
+    @Test
+    void set() {
+        assertThrows(NullPointerException.class, () -> new Scalar().set((BigInteger) null));
+        assertTrue(new Scalar().set(n).isZero());
+        assertEquals(BigInteger.valueOf(5), new Scalar().set(n.add(BigInteger.valueOf(5))).toBigInteger());
+        byte[] bytes = new byte[33];
+        for (int i = 1; i < 33; i++) {
+            bytes[i] = (byte) 0xff;
+        }
+        BigInteger max = BigInteger.ONE.shiftLeft(256).subtract(BigInteger.ONE);
+        assertEquals(max.mod(n), new Scalar().set(bytes, 1).toBigInteger());
+        byte[] out = new byte[32];
+        new Scalar().set(BigInteger.valueOf(0x0102)).toBytes(out, 0);
+        assertEquals(1, out[30]);
+        assertEquals(2, out[31]);
+        FieldElement x = new FieldElement().set(FieldElement.p.subtract(BigInteger.ONE));
+        assertEquals(FieldElement.p.subtract(BigInteger.ONE).mod(n), new Scalar().set(x).toBigInteger());
+    }
+
+    @Test
+    void arithmetic() {
+        Random random = new Random();
+        BigInteger halfN = n.shiftRight(1);
+        BigInteger[] edges = {
+                BigInteger.ZERO,
+                BigInteger.ONE,
+                n.subtract(BigInteger.ONE),
+                halfN,
+                halfN.add(BigInteger.ONE),
+                BigInteger.ONE.shiftLeft(255)
+        };
+        for (int i = 0; i < 1000; i++) {
+            BigInteger a = i < edges.length ? edges[i] : new BigInteger(256, random).mod(n);
+            BigInteger b = i < edges.length ? edges[edges.length - 1 - i] : new BigInteger(256, random).mod(n);
+            Scalar sa = new Scalar().set(a);
+            Scalar sb = new Scalar().set(b);
+            assertEquals(a.add(b).mod(n), new Scalar().add(sa, sb).toBigInteger());
+            assertEquals(a.multiply(b).mod(n), new Scalar().multiply(sa, sb).toBigInteger());
+            assertEquals(a.negate().mod(n), new Scalar().negate(sa).toBigInteger());
+            assertEquals(a.compareTo(halfN) > 0, sa.isHigh());
+            assertEquals(a.testBit(200), sa.testBit(200));
+            if (a.signum() != 0) {
+                assertEquals(a.modInverse(n), new Scalar().inverse(sa).toBigInteger());
+            }
+            sa.multiply(sa, sa);
+            assertEquals(a.multiply(a).mod(n), sa.toBigInteger());
+        }
+    }
+}
@@ -2,6 +2,17 @@ package com.bluzelle.json;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class JsonTest {
@@ -43,6 +54,21 @@ class JsonTest {
 
         json = JsonObject.parse("{\"null\":null,\"true\": true,\"false\": false ,\"fifty\": 50, string: \"true\"}");
         assertEquals("{\"false\":false,\"fifty\":50,\"null\":null,\"string\":\"true\",\"true\":true}", json.toString());
+
+        // the same as Integer.parseInt
+        String[] values = {
+                "0", "-0", "+7", "007", "-", "+", "2147483647", "2147483648", "-2147483648", "-2147483649",
+                "99999999999", "1-2", "1e3", "0x10", "\u0661\u0662", "nul", "nulls", "True", "t", "f", ""
+        };
+        for (String value : values) {
+            Object expected;
+            try {
+                expected = Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                expected = value;
+            }
+            assertEquals(expected, Parser.unquotedValue(value));
+        }
     }
 
     @Test
@@ -68,6 +94,15 @@ class JsonTest {
         json = JsonObject.parse("{\"one\":\"\\u0048\"}");
         assertEquals("{\"one\":\"H\"}", json.toString());
 
+        // escapes after the plain prefix, the other quote char inside
+        json = JsonObject.parse("{'one':'pre \"\\u0048\\'', two:\"'\"}");
+        assertEquals("pre \"H'", json.getString("one"));
+        assertEquals("'", json.getString("two"));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> JsonObject.parse("{\"one\":\"abc\\\"")
+        );
+
         json = new JsonObject();
         json.put("one", ">,  \u003C <  &&");
         assertEquals(">,  < <  &&", json.getString("one"));
@@ -458,4 +493,297 @@ class JsonTest {
         json = JsonObject.parse("{key : , go:[go, null, 5-3  , { h: <>}, ]  }");
         assertEquals("{\"go\":[\"go\",null,\"5-3\",{\"h\":\"\\u003c\\u003e\"}],\"key\":\"\"}", json.toSanitizeString());
     }
-}
\ No newline at end of file
+
+    @Test
+    void lazyTest() {
+        String[] sources = {
+                "{\"one\":null,\"two\": true in ,\"three\":-90.89 ,\"four\": [],  x:, }",
+                "{\"null\":null,\"true\": true,\"false\": false ,\"fifty\": 50, string: \"true\"}",
+                "{one:\' \\\', \\\", \\\\, \\/ \'}",
+                "{\"one\":\" \\b, \\f, \\n, \\r, \\t \\u0048\"}",
+                "{big: BB b , a : [], 'cool':12 , x:{array:\"a\",g:[], 'empty' : { \n }, } , }",
+                "{key : , go:[go, null, 5-3  , { h: <>}, [[], [{}]]]  }",
+                "  {}"
+        };
+        for (String source : sources) {
+            assertEquals(JsonObject.parse(source).toString(), JsonObject.parseLazy(source).toString());
+        }
+        String[] incorrect = {
+                "", "[]", "{", "{a", "{a:", "{a:1", "{'a':\"1}", "{a 1}", "{a:1 b:2}", "{'':1}", "{ :1}",
+                "{a:[1}", "{a:{b:1]}", "{a:\"\\uzzzz\"}", "{a:\"\\u00\"}"
+        };
+        for (String source : incorrect) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> JsonObject.parse(source));
+            assertEquals(
+                    e.getMessage(),
+                    assertThrows(IllegalArgumentException.class, () -> JsonObject.parseLazy(source)).getMessage()
+            );
+        }
+        assertThrows(NullPointerException.class, () -> JsonObject.parseLazy(null));
+
+        // only the touched objects are decoded
+        JsonObject json = JsonObject.parseLazy("{result:{value:\"v\",proof:{a:1,a:2}},height:\"5\"}");
+        assertEquals("v", json.getObject("result").getString("value"));
+        assertEquals("5", json.getString("height"));
+        JsonObject proof = json.getObject("result").getObject("proof");
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> proof.getInteger("a"));
+        assertEquals(
+                assertThrows(IllegalArgumentException.class, () -> JsonObject.parse("{a:1,a:2}")).getMessage()
+                        .replace("{a:1,a:2}", "{result:{value:\"v\",proof:{a:1,a:2}},height:\"5\"}")
+                        .replace("index 5", "index 30"),
+                e.getMessage()
+        );
+
+        json = JsonObject.parseLazy("{a:[1,{b:[true]},\"c\"]}");
+        assertThrows(NullPointerException.class, () -> JsonObject.parseLazy("{}").getString(null));
+        JsonArray array = json.getArray("a");
+        assertEquals(3, array.length());
+        assertTrue(array.getObject(1).getArray("b").getBoolean(0));
+        array.put(2);
+        json.put("d", "e");
+        assertEquals("{\"a\":[1,{\"b\":[true]},\"c\",2],\"d\":\"e\"}", json.toString());
+    }
+
+    @Test
+    void lazyConcurrentTest() throws InterruptedException {
+        StringBuilder source = new StringBuilder("{array:[");
+        for (int i = 0; i < 100; i++) {
+            source.append(i).append(',');
+        }
+        source.append("0]");
+        for (int i = 0; i < 100; i++) {
+            source.append(",key").append(i).append(':').append(i);
+        }
+        source.append('}');
+        for (int round = 0; round < 100; round++) {
+            JsonObject json = JsonObject.parseLazy(source.toString());
+            Throwable[] errors = new Throwable[4];
+            Thread[] threads = new Thread[errors.length];
+            for (int i = 0; i < threads.length; i++) {
+                int index = i;
+                threads[i] = new Thread(() -> {
+                    try {
+                        assertEquals(99, json.getInteger("key99").intValue());
+                        assertEquals(101, json.getArray("array").length());
+                    } catch (Throwable e) {
+                        errors[index] = e;
+                    }
+                });
+            }
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            for (Throwable error : errors) {
+                assertNull(error);
+            }
+        }
+    }
+
+    @Test
+    void concurrentWriteTest() throws InterruptedException {
+        for (int size : new int[]{5, 50}) {
+            JsonObject json = new JsonObject();
+            TreeMap<String, Integer> expected = new TreeMap<>();
+            for (int i = size; i > 0; i--) {
+                json.put("key" + i, i);
+                expected.put("key" + i, i);
+            }
+            StringBuilder builder = new StringBuilder("{");
+            for (Map.Entry<String, Integer> entry : expected.entrySet()) {
+                builder.append(builder.length() == 1 ? "\"" : ",\"").append(entry.getKey()).append("\":")
+                        .append(entry.getValue());
+            }
+            String string = builder.append('}').toString();
+            // the writing does not sort the shared object in place
+            Throwable[] errors = new Throwable[4];
+            Thread[] threads = new Thread[errors.length];
+            for (int i = 0; i < threads.length; i++) {
+                int index = i;
+                threads[i] = new Thread(() -> {
+                    try {
+                        for (int j = 0; j < 200; j++) {
+                            assertEquals(string, json.toString());
+                        }
+                    } catch (Throwable e) {
+                        errors[index] = e;
+                    }
+                });
+            }
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            for (Throwable error : errors) {
+                assertNull(error);
+            }
+            assertEquals("key" + size, json.map.key(0));
+            // the parsed object is sorted once
+            JsonObject parsed = JsonObject.parse(json.toString());
+            assertEquals("key1", parsed.map.key(0));
+            assertEquals(string, parsed.toString());
+        }
+    }
+
+    @Test
+    void writeSanitizedTest() throws NoSuchAlgorithmException {
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        assertThrows(NullPointerException.class, () -> new JsonObject().writeSanitized(null));
+
+        StringBuilder big = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            big.append("\u0414&\"");
+        }
+        JsonObject json = new JsonObject()
+                .put("a<>&", " \b\f\n\r\t\\\"/'")
+                .put("\u0001\u007f\u0080\u07ff\u0800\uffff", "\ud83d\ude00 \ud83d \ude00 \ud83d")
+                .put("big", big)
+                .put("array", new JsonArray().put(null).put(-5).put(true).put(new JsonObject()).put(new JsonArray()))
+                .put("object", JsonObject.parseLazy("{a:{b:[1,'\u00e9']}}"));
+        for (JsonObject value : new JsonObject[]{new JsonObject(), json}) {
+            value.writeSanitized(sha256);
+            assertArrayEquals(
+                    MessageDigest.getInstance("SHA-256").digest(value.toSanitizeString().getBytes(StandardCharsets.UTF_8)),
+                    sha256.digest()
+            );
+        }
+    }
+
+    @Test
+    void fieldMapTest() {
+        FieldMap map = new FieldMap();
+        assertThrows(NullPointerException.class, () -> map.get(null));
+        assertThrows(NullPointerException.class, () -> map.put(null, 1));
+        assertThrows(NullPointerException.class, () -> map.remove(null));
+
+        // the same as TreeMap through the linear and the hash search
+        Random random = new Random(1);
+        for (int size : new int[]{3, FieldMap.hashThreshold, FieldMap.hashThreshold + 1, 40}) {
+            FieldMap fields = new FieldMap();
+            TreeMap<String, Object> expected = new TreeMap<>();
+            for (int i = 0; i < 500; i++) {
+                String key = "k" + random.nextInt(size);
+                switch (random.nextInt(4)) {
+                    case 0:
+                        fields.remove(key);
+                        expected.remove(key);
+                        break;
+                    case 1:
+                        fields.sort();
+                        assertEquals(expected.size(), fields.size());
+                        int position = 0;
+                        for (Map.Entry<String, Object> entry : expected.entrySet()) {
+                            assertEquals(entry.getKey(), fields.key(position));
+                            assertEquals(entry.getValue(), fields.value(position++));
+                        }
+                        break;
+                    default:
+                        Object value = random.nextBoolean() ? null : i;
+                        fields.put(key, value);
+                        expected.put(key, value);
+                }
+                assertEquals(expected.containsKey(key), fields.containsKey(key));
+                assertEquals(expected.get(key), fields.get(key));
+            }
+        }
+
+        JsonObject json = new JsonObject();
+        for (int i = 20; i > 0; i--) {
+            json.put("k" + i, i);
+        }
+        json.put("k5", null);
+        json.put("k15", "15");
+        assertEquals("15", json.getString("k15"));
+        assertNull(json.getInteger("k5"));
+        assertEquals(7, json.getInteger("k7").intValue());
+        assertEquals("{\"k1\":1,\"k10\":10,\"k11\":11,\"k12\":12,\"k13\":13,\"k14\":14,\"k15\":\"15\","
+                + "\"k16\":16,\"k17\":17,\"k18\":18,\"k19\":19,\"k2\":2,\"k20\":20,\"k3\":3,\"k4\":4,"
+                + "\"k6\":6,\"k7\":7,\"k8\":8,\"k9\":9}", json.toString());
+    }
+
+    @Test
+    void readerTest() throws IOException {
+        assertThrows(NullPointerException.class, () -> new JsonReader((Reader) null));
+        assertThrows(IllegalArgumentException.class, () -> reader("").peek());
+        assertThrows(IllegalArgumentException.class, () -> reader("one").peek());
+        assertThrows(IllegalArgumentException.class, () -> reader("{").nextValue());
+        assertThrows(IllegalArgumentException.class, () -> reader("{a:1 b:2}").nextValue());
+        assertThrows(IllegalArgumentException.class, () -> reader("{a 1}").nextValue());
+        assertThrows(IllegalArgumentException.class, () -> reader("{a:1,a:2}").nextValue());
+        assertThrows(IllegalArgumentException.class, () -> reader("{'':1}").nextValue());
+        assertThrows(IllegalArgumentException.class, () -> reader("[1}").nextValue());
+        assertThrows(IllegalArgumentException.class, () -> reader("{a:\"\\uzzzz\"}").nextValue());
+        assertThrows(IllegalArgumentException.class, () -> reader("[1]").beginObject());
+        assertThrows(IllegalArgumentException.class, () -> reader("{}").nextName());
+
+        // the same values as the parser, the chars are read one by one through the buffer boundaries
+        String[] sources = {
+                "{\"one\":null,\"two\": true in ,\"three\":-90.89 ,\"four\": [],  x:, }",
+                "{\"null\":null,\"true\": true,\"false\": false ,\"fifty\": 50, string: \"true\"}",
+                "{one:\' \\\', \\\", \\\\, \\/ \'}",
+                "{\"one\":\" \\b, \\f, \\n, \\r, \\t \\u0048\"}",
+                "{big: BB b , a : [], 'cool':12 , x:{array:\"a\",g:[], 'empty' : { \n }, } , }",
+                "{key : , go:[go, null, 5-3  , { h: <>}, ]  }"
+        };
+        for (String source : sources) {
+            String expected = JsonObject.parse(source).toString();
+            assertEquals(expected, reader(source).nextValue().toString());
+            assertEquals(expected, new JsonReader(new StringReader(source)).nextValue().toString());
+        }
+        JsonReader reader = new JsonReader(new ByteArrayInputStream(
+                "[\"\u00e9\u4e2d\", 1]".getBytes(StandardCharsets.UTF_8)
+        ));
+        assertEquals("[\"\u00e9\u4e2d\",1]", reader.nextValue().toString());
+        assertEquals(JsonReader.Token.END_DOCUMENT, reader.peek());
+
+        reader = reader("{\"result\":{\"proof\":{\"a\":[1,{\"b\":[]}]},\"keys\":[\"k1\",k2,3,true,null]}} tail");
+        assertEquals(JsonReader.Token.BEGIN_OBJECT, reader.peek());
+        reader.beginObject();
+        assertTrue(reader.hasNext());
+        assertEquals(JsonReader.Token.NAME, reader.peek());
+        assertEquals("result", reader.nextName());
+        reader.beginObject();
+        assertEquals("proof", reader.nextName());
+        reader.skipValue();
+        assertEquals("keys", reader.nextName());
+        assertThrows(IllegalArgumentException.class, reader::nextString);
+        reader.beginArray();
+        assertEquals("k1", reader.nextString());
+        assertEquals(JsonReader.Token.STRING, reader.peek());
+        assertEquals("k2", reader.nextString());
+        assertEquals(JsonReader.Token.INTEGER, reader.peek());
+        assertThrows(IllegalArgumentException.class, reader::nextBoolean);
+        assertEquals(3, reader.nextInteger().intValue());
+        assertTrue(reader.nextBoolean());
+        assertEquals(JsonReader.Token.NULL, reader.peek());
+        assertNull(reader.nextString());
+        assertFalse(reader.hasNext());
+        reader.endArray();
+        assertEquals(JsonReader.Token.END_OBJECT, reader.peek());
+        reader.endObject();
+        reader.endObject();
+        assertFalse(reader.hasNext());
+        assertEquals(JsonReader.Token.END_DOCUMENT, reader.peek());
+        reader.close();
+    }
+
+    // returns the reader of the source reading one char at once
+    private static JsonReader reader(String source) {
+        StringReader reader = new StringReader(source);
+        return new JsonReader(new Reader() {
+            @Override
+            public int read(char[] chars, int offset, int length) throws IOException {
+                return reader.read(chars, offset, Math.min(length, 1));
+            }
+
+            @Override
+            public void close() {
+                reader.close();
+            }
+        });
+    }
+}